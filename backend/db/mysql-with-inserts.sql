@@ -19,6 +19,7 @@ CREATE TABLE `eatsily`.`users` (
     `active`                BOOLEAN      NOT NULL DEFAULT TRUE,
     `blocked`               BOOLEAN      NOT NULL DEFAULT FALSE,
     `failed_login_attempts` INT          NOT NULL DEFAULT 0,
+    `token_version`         INT          NOT NULL DEFAULT 0,
     `creation_date`         TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
     `last_login`            TIMESTAMP    NULL,
     `person_id`             BIGINT       NOT NULL,
@@ -30,14 +31,16 @@ CREATE TABLE `eatsily`.`users` (
 
 CREATE TABLE `eatsily`.`tokens` (
     `id_token`   BIGINT       NOT NULL AUTO_INCREMENT,
-    `token`      VARCHAR(255) NOT NULL,
+    `token_hash` BINARY(32)   NOT NULL,
     `token_type` VARCHAR(20)  NOT NULL,
     `expired`    BOOLEAN      NOT NULL DEFAULT FALSE,
     `revoked`    BOOLEAN      NOT NULL DEFAULT FALSE,
+    `expires_at` DATETIME     NOT NULL,
     `user_id`    BIGINT       NOT NULL,
     PRIMARY KEY (`id_token`),
     FOREIGN KEY (`user_id`) REFERENCES `users`(`id_user`) ON DELETE CASCADE,
-    INDEX `idx_token` (`token`)
+    UNIQUE INDEX `idx_token_hash` (`token_hash`),
+    INDEX `idx_user_revoked` (`user_id`, `revoked`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- ========== Root Recipes ==========
@@ -64,7 +67,9 @@ CREATE TABLE `eatsily`.`recipes` (
     `updated_at`      TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     PRIMARY KEY (`id_recipe`),
     FOREIGN KEY (`user_id`)        REFERENCES `users`(`id_user`)       ON DELETE CASCADE,
-    FOREIGN KEY (`root_recipe_id`) REFERENCES `root_recipes`(`id`)     ON DELETE SET NULL
+    FOREIGN KEY (`root_recipe_id`) REFERENCES `root_recipes`(`id`)     ON DELETE SET NULL,
+    INDEX `idx_public_created` (`is_public`, `created_at`, `id_recipe`),
+    INDEX `idx_user_created`   (`user_id`, `created_at`, `id_recipe`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 CREATE TABLE `eatsily`.`recipe_translations` (
@@ -152,13 +157,7 @@ SET GLOBAL event_scheduler = ON;
 
 DELIMITER $$
 
-CREATE EVENT IF NOT EXISTS `clean_expired_tokens_daily`
-ON SCHEDULE EVERY 1 DAY
-STARTS TIMESTAMP(CURRENT_DATE, '00:00:00')
-DO
-BEGIN
-    DELETE FROM `eatsily`.`tokens` WHERE `expired` = TRUE OR `revoked` = TRUE;
-END $$
+-- Expired and revoked tokens are purged in chunks by the application (TokenPurgeTask)
 
 CREATE EVENT IF NOT EXISTS `reset_failed_logins_hourly`
 ON SCHEDULE EVERY 1 HOUR
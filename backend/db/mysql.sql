@@ -17,6 +17,7 @@ CREATE TABLE `eatsily`.`users` (
 	`active` BOOLEAN NOT NULL DEFAULT TRUE,
 	`blocked` BOOLEAN NOT NULL DEFAULT FALSE,
 	`failed_login_attempts` INT NOT NULL DEFAULT 0,
+	`token_version` INT NOT NULL DEFAULT 0,
 	`creation_date` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
 	`last_login` TIMESTAMP NULL,
 	`person_id` BIGINT NOT NULL,
@@ -28,14 +29,16 @@ CREATE TABLE `eatsily`.`users` (
 
 CREATE TABLE `eatsily`.`tokens` (
 	`id_token` BIGINT NOT NULL AUTO_INCREMENT,
-	`token` VARCHAR(255) NOT NULL,
+	`token_hash` BINARY(32) NOT NULL,
 	`token_type` VARCHAR(20) NOT NULL,
 	`expired` BOOLEAN NOT NULL DEFAULT FALSE,
 	`revoked` BOOLEAN NOT NULL DEFAULT FALSE,
+	`expires_at` DATETIME NOT NULL,
 	`user_id` BIGINT NOT NULL,
 	PRIMARY KEY (`id_token`),
 	FOREIGN KEY (`user_id`) REFERENCES `users`(`id_user`) ON DELETE CASCADE,
-	INDEX `idx_token` (`token`)
+	UNIQUE INDEX `idx_token_hash` (`token_hash`),
+	INDEX `idx_user_revoked` (`user_id`, `revoked`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 CREATE TABLE `eatsily`.`recipes` (
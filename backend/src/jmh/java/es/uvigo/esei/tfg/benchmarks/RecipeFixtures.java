@@ -0,0 +1,94 @@
+package es.uvigo.esei.tfg.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import es.uvigo.esei.tfg.entities.recipe.Recipe;
+import es.uvigo.esei.tfg.entities.recipe.Recipe.Difficulty;
+import es.uvigo.esei.tfg.entities.recipe.RecipeStep;
+import es.uvigo.esei.tfg.entities.recipe.RecipeStepTranslation;
+import es.uvigo.esei.tfg.entities.recipe.RecipeTranslation;
+import es.uvigo.esei.tfg.entities.user.Person;
+import es.uvigo.esei.tfg.entities.user.User;
+
+/**
+ * Builds in-memory recipes, with their translations and steps, shaped like
+ * the ones read from the database, for the benchmarks that do not need a database.
+ */
+public final class RecipeFixtures {
+
+    private final static User AUTHOR = new User(
+        1, "benchmark", "$2a$12$benchmarkPasswordHashThatIsNeverChecked", "benchmark@example.com", "USER",
+        new Person(1, "Bench", "Mark")
+    );
+
+    private RecipeFixtures() {}
+
+    /**
+     * Returns the user that is the author of every recipe of the fixtures.
+     *
+     * @return the author of the recipes.
+     */
+    public static User author() {
+        return AUTHOR;
+    }
+
+    /**
+     * Returns the locales used by the fixtures: "l0", "l1", ... up to the provided count.
+     *
+     * @param count the number of locales.
+     * @return the locales.
+     */
+    public static String[] locales(int count) {
+        final String[] locales = new String[count];
+        for (int i = 0; i < count; i++) {
+            locales[i] = "l" + i;
+        }
+        return locales;
+    }
+
+    /**
+     * Builds a public recipe with a translation for each of the provided locales.
+     *
+     * @param id the ID of the recipe.
+     * @param locales the locales of its translations.
+     * @return the recipe.
+     */
+    public static Recipe recipe(long id, String... locales) {
+        final List<RecipeTranslation> translations = new ArrayList<>(locales.length);
+        for (String locale : locales) {
+            translations.add(new RecipeTranslation(
+                id, locale, "Recipe " + id + " (" + locale + ")",
+                "Description of the recipe " + id + ", long enough to look like a real one."
+            ));
+        }
+
+        final LocalDateTime now = LocalDateTime.now();
+        return new Recipe(id, 15, 30, 4, Difficulty.MEDIUM, true, false, "images/" + id + ".jpg",
+            AUTHOR, null, now, now, translations);
+    }
+
+    /**
+     * Builds the steps of a recipe, each one with a translation for each of the provided locales.
+     *
+     * @param recipe the recipe of the steps.
+     * @param count the number of steps.
+     * @param locales the locales of their translations.
+     * @return the steps.
+     */
+    public static List<RecipeStep> steps(Recipe recipe, int count, String... locales) {
+        final List<RecipeStep> steps = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            final List<RecipeStepTranslation> translations = new ArrayList<>(locales.length);
+            for (String locale : locales) {
+                translations.add(new RecipeStepTranslation(
+                    id, locale, "Step " + id + " (" + locale + ")", "What to do in the step " + id + " of the recipe."
+                ));
+            }
+            steps.add(new RecipeStep(id, id, null, recipe, translations));
+        }
+        return steps;
+    }
+
+}
@@ -0,0 +1,144 @@
+package es.uvigo.esei.tfg.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.uvigo.esei.tfg.dao.EmbeddedDataSourceProvider;
+import es.uvigo.esei.tfg.dto.recipe.responses.RecipeDetailResponse;
+import es.uvigo.esei.tfg.dto.recipe.responses.RecipePageResponse;
+import es.uvigo.esei.tfg.exceptions.DAOException;
+import es.uvigo.esei.tfg.exceptions.ValidationException;
+import es.uvigo.esei.tfg.security.JwtPrincipal;
+import es.uvigo.esei.tfg.services.recipe.RecipeManagmentService;
+
+/**
+ * Measures how long it takes to build the responses of the recipes and to serialize them to JSON.
+ * The responses are built through the public reads of {@link RecipeManagmentService} on an
+ * in-memory HSQLDB database, so the time includes the queries; {@link RowMappingBenchmark}
+ * measures the reads alone.
+ *
+ * Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args="RecipeResponseBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeResponseBenchmark {
+
+    private final static String[] LOCALES = { "en", "es", "gl" };
+
+    // Ingredients and steps of the detailed recipe
+    @Param({"10"})
+    private int items;
+
+    // Recipes of a page of summaries, the default page size of the listings
+    @Param({"20"})
+    private int pageSize;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private DataSource dataSource;
+    private RecipeManagmentService service;
+    private JwtPrincipal principal;
+
+    private RecipeDetailResponse detail;
+    private RecipePageResponse page;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, DAOException, ValidationException {
+        // Schema of the application, with the catalog already inserted
+        dataSource = new EmbeddedDataSourceProvider("recipe-response-benchmark").getDataSource();
+
+        try (Connection conn = dataSource.getConnection()) {
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("INSERT INTO people (id_person, name, surname) VALUES (1, 'Bench', 'Mark')");
+                statement.execute("INSERT INTO users (id_user, username, password_hash, email, role, person_id)"
+                    + " VALUES (1, 'benchmark', 'hash', 'benchmark@example.com', 'USER', 1)");
+            }
+
+            // A page of recipes of the user, the first one with its ingredients and steps
+            insertRows(conn, pageSize,
+                "INSERT INTO recipes VALUES (?, 10, 20, 'EASY', 2, TRUE, FALSE, NULL, 1, NULL, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+            insertRows(conn, items, "INSERT INTO recipe_ingredients VALUES (?, 100.00, 'Diced', 1, ?, 1)");
+            insertRows(conn, items, "INSERT INTO recipe_steps (id_recipe_step, step_number, recipe_id) VALUES (?, ?, 1)");
+            for (String locale : LOCALES) {
+                insertRows(conn, pageSize,
+                    "INSERT INTO recipe_translations VALUES (?, '" + locale + "', 'Recipe title', 'A description of the recipe')");
+                insertRows(conn, items,
+                    "INSERT INTO recipe_step_translations VALUES (?, '" + locale + "', 'Step title', 'What to do in the step')");
+            }
+        }
+
+        service = new RecipeManagmentService(dataSource);
+        principal = new JwtPrincipal("benchmark", 1L, "USER");
+
+        detail = service.getRecipebyId(1, principal, "es");
+        page = service.getUserRecipes(principal, "es", null, pageSize);
+    }
+
+    // Inserts the rows with IDs from 1 to count, setting the ID in every parameter of the insert
+    private void insertRows(Connection conn, int count, String insert) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(insert)) {
+            final int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int id = 1; id <= count; id++) {
+                for (int parameter = 1; parameter <= parameters; parameter++) {
+                    statement.setLong(parameter, id);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement statement = conn.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Benchmark
+    public RecipeDetailResponse recipeDetail() throws DAOException {
+        return service.getRecipebyId(1, principal, "es");
+    }
+
+    @Benchmark
+    public RecipePageResponse userRecipes() throws DAOException, ValidationException {
+        return service.getUserRecipes(principal, "es", null, pageSize);
+    }
+
+    @Benchmark
+    public byte[] serializeRecipeDetailResponse() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(detail);
+    }
+
+    @Benchmark
+    public byte[] serializeRecipePageResponse() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+}
@@ -0,0 +1,126 @@
+package es.uvigo.esei.tfg.benchmarks;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import es.uvigo.esei.tfg.dao.EmbeddedDataSourceProvider;
+import es.uvigo.esei.tfg.dao.recipe.RecipeDAO;
+import es.uvigo.esei.tfg.dao.recipe.RecipeIngredientDAO;
+import es.uvigo.esei.tfg.dao.recipe.RecipeStepDAO;
+import es.uvigo.esei.tfg.dao.recipe.RecipeTranslationDAO;
+import es.uvigo.esei.tfg.entities.recipe.Recipe;
+import es.uvigo.esei.tfg.entities.recipe.RecipeIngredient;
+import es.uvigo.esei.tfg.entities.recipe.RecipeStep;
+import es.uvigo.esei.tfg.exceptions.DAOException;
+
+/**
+ * Measures how long the DAOs take to read and map a big result, on an in-memory HSQLDB
+ * database so the time is spent in the driver and the row mapping rather than in the network.
+ *
+ * Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args="RowMappingBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    private DataSource dataSource;
+    private RecipeDAO recipeDAO;
+    private RecipeIngredientDAO recipeIngredientDAO;
+    private RecipeStepDAO recipeStepDAO;
+    private RecipeTranslationDAO recipeTranslationDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // Schema of the application, with the catalog already inserted
+        dataSource = new EmbeddedDataSourceProvider("row-mapping-benchmark").getDataSource();
+
+        try (Connection conn = dataSource.getConnection()) {
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("INSERT INTO people (id_person, name, surname) VALUES (1, 'Bench', 'Mark')");
+                statement.execute("INSERT INTO users (id_user, username, password_hash, email, role, person_id)"
+                    + " VALUES (1, 'benchmark', 'hash', 'benchmark@example.com', 'USER', 1)");
+            }
+
+            insertRows(conn,
+                "INSERT INTO recipes VALUES (?, 10, 20, 'EASY', 2, TRUE, FALSE, NULL, 1, NULL, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+            insertRows(conn,
+                "INSERT INTO recipe_translations VALUES (?, 'en', 'Recipe title', 'A description of the recipe')");
+            insertRows(conn, "INSERT INTO recipe_ingredients VALUES (?, 100.00, 'Diced', 1, 1, 1)");
+            insertRows(conn, "INSERT INTO recipe_steps (id_recipe_step, step_number, recipe_id) VALUES (?, 1, 1)");
+            insertRows(conn,
+                "INSERT INTO recipe_step_translations VALUES (?, 'en', 'Step title', 'What to do in the step')");
+        }
+
+        recipeDAO = new RecipeDAO(dataSource);
+        recipeIngredientDAO = new RecipeIngredientDAO(dataSource);
+        recipeStepDAO = new RecipeStepDAO(dataSource);
+        recipeTranslationDAO = new RecipeTranslationDAO(dataSource);
+    }
+
+    private void insertRows(Connection conn, String insert) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(insert)) {
+            for (int id = 1; id <= rows; id++) {
+                statement.setLong(1, id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement statement = conn.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Benchmark
+    public List<Recipe> recipes() throws DAOException {
+        return recipeDAO.getPublic(null, rows);
+    }
+
+    @Benchmark
+    public List<RecipeIngredient> recipeIngredients() throws DAOException {
+        return recipeIngredientDAO.getByRecipeId(1);
+    }
+
+    @Benchmark
+    public List<RecipeStep> recipeSteps() throws DAOException {
+        return recipeStepDAO.getByRecipeIdWithTranslation(1, "en");
+    }
+
+    @Benchmark
+    public void recipeTranslations(Blackhole blackhole) throws DAOException, IOException {
+        recipeTranslationDAO.listPublic(blackhole::consume);
+    }
+
+}
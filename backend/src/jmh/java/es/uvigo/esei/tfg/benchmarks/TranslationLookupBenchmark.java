@@ -0,0 +1,67 @@
+package es.uvigo.esei.tfg.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.uvigo.esei.tfg.entities.recipe.Recipe;
+import es.uvigo.esei.tfg.entities.recipe.RecipeStep;
+import es.uvigo.esei.tfg.entities.recipe.RecipeStepTranslation;
+import es.uvigo.esei.tfg.entities.recipe.RecipeTranslation;
+
+/**
+ * Measures the lookup of the translation of a recipe and of its steps by locale, done for
+ * every recipe and step returned to the clients. The locale looked up is the last one, so
+ * the whole list of translations is scanned.
+ *
+ * Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args="TranslationLookupBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslationLookupBenchmark {
+
+    @Param({"3", "20"})
+    private int translations;
+
+    private Recipe recipe;
+    private RecipeStep step;
+    private String locale;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final String[] locales = RecipeFixtures.locales(translations);
+        // A new string, so the lookup compares the contents as it does with the locales of the requests
+        locale = new String(locales[locales.length - 1]);
+
+        recipe = RecipeFixtures.recipe(1, locales);
+        final List<RecipeStep> steps = RecipeFixtures.steps(recipe, 1, locales);
+        step = steps.get(0);
+    }
+
+    @Benchmark
+    public RecipeTranslation recipeTranslation() {
+        return recipe.getTranslationByLocale(locale);
+    }
+
+    @Benchmark
+    public RecipeStepTranslation stepTranslation() {
+        return step.getTranslation(locale);
+    }
+
+}
@@ -0,0 +1,49 @@
+package es.uvigo.esei.tfg;
+
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+
+import es.uvigo.esei.tfg.services.user.LastLoginRecorder;
+import es.uvigo.esei.tfg.services.user.PasswordHashingExecutor;
+import es.uvigo.esei.tfg.services.user.TokenPurgeTask;
+
+/**
+ * Starts the scheduled tasks of the application when it is deployed and stops them, with its
+ * thread pools, when it is undeployed, so their threads do not outlive it.
+ */
+public class BackgroundTasksListener implements ContainerLifecycleListener {
+	private final PasswordHashingExecutor hashingExecutor;
+	private final LastLoginRecorder lastLoginRecorder;
+	private final TokenPurgeTask tokenPurgeTask;
+	
+	/**
+	 * Constructs a new instance of {@link BackgroundTasksListener}.
+	 * 
+	 * @param hashingExecutor the pool that hashes the passwords.
+	 * @param lastLoginRecorder the buffer of the last login timestamps.
+	 * @param tokenPurgeTask the task that deletes the expired and revoked tokens.
+	 */
+	public BackgroundTasksListener(
+		PasswordHashingExecutor hashingExecutor, LastLoginRecorder lastLoginRecorder, TokenPurgeTask tokenPurgeTask
+	) {
+		this.hashingExecutor = hashingExecutor;
+		this.lastLoginRecorder = lastLoginRecorder;
+		this.tokenPurgeTask = tokenPurgeTask;
+	}
+
+	@Override
+	public void onStartup(Container container) {
+		lastLoginRecorder.start();
+		tokenPurgeTask.start();
+	}
+
+	@Override
+	public void onReload(Container container) {}
+
+	@Override
+	public void onShutdown(Container container) {
+		hashingExecutor.shutdown();
+		lastLoginRecorder.shutdown();
+		tokenPurgeTask.shutdown();
+	}
+}
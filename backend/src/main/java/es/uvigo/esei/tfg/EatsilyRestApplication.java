@@ -7,15 +7,39 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
 
+import javax.sql.DataSource;
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.core.Application;
 
+import es.uvigo.esei.tfg.dao.DAO;
+import es.uvigo.esei.tfg.dao.catalog.CatalogDAO;
+import es.uvigo.esei.tfg.dao.catalog.IngredientDAO;
+import es.uvigo.esei.tfg.dao.recipe.RecipeIngredientDAO;
+import es.uvigo.esei.tfg.dao.user.PeopleDAO;
+import es.uvigo.esei.tfg.dao.user.TokenDAO;
+import es.uvigo.esei.tfg.dao.user.UsersDAO;
 import es.uvigo.esei.tfg.rest.AuthResource;
 import es.uvigo.esei.tfg.rest.PeopleResource;
 import es.uvigo.esei.tfg.rest.UsersResource;
 import es.uvigo.esei.tfg.rest.RecipeResource;
 import es.uvigo.esei.tfg.rest.CatalogResource;
+import es.uvigo.esei.tfg.rest.UnitOfWorkCleanupListener;
+import es.uvigo.esei.tfg.rest.UnitOfWorkFilter;
+import es.uvigo.esei.tfg.search.IngredientAutocompleteIndex;
 import es.uvigo.esei.tfg.security.JwtAuthenticationFilter;
+import es.uvigo.esei.tfg.security.RateLimitFilter;
+import es.uvigo.esei.tfg.security.VerifiedTokenCache;
+import es.uvigo.esei.tfg.services.catalog.CatalogCache;
+import es.uvigo.esei.tfg.services.catalog.IngredientSuggestionService;
+import es.uvigo.esei.tfg.services.recipe.RecipeManagmentService;
+import es.uvigo.esei.tfg.services.user.AuthService;
+import es.uvigo.esei.tfg.services.user.LastLoginRecorder;
+import es.uvigo.esei.tfg.services.user.PasswordHashingExecutor;
+import es.uvigo.esei.tfg.services.user.TokenManagmentService;
+import es.uvigo.esei.tfg.services.user.TokenPurgeTask;
+import es.uvigo.esei.tfg.services.user.TokenVersionCache;
+import es.uvigo.esei.tfg.services.user.UserPersonService;
+import es.uvigo.esei.tfg.util.JwtUtil;
 
 /**
  * Configuration of the REST application. This class includes the resources and
@@ -26,18 +50,57 @@ import es.uvigo.esei.tfg.security.JwtAuthenticationFilter;
  */
 @ApplicationPath("/rest/*")
 public class EatsilyRestApplication extends Application {
-	@Override
-	public Set<Class<?>> getClasses() {
-		return Stream.of(
-			PeopleResource.class,
-			UsersResource.class,
-			AuthResource.class,
-			JwtAuthenticationFilter.class,
-			RecipeResource.class,
-			CatalogResource.class
+	private final Set<Object> singletons;
+	
+	/**
+	 * Constructs a new instance of {@link EatsilyRestApplication}. The resources,
+	 * services and DAOs are created here once and shared by all the requests,
+	 * so the data source and the JWT signing key are only resolved at startup.
+	 */
+	public EatsilyRestApplication() {
+		final DataSource dataSource = DAO.lookupDataSource();
+		final JwtUtil jwtUtil = new JwtUtil();
+		
+		final UsersDAO usersDAO = new UsersDAO(dataSource);
+		final PeopleDAO peopleDAO = new PeopleDAO(dataSource);
+		
+		final UserPersonService userPersonService = new UserPersonService(usersDAO, peopleDAO);
+		final TokenDAO tokenDAO = new TokenDAO(dataSource);
+		final TokenVersionCache tokenVersionCache = new TokenVersionCache(usersDAO);
+		final TokenManagmentService tokenManagmentService = new TokenManagmentService(jwtUtil, tokenDAO, tokenVersionCache);
+		final LastLoginRecorder lastLoginRecorder = new LastLoginRecorder(usersDAO);
+		final PasswordHashingExecutor hashingExecutor = PasswordHashingExecutor.getInstance();
+		final AuthService authService = new AuthService(
+			jwtUtil, userPersonService, tokenManagmentService, usersDAO, lastLoginRecorder
+		);
+		final RecipeManagmentService recipeService = new RecipeManagmentService(dataSource);
+		final IngredientSuggestionService ingredientSuggestionService = new IngredientSuggestionService(
+			new IngredientDAO(dataSource), new RecipeIngredientDAO(dataSource)
+		);
+		
+		// The in-memory copies of the catalog are reloaded on their next read after a change
+		CatalogDAO.addChangeListener(CatalogCache.getInstance()::invalidate);
+		CatalogDAO.addChangeListener(IngredientAutocompleteIndex.getInstance()::markStale);
+		
+		this.singletons = Stream.of(
+			new PeopleResource(peopleDAO),
+			new UsersResource(userPersonService),
+			new AuthResource(authService, hashingExecutor),
+			new RateLimitFilter(),
+			new UnitOfWorkFilter(),
+			new UnitOfWorkCleanupListener(),
+			new JwtAuthenticationFilter(jwtUtil, VerifiedTokenCache.getInstance(), tokenVersionCache),
+			new RecipeResource(recipeService),
+			new CatalogResource(CatalogCache.getInstance(), ingredientSuggestionService),
+			new BackgroundTasksListener(hashingExecutor, lastLoginRecorder, new TokenPurgeTask(tokenDAO))
 		).collect(toSet());
 	}
 	
+	@Override
+	public Set<Object> getSingletons() {
+		return this.singletons;
+	}
+	
 	@Override
 	public Map<String, Object> getProperties() {
 		// Activates JSON automatic conversion in JAX-RS
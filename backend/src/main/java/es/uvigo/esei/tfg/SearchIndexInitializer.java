@@ -0,0 +1,48 @@
+package es.uvigo.esei.tfg;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+import es.uvigo.esei.tfg.exceptions.DAOException;
+import es.uvigo.esei.tfg.services.catalog.IngredientSuggestionService;
+import es.uvigo.esei.tfg.services.recipe.RecipeManagmentService;
+
+/**
+ * Builds the in-memory recipe search indexes when the application starts. After that,
+ * the recipe indexes are kept up to date by {@link RecipeManagmentService}.
+ */
+@WebListener
+public class SearchIndexInitializer implements ServletContextListener {
+	private final static Logger LOG = Logger.getLogger(SearchIndexInitializer.class.getName());
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		final RecipeManagmentService service = new RecipeManagmentService();
+
+		// The application can still work if an index fails, searches will just find nothing
+		try {
+			service.rebuildSearchIndex();
+		} catch (DAOException e) {
+			LOG.log(Level.SEVERE, "Error building the recipe search index", e);
+		}
+
+		try {
+			service.rebuildMatchIndex();
+		} catch (DAOException e) {
+			LOG.log(Level.SEVERE, "Error building the ingredient match index", e);
+		}
+
+		try {
+			new IngredientSuggestionService().rebuildIndex();
+		} catch (DAOException e) {
+			LOG.log(Level.SEVERE, "Error building the ingredient autocomplete index", e);
+		}
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {}
+}
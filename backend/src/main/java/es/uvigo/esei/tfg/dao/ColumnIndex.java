@@ -0,0 +1,68 @@
+package es.uvigo.esei.tfg.dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Positions of the columns of a {@link ResultSet}, resolved from its metadata only once,
+ * so the DAOs can check which columns are present and read every row by index instead of
+ * by label.
+ * 
+ * Labels are compared ignoring their case, as some databases report them in upper case.
+ * When several columns share the same label, the first one is used, like
+ * {@link ResultSet#findColumn(String)} does.
+ */
+public final class ColumnIndex {
+	/**
+	 * Position returned for the columns that are not present in the {@link ResultSet}.
+	 */
+	public static final int ABSENT = 0;
+	
+	private final Map<String, Integer> positions;
+	
+	/**
+	 * Resolves the positions of the columns of the provided {@link ResultSet}.
+	 * 
+	 * @param result the {@link ResultSet} whose columns are resolved.
+	 * @throws SQLException if an error happens while accessing the metadata of the {@link ResultSet}.
+	 */
+	public ColumnIndex(ResultSet result) throws SQLException {
+		final ResultSetMetaData metaData = result.getMetaData();
+		final int columnCount = metaData.getColumnCount();
+		
+		this.positions = new HashMap<>(columnCount * 2);
+		for (int i = 1; i <= columnCount; i++) {
+			this.positions.putIfAbsent(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+		}
+	}
+	
+	/**
+	 * Returns the position of a column.
+	 * 
+	 * @param label the label of the column.
+	 * @return the position of the column, or {@link #ABSENT} if the column is not present.
+	 */
+	public int of(String label) {
+		return positions.getOrDefault(label.toLowerCase(Locale.ROOT), ABSENT);
+	}
+	
+	/**
+	 * Returns the position of a column that must be present.
+	 * 
+	 * @param label the label of the column.
+	 * @return the position of the column.
+	 * @throws SQLException if the column is not present.
+	 */
+	public int require(String label) throws SQLException {
+		final int position = of(label);
+		if (position == ABSENT) {
+			throw new SQLException("Column not found: " + label);
+		}
+		return position;
+	}
+	
+}
@@ -1,16 +1,12 @@
 package es.uvigo.esei.tfg.dao;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.naming.InitialContext;
-import javax.naming.NamingException;
 import javax.sql.DataSource;
 
 /**
@@ -22,34 +18,142 @@ import javax.sql.DataSource;
  */
 public abstract class DAO {
 	private final static Logger LOG = Logger.getLogger(DAO.class.getName());
-	private final static String JNDI_NAME = "java:/comp/env/jdbc/eatsily"; 
+	/**
+	 * System property with the class name of the {@link DataSourceProvider} to use.
+	 */
+	public final static String DATA_SOURCE_PROVIDER_PROPERTY = "eatsily.datasource.provider";
+	private final static int STREAMING_FETCH_SIZE = 100;
 	
-	private DataSource dataSource;
+	private static volatile DataSource sharedDataSource;
+	private static DataSourceProvider dataSourceProvider;
+	
+	private final DataSource dataSource;
 	
 	/**
-	 * Constructs a new instance of {@link DAO}.
+	 * Constructs a new instance of {@link DAO} that uses the data source
+	 * returned by {@link #lookupDataSource()}.
 	 */
 	public DAO() {
-		try {
-			this.dataSource = (DataSource) new InitialContext().lookup(JNDI_NAME);
-		} catch (NamingException e) {
-			LOG.log(Level.SEVERE, "Error initializing DAO", e);
-			throw new RuntimeException(e);
+		this(lookupDataSource());
+	}
+	
+	/**
+	 * Constructs a new instance of {@link DAO} that uses the provided data source.
+	 * 
+	 * @param dataSource the data source used to obtain the connections.
+	 */
+	public DAO(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+	
+	/**
+	 * Sets the provider of the data source returned by {@link #lookupDataSource()}, replacing
+	 * the data source already provided, if any. It must be called before the DAOs are created.
+	 * 
+	 * @param provider the provider of the data source, or {@code null} to select it again
+	 * as explained in {@link #lookupDataSource()}.
+	 */
+	public static void setDataSourceProvider(DataSourceProvider provider) {
+		synchronized (DAO.class) {
+			dataSourceProvider = provider;
+			sharedDataSource = null;
 		}
 	}
 	
+	/**
+	 * Returns the data source of the application. The data source is requested to its
+	 * provider only the first time, and the same instance is returned afterwards.
+	 * 
+	 * The provider is the one set with {@link #setDataSourceProvider(DataSourceProvider)} or,
+	 * if none was set, an instance of the class named in the {@value #DATA_SOURCE_PROVIDER_PROPERTY}
+	 * system property. Without any of them, the data source is looked up in JNDI
+	 * (see {@link JndiDataSourceProvider}) or, when the application runs without a JNDI
+	 * naming context, an in-memory database is used (see {@link EmbeddedDataSourceProvider}).
+	 * 
+	 * @return the data source of the application.
+	 */
+	public static DataSource lookupDataSource() {
+		DataSource dataSource = sharedDataSource;
+		if (dataSource == null) {
+			synchronized (DAO.class) {
+				if (sharedDataSource == null) {
+					sharedDataSource = selectDataSourceProvider().getDataSource();
+				}
+				dataSource = sharedDataSource;
+			}
+		}
+		return dataSource;
+	}
+	
+	private static DataSourceProvider selectDataSourceProvider() {
+		if (dataSourceProvider != null) {
+			return dataSourceProvider;
+		}
+		
+		final String providerClass = System.getProperty(DATA_SOURCE_PROVIDER_PROPERTY);
+		if (providerClass != null && !providerClass.trim().isEmpty()) {
+			try {
+				return (DataSourceProvider) Class.forName(providerClass.trim()).getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | ClassCastException e) {
+				LOG.log(Level.SEVERE, "Error initializing DAO", e);
+				throw new IllegalStateException("Invalid data source provider: " + providerClass, e);
+			}
+		}
+		
+		if (JndiDataSourceProvider.isAvailable()) {
+			return new JndiDataSourceProvider();
+		}
+		
+		LOG.warning("No JNDI naming context found, using an embedded in-memory database");
+		return new EmbeddedDataSourceProvider();
+	}
+	
 	/**
 	 * Returns a {@link java.sql.Connection} to the database. The caller is responsible
 	 * for closing the connection after using it.
 	 * 
 	 * @param externalConnection an optional connection to use. 
-	 * If this parameter is not {@code null}, the provided connection will be returned. 
-	 * Otherwise, a new connection will be obtained from the connection pool and returned.
+	 * If this parameter is not {@code null}, the provided connection will be returned.
+	 * Otherwise, if a {@link UnitOfWork} is open in the current thread its connection will be
+	 * returned, and closing it will do nothing. If none is open, a new connection will be
+	 * obtained from the connection pool and returned.
 	 * @return a {@link java.sql.Connection} to the database.
 	 * @throws SQLException if an error happens while obtaining the connection.
 	 */
 	public Connection getConnection(Connection externalConnection) throws SQLException {
-		return externalConnection != null ? externalConnection : this.dataSource.getConnection();
+		if (externalConnection != null) {
+			return externalConnection;
+		}
+
+		final Connection unitOfWorkConnection = UnitOfWork.getConnection(this.dataSource);
+		return unitOfWorkConnection != null ? unitOfWorkConnection : this.dataSource.getConnection();
+	}
+
+	/**
+	 * Returns a {@link java.sql.Connection} for a read that can be served by the read replica
+	 * when the data source is a {@link ReadWriteDataSource}. The read uses the primary database,
+	 * like {@link #getConnection(Connection)}, when the data source has no replica, inside a
+	 * {@link UnitOfWork} that writes or was opened with {@link UnitOfWork#begin()}, and during
+	 * the read-your-writes window of the writer of the current {@link UnitOfWork}.
+	 * The caller is responsible for closing the connection after using it.
+	 * 
+	 * @param externalConnection an optional connection to use. 
+	 * If this parameter is not {@code null}, the provided connection will be returned.
+	 * @return a {@link java.sql.Connection} to the database.
+	 * @throws SQLException if an error happens while obtaining the connection.
+	 */
+	public Connection getReadConnection(Connection externalConnection) throws SQLException {
+		if (externalConnection != null || !(this.dataSource instanceof ReadWriteDataSource)) {
+			return getConnection(externalConnection);
+		}
+
+		final ReadWriteDataSource readWrite = (ReadWriteDataSource) this.dataSource;
+		if (UnitOfWork.readsFromPrimary(readWrite) || readWrite.isRecentWriter(UnitOfWork.currentWriter())) {
+			return getConnection(null);
+		}
+
+		final Connection unitOfWorkConnection = UnitOfWork.getConnection(readWrite.getReplica());
+		return unitOfWorkConnection != null ? unitOfWorkConnection : readWrite.getReplica().getConnection();
 	}
 
     /**
@@ -76,16 +180,65 @@ public abstract class DAO {
         return externalConnection != null;
     }
 
-	protected Set<String> getColumnNames(ResultSet result) throws SQLException {
-        ResultSetMetaData metaData = result.getMetaData();
-        int columnCount = metaData.getColumnCount();
-        Set<String> columnNames = new HashSet<>();
+	/**
+	 * Configures a statement so its results are streamed from the database
+	 * row by row instead of being fully loaded in memory by the driver.
+	 * 
+	 * @param statement the statement to configure. It must be a forward-only,
+	 * read-only statement.
+	 * @throws SQLException if an error happens while configuring the statement.
+	 */
+	protected void enableStreaming(PreparedStatement statement) throws SQLException {
+		final String product = statement.getConnection().getMetaData().getDatabaseProductName();
+		
+		if (product != null && product.toLowerCase().contains("mysql")) {
+			// Connector/J only streams results with this special fetch size
+			statement.setFetchSize(Integer.MIN_VALUE);
+		} else {
+			statement.setFetchSize(STREAMING_FETCH_SIZE);
+		}
+	}
 
-        for (int i = 1; i <= columnCount; i++) {
-            columnNames.add(metaData.getColumnLabel(i));
-        }
+	/**
+	 * Builds a comma separated list of JDBC placeholders (e.g. "?, ?, ?"),
+	 * to be used in {@code IN (...)} conditions.
+	 * 
+	 * @param count the number of placeholders.
+	 * @return the list of placeholders.
+	 */
+	protected String placeholders(int count) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			builder.append(i == 0 ? "?" : ", ?");
+		}
+		return builder.toString();
+	}
 
-        return columnNames;
-    }
+	/**
+	 * Executes the batch of a statement prepared with {@link PreparedStatement#RETURN_GENERATED_KEYS}
+	 * and returns the keys generated for its rows, in the same order the rows were added.
+	 * 
+	 * @param statement the statement whose batch will be executed.
+	 * @param rows the number of rows added to the batch.
+	 * @return the generated keys.
+	 * @throws SQLException if an error happens while executing the batch or if
+	 * a key was not generated for every row.
+	 */
+	protected long[] executeBatchWithKeys(PreparedStatement statement, int rows) throws SQLException {
+		statement.executeBatch();
+		
+		final long[] keys = new long[rows];
+		int count = 0;
+		try (final ResultSet generatedKeys = statement.getGeneratedKeys()) {
+			while (count < rows && generatedKeys.next()) {
+				keys[count++] = generatedKeys.getLong(1);
+			}
+		}
+		
+		if (count != rows) {
+			throw new SQLException("Expected " + rows + " generated keys, but " + count + " were returned");
+		}
+		return keys;
+	}
 
 }
@@ -0,0 +1,20 @@
+package es.uvigo.esei.tfg.dao;
+
+import javax.sql.DataSource;
+
+/**
+ * Provides the data source used by the DAOs created without an explicit one
+ * (see {@link DAO#lookupDataSource()}).
+ *
+ * Implementations must have a public constructor without parameters to be selected
+ * through the {@value DAO#DATA_SOURCE_PROVIDER_PROPERTY} system property.
+ */
+public interface DataSourceProvider {
+	/**
+	 * Returns the data source of the application.
+	 *
+	 * @return the data source of the application.
+	 * @throws IllegalStateException if the data source can't be provided.
+	 */
+	public DataSource getDataSource();
+}
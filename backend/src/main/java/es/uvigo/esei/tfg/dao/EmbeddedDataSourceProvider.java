@@ -0,0 +1,192 @@
+package es.uvigo.esei.tfg.dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Provides a data source backed by an in-memory HSQLDB database, so the DAOs and services
+ * can run without an application container (e.g. in benchmarks or while developing).
+ * The database is created with the schema and the catalog of {@value #SCHEMA_RESOURCE}
+ * the first time the data source is provided, and it is lost when the JVM ends.
+ *
+ * The HSQLDB driver must be in the classpath, which is not the case of the packaged
+ * application.
+ */
+public class EmbeddedDataSourceProvider implements DataSourceProvider {
+	private final static Logger LOG = Logger.getLogger(EmbeddedDataSourceProvider.class.getName());
+	private final static String DRIVER = "org.hsqldb.jdbc.JDBCDriver";
+	private final static String SCHEMA_RESOURCE = "/db/hsqldb.sql";
+	private final static String DEFAULT_DATABASE = "eatsily";
+
+	private final String url;
+	private DataSource dataSource;
+
+	/**
+	 * Constructs a new instance of {@link EmbeddedDataSourceProvider} for the
+	 * default in-memory database.
+	 */
+	public EmbeddedDataSourceProvider() {
+		this(DEFAULT_DATABASE);
+	}
+
+	/**
+	 * Constructs a new instance of {@link EmbeddedDataSourceProvider}. The providers
+	 * with the same database name share the same in-memory database.
+	 *
+	 * @param database the name of the in-memory database.
+	 */
+	public EmbeddedDataSourceProvider(String database) {
+		this.url = "jdbc:hsqldb:mem:" + database + ";sql.syntax_mys=true";
+	}
+
+	@Override
+	public synchronized DataSource getDataSource() {
+		if (this.dataSource == null) {
+			try {
+				Class.forName(DRIVER);
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException("HSQLDB driver not found in the classpath", e);
+			}
+
+			final DataSource embedded = new DriverManagerDataSource(this.url, "SA", "");
+			try (Connection connection = embedded.getConnection()) {
+				if (!hasSchema(connection)) {
+					createSchema(connection);
+					LOG.info("Embedded database created: " + this.url);
+				}
+			} catch (SQLException | IOException e) {
+				LOG.log(Level.SEVERE, "Error creating the embedded database", e);
+				throw new IllegalStateException("Error creating the embedded database", e);
+			}
+			this.dataSource = embedded;
+		}
+		return this.dataSource;
+	}
+
+	private static boolean hasSchema(Connection connection) throws SQLException {
+		try (ResultSet tables = connection.getMetaData().getTables(null, null, "USERS", null)) {
+			return tables.next();
+		}
+	}
+
+	private static void createSchema(Connection connection) throws SQLException, IOException {
+		try (Statement statement = connection.createStatement()) {
+			for (String sql : readStatements(SCHEMA_RESOURCE)) {
+				statement.execute(sql);
+			}
+		}
+	}
+
+	/**
+	 * Reads the statements of a SQL script. The script must end each statement with a
+	 * semicolon at the end of a line, and only whole line comments are allowed.
+	 */
+	private static List<String> readStatements(String resource) throws IOException {
+		final InputStream input = EmbeddedDataSourceProvider.class.getResourceAsStream(resource);
+		if (input == null) {
+			throw new IOException("Resource not found: " + resource);
+		}
+
+		final List<String> statements = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+			final StringBuilder statement = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String trimmed = line.trim();
+				if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+					continue;
+				}
+
+				statement.append(line).append('\n');
+				if (trimmed.endsWith(";")) {
+					statement.setLength(statement.lastIndexOf(";"));
+					statements.add(statement.toString());
+					statement.setLength(0);
+				}
+			}
+		}
+		return statements;
+	}
+
+	/**
+	 * Data source that opens a new connection through the {@link DriverManager} each time,
+	 * which is cheap for an in-memory database.
+	 */
+	private static final class DriverManagerDataSource implements DataSource {
+		private final String url;
+		private final String username;
+		private final String password;
+		private PrintWriter logWriter;
+
+		DriverManagerDataSource(String url, String username, String password) {
+			this.url = url;
+			this.username = username;
+			this.password = password;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return getConnection(this.username, this.password);
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return DriverManager.getConnection(this.url, username, password);
+		}
+
+		@Override
+		public PrintWriter getLogWriter() throws SQLException {
+			return this.logWriter;
+		}
+
+		@Override
+		public void setLogWriter(PrintWriter out) throws SQLException {
+			this.logWriter = out;
+		}
+
+		@Override
+		public void setLoginTimeout(int seconds) throws SQLException {
+			DriverManager.setLoginTimeout(seconds);
+		}
+
+		@Override
+		public int getLoginTimeout() throws SQLException {
+			return DriverManager.getLoginTimeout();
+		}
+
+		@Override
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+
+		@Override
+		public <T> T unwrap(Class<T> iface) throws SQLException {
+			if (iface.isInstance(this)) {
+				return iface.cast(this);
+			}
+			throw new SQLException("Not a wrapper for " + iface.getName());
+		}
+
+		@Override
+		public boolean isWrapperFor(Class<?> iface) throws SQLException {
+			return iface.isInstance(this);
+		}
+	}
+
+}
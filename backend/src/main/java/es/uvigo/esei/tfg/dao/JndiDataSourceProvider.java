@@ -0,0 +1,69 @@
+package es.uvigo.esei.tfg.dao;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.naming.NoInitialContextException;
+import javax.sql.DataSource;
+
+/**
+ * Provides the data source configured in the JNDI context of the application container.
+ * If a read replica is also configured, a {@link ReadWriteDataSource} combining both
+ * data sources is provided.
+ */
+public class JndiDataSourceProvider implements DataSourceProvider {
+	private final static Logger LOG = Logger.getLogger(JndiDataSourceProvider.class.getName());
+	private final static String ENVIRONMENT_NAME = "java:/comp/env";
+	private final static String JNDI_NAME = ENVIRONMENT_NAME + "/jdbc/eatsily";
+	private final static String REPLICA_JNDI_NAME = ENVIRONMENT_NAME + "/jdbc/eatsily-replica";
+	// Longer than the usual replication lag, so users always read their own writes
+	private final static int READ_YOUR_WRITES_SECONDS = 5;
+
+	/**
+	 * Checks whether the application runs with a JNDI naming context, as it does inside
+	 * an application container.
+	 *
+	 * @return true if there is a JNDI naming context, false otherwise.
+	 */
+	public static boolean isAvailable() {
+		try {
+			new InitialContext().lookup(ENVIRONMENT_NAME);
+			return true;
+		} catch (NoInitialContextException e) {
+			return false;
+		} catch (NamingException e) {
+			// There is a naming context, so the error will be reported when the data source is looked up
+			return true;
+		}
+	}
+
+	@Override
+	public DataSource getDataSource() {
+		try {
+			final InitialContext context = new InitialContext();
+			final DataSource primary = (DataSource) context.lookup(JNDI_NAME);
+			final DataSource replica = lookupReplica(context);
+
+			return replica == null ? primary
+				: new ReadWriteDataSource(primary, replica, READ_YOUR_WRITES_SECONDS, TimeUnit.SECONDS);
+		} catch (NamingException e) {
+			LOG.log(Level.SEVERE, "Error looking up the data source", e);
+			throw new IllegalStateException("Data source " + JNDI_NAME + " not found", e);
+		}
+	}
+
+	private static DataSource lookupReplica(InitialContext context) {
+		try {
+			final DataSource replica = (DataSource) context.lookup(REPLICA_JNDI_NAME);
+			LOG.info("Read replica data source found, read-only queries will be sent to it");
+			return replica;
+		} catch (NamingException e) {
+			LOG.fine("No read replica data source configured");
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+package es.uvigo.esei.tfg.dao;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Data source made of a primary database, that receives all the writes, and a read replica.
+ * It behaves as the primary data source, and the DAOs use the replica only for the
+ * reads they mark as such (see {@link DAO#getReadConnection(Connection)}).
+ *
+ * As the replica may lag behind the primary, the reads of a user that has recently written
+ * to the primary are also sent to the primary during a short window, so users always
+ * see their own changes.
+ */
+public class ReadWriteDataSource implements DataSource {
+	// Writers tracked before the expired windows are purged
+	private final static int MAX_TRACKED_WRITERS = 100_000;
+
+	private final DataSource primary;
+	private final DataSource replica;
+	private final long readYourWritesNanos;
+
+	// writer (e.g. a user ID) -> end of its read-your-writes window, in System.nanoTime() units
+	private final Map<Object, Long> recentWriters = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a new instance of {@link ReadWriteDataSource}.
+	 *
+	 * @param primary the data source of the primary database.
+	 * @param replica the data source of the read replica.
+	 * @param readYourWritesWindow the time during which the reads of a writer go to the
+	 * primary after its last write.
+	 * @param unit the unit of the read-your-writes window.
+	 */
+	public ReadWriteDataSource(DataSource primary, DataSource replica, long readYourWritesWindow, TimeUnit unit) {
+		if (primary == null || replica == null) {
+			throw new IllegalArgumentException("Primary and replica data sources cannot be null");
+		}
+
+		this.primary = primary;
+		this.replica = replica;
+		this.readYourWritesNanos = unit.toNanos(readYourWritesWindow);
+	}
+
+	public DataSource getPrimary() {
+		return primary;
+	}
+
+	public DataSource getReplica() {
+		return replica;
+	}
+
+	/**
+	 * Records that a writer has just written to the primary, opening its read-your-writes window.
+	 *
+	 * @param writer the writer, usually the ID of a user. If {@code null}, nothing is recorded.
+	 */
+	public void recordWrite(Object writer) {
+		if (writer == null || readYourWritesNanos <= 0) {
+			return;
+		}
+
+		final long now = System.nanoTime();
+		if (recentWriters.size() >= MAX_TRACKED_WRITERS) {
+			recentWriters.values().removeIf(deadline -> deadline - now <= 0);
+		}
+		recentWriters.put(writer, now + readYourWritesNanos);
+	}
+
+	/**
+	 * Checks whether the reads of a writer must go to the primary because it has written recently.
+	 *
+	 * @param writer the writer, usually the ID of a user. May be {@code null}.
+	 * @return true if the writer is within its read-your-writes window, false otherwise.
+	 */
+	public boolean isRecentWriter(Object writer) {
+		if (writer == null) {
+			return false;
+		}
+
+		final Long deadline = recentWriters.get(writer);
+		if (deadline == null) {
+			return false;
+		}
+		if (deadline - System.nanoTime() > 0) {
+			return true;
+		}
+
+		recentWriters.remove(writer, deadline);
+		return false;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return primary.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return primary.getConnection(username, password);
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return primary.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		primary.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		primary.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return primary.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return primary.getParentLogger();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		return iface.isInstance(this) ? iface.cast(this) : primary.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || primary.isWrapperFor(iface);
+	}
+
+}
@@ -0,0 +1,23 @@
+package es.uvigo.esei.tfg.dao;
+
+import java.io.IOException;
+
+/**
+ * Callback used by the streaming methods of the DAOs. It receives each entity
+ * as soon as its row is read from the {@link java.sql.ResultSet}, so the
+ * results never have to be held in memory as a whole.
+ *
+ * @param <T> the type of the entities handled.
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+	
+	/**
+	 * Handles an entity mapped from the current row.
+	 * 
+	 * @param entity the entity mapped from the current row.
+	 * @throws IOException if an error happens while writing the entity to its destination.
+	 */
+	void handle(T entity) throws IOException;
+	
+}
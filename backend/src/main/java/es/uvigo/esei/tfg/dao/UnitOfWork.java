@@ -0,0 +1,367 @@
+package es.uvigo.esei.tfg.dao;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import es.uvigo.esei.tfg.exceptions.DAOException;
+
+/**
+ * Binds a single transactional connection per data source to the current thread, so every
+ * DAO method called while the unit of work is open reuses it instead of checking out a
+ * new connection from the pool. The connection is only checked out when a DAO first needs it,
+ * and it is committed or rolled back when the unit of work that opened it is closed.
+ *
+ * Units of work are opened with {@link #begin()} in a try-with-resources block and
+ * {@link #commit()} must be called once their work is done:
+ * <pre>
+ * try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+ *     peopleDAO.create(person);
+ *     usersDAO.create(user);
+ *     unitOfWork.commit();
+ * }
+ * </pre>
+ * Opening a unit of work while another one is open in the same thread joins it: the changes
+ * are committed by the outermost unit of work, and closing an inner one without calling
+ * {@link #commit()} makes the whole unit of work roll back. The DAOs keep working as before
+ * when no unit of work is open, obtaining a connection for every call.
+ *
+ * Reads inside a unit of work opened with {@link #begin()} always use the primary database.
+ * A unit of work opened with {@link #beginReadOnly(Object)} lets the DAOs send their reads
+ * to the replica of a {@link ReadWriteDataSource} until it writes to the primary or joins
+ * a unit of work opened with {@link #begin()}.
+ *
+ * Units of work are bound to the thread that opens them, so they must be closed
+ * in that same thread.
+ */
+public final class UnitOfWork implements AutoCloseable {
+	private final static Logger LOG = Logger.getLogger(UnitOfWork.class.getName());
+
+	private final static ThreadLocal<Transaction> CURRENT = new ThreadLocal<>();
+
+	private final Transaction transaction;
+	private final boolean outermost;
+	private boolean committed = false;
+	private boolean closed = false;
+
+	private UnitOfWork(Transaction transaction, boolean outermost) {
+		this.transaction = transaction;
+		this.outermost = outermost;
+	}
+
+	/**
+	 * Opens a unit of work in the current thread, or joins the one that is already open.
+	 *
+	 * @return the unit of work, that must be closed once its work is done.
+	 */
+	public static UnitOfWork begin() {
+		Transaction transaction = CURRENT.get();
+		if (transaction != null) {
+			transaction.readOnly = false;
+			return new UnitOfWork(transaction, false);
+		}
+
+		transaction = new Transaction(false, null);
+		CURRENT.set(transaction);
+		return new UnitOfWork(transaction, true);
+	}
+
+	/**
+	 * Opens a unit of work in the current thread whose reads may go to a read replica, or joins
+	 * the one that is already open. Writes are still allowed, and once the unit of work writes to
+	 * the primary database its following reads use the primary too.
+	 *
+	 * @param writer who the writes of the unit of work are attributed to (usually the ID of the
+	 * authenticated user), to send its reads to the primary during the read-your-writes window
+	 * of the {@link ReadWriteDataSource} after it writes. May be {@code null}.
+	 * @return the unit of work, that must be closed once its work is done.
+	 */
+	public static UnitOfWork beginReadOnly(Object writer) {
+		final Transaction transaction = CURRENT.get();
+		if (transaction != null) {
+			return new UnitOfWork(transaction, false);
+		}
+
+		final Transaction readOnly = new Transaction(true, writer);
+		CURRENT.set(readOnly);
+		return new UnitOfWork(readOnly, true);
+	}
+
+	/**
+	 * Opens the unit of work of a new request with {@link #beginReadOnly(Object)}. A unit of work
+	 * left open in the current thread by a previous task that failed to close it is never joined:
+	 * its changes are rolled back and its connections are returned before opening the new one.
+	 *
+	 * @param writer who the writes of the unit of work are attributed to. May be {@code null}.
+	 * @return the unit of work, that must be closed once the request is done.
+	 */
+	public static UnitOfWork beginRequest(Object writer) {
+		final Transaction leftover = CURRENT.get();
+		if (leftover != null) {
+			LOG.warning("Rolling back a unit of work left open in the thread");
+			CURRENT.remove();
+			leftover.rollbackOnly = true;
+			try {
+				leftover.end();
+			} catch (DAOException e) {
+				LOG.log(Level.WARNING, "Error rolling back a unit of work left open in the thread", e);
+			}
+		}
+
+		return beginReadOnly(writer);
+	}
+
+	/**
+	 * Checks whether a unit of work is open in the current thread.
+	 *
+	 * @return true if a unit of work is open in the current thread, false otherwise.
+	 */
+	public static boolean isActive() {
+		return CURRENT.get() != null;
+	}
+
+	/**
+	 * Runs an action once the unit of work open in the current thread is committed. The action
+	 * is not run if the unit of work is rolled back, and it is run right away if there is no
+	 * open unit of work. Failures of the action are logged and do not fail the unit of work.
+	 *
+	 * @param action the action to run after the commit.
+	 */
+	public static void afterCommit(Runnable action) {
+		final Transaction transaction = CURRENT.get();
+		if (transaction == null) {
+			runAfterCommit(action);
+		} else {
+			transaction.afterCommit.add(action);
+		}
+	}
+
+	/**
+	 * Returns the connection of the unit of work open in the current thread for the provided
+	 * data source, checking it out from the data source the first time.
+	 *
+	 * @param dataSource the data source of the connection.
+	 * @return a connection bound to the unit of work, whose {@link Connection#close()} does nothing,
+	 * or {@code null} if there is no open unit of work.
+	 * @throws SQLException if an error happens while obtaining the connection.
+	 */
+	static Connection getConnection(DataSource dataSource) throws SQLException {
+		final Transaction transaction = CURRENT.get();
+		return transaction == null ? null : transaction.getConnection(dataSource);
+	}
+
+	/**
+	 * Checks whether the reads of the unit of work open in the current thread must use the
+	 * primary database of a data source instead of its replica.
+	 *
+	 * @param dataSource the data source whose primary is checked.
+	 * @return true if a unit of work is open and it was not opened with {@link #beginReadOnly(Object)}
+	 * or it has already written to the data source, false otherwise.
+	 */
+	static boolean readsFromPrimary(DataSource dataSource) {
+		final Transaction transaction = CURRENT.get();
+		return transaction != null && (!transaction.readOnly || transaction.written.contains(dataSource));
+	}
+
+	/**
+	 * Returns who the writes of the unit of work open in the current thread are attributed to.
+	 *
+	 * @return the writer provided to {@link #beginReadOnly(Object)}, or {@code null} if there is
+	 * no open unit of work or it has no writer.
+	 */
+	static Object currentWriter() {
+		final Transaction transaction = CURRENT.get();
+		return transaction == null ? null : transaction.writer;
+	}
+
+	/**
+	 * Marks the work of this unit of work as done, so its changes are committed when the
+	 * outermost unit of work is closed.
+	 */
+	public void commit() {
+		this.committed = true;
+	}
+
+	/**
+	 * Closes this unit of work. If {@link #commit()} was not called, the changes of the whole
+	 * unit of work will be rolled back. If this is the outermost unit of work, the changes are
+	 * committed or rolled back, the connections are returned to their data sources and the
+	 * actions registered with {@link #afterCommit(Runnable)} are run. The read-your-writes window
+	 * of the writer is opened in every {@link ReadWriteDataSource} the unit of work has written to.
+	 *
+	 * @throws DAOException if an error happens while committing the changes. The changes that
+	 * could not be committed are rolled back.
+	 */
+	@Override
+	public void close() throws DAOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+
+		if (!this.committed) {
+			this.transaction.rollbackOnly = true;
+		}
+		if (this.outermost) {
+			CURRENT.remove();
+			this.transaction.end();
+		}
+	}
+
+	private static void runAfterCommit(Runnable action) {
+		try {
+			action.run();
+		} catch (RuntimeException e) {
+			LOG.log(Level.WARNING, "Error running an action after commit", e);
+		}
+	}
+
+	/**
+	 * State shared by all the units of work joined in a thread.
+	 */
+	private static final class Transaction {
+		// Usually a single entry, but keyed by data source so DAOs using different ones can join
+		private final Map<DataSource, Connection> connections = new IdentityHashMap<>(2);
+		private final Map<DataSource, Connection> proxies = new IdentityHashMap<>(2);
+		// Data sources that have run a statement other than a SELECT
+		private final Set<DataSource> written = Collections.newSetFromMap(new IdentityHashMap<>(2));
+		private final List<Runnable> afterCommit = new ArrayList<>();
+		private final Object writer;
+		private boolean readOnly;
+		private boolean rollbackOnly = false;
+
+		Transaction(boolean readOnly, Object writer) {
+			this.readOnly = readOnly;
+			this.writer = writer;
+		}
+
+		Connection getConnection(DataSource dataSource) throws SQLException {
+			Connection proxy = this.proxies.get(dataSource);
+			if (proxy == null) {
+				final Connection connection = dataSource.getConnection();
+				try {
+					connection.setAutoCommit(false);
+				} catch (SQLException e) {
+					connection.close();
+					throw e;
+				}
+
+				proxy = bind(connection, dataSource);
+				this.connections.put(dataSource, connection);
+				this.proxies.put(dataSource, proxy);
+			}
+			return proxy;
+		}
+
+		/**
+		 * Wraps a connection so the DAOs can use it like any other connection while the
+		 * unit of work keeps the control of the transaction: closing and committing are
+		 * ignored, and rolling back makes the whole unit of work roll back. The statements
+		 * prepared are checked to know whether the unit of work writes to the data source.
+		 */
+		private Connection bind(Connection connection, DataSource dataSource) {
+			return (Connection) Proxy.newProxyInstance(
+				UnitOfWork.class.getClassLoader(),
+				new Class<?>[] { Connection.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "close":
+						case "commit":
+						case "setAutoCommit":
+							return null;
+						case "rollback":
+							if (args == null) {
+								this.rollbackOnly = true;
+								return null;
+							}
+							break;
+						case "prepareStatement":
+							if (!isSelect((String) args[0])) {
+								this.written.add(dataSource);
+							}
+							break;
+					}
+
+					try {
+						return method.invoke(connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				}
+			);
+		}
+
+		void end() throws DAOException {
+			SQLException failure = null;
+
+			for (Connection connection : this.connections.values()) {
+				try {
+					if (this.rollbackOnly || failure != null) {
+						connection.rollback();
+					} else {
+						connection.commit();
+					}
+				} catch (SQLException e) {
+					LOG.log(Level.SEVERE, "Error ending a unit of work", e);
+					if (failure == null) {
+						failure = e;
+						rollbackQuietly(connection);
+					}
+				}
+			}
+
+			if (failure == null && !this.rollbackOnly) {
+				for (DataSource dataSource : this.written) {
+					if (dataSource instanceof ReadWriteDataSource) {
+						((ReadWriteDataSource) dataSource).recordWrite(this.writer);
+					}
+				}
+				for (Runnable action : this.afterCommit) {
+					runAfterCommit(action);
+				}
+			}
+
+			for (Connection connection : this.connections.values()) {
+				try {
+					connection.setAutoCommit(true);
+				} catch (SQLException e) {
+					LOG.log(Level.WARNING, "Error restoring auto-commit", e);
+				}
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					LOG.log(Level.WARNING, "Error closing connection", e);
+				}
+			}
+
+			if (failure != null) {
+				throw new DAOException("Error committing the unit of work", failure);
+			}
+		}
+
+		private static boolean isSelect(String sql) {
+			final String trimmed = sql.trim();
+			return trimmed.regionMatches(true, 0, "SELECT", 0, 6) || trimmed.regionMatches(true, 0, "WITH", 0, 4);
+		}
+
+		private static void rollbackQuietly(Connection connection) {
+			try {
+				connection.rollback();
+			} catch (SQLException e) {
+				LOG.log(Level.WARNING, "Error rolling back the unit of work", e);
+			}
+		}
+	}
+
+}
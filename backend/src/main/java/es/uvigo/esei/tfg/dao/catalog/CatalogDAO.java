@@ -0,0 +1,69 @@
+package es.uvigo.esei.tfg.dao.catalog;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import es.uvigo.esei.tfg.dao.DAO;
+import es.uvigo.esei.tfg.dao.UnitOfWork;
+
+/**
+ * Base class for the DAOs of the catalog (ingredients, ingredient categories and measurement units).
+ * 
+ * The catalog rarely changes, so it is cached in memory. The caches register a listener
+ * that is notified every time any catalog DAO creates, updates or deletes an entity.
+ * Listeners are notified once the change is committed, still holding the connection of
+ * the writer, so they should just mark their cache as stale and reload it lazily.
+ */
+public abstract class CatalogDAO extends DAO {
+    private final static Logger LOG = Logger.getLogger(CatalogDAO.class.getName());
+
+    private final static List<Runnable> CHANGE_LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a new instance of {@link CatalogDAO} that uses the data source of the application.
+     */
+    protected CatalogDAO() {
+        super();
+    }
+
+    /**
+     * Constructs a new instance of {@link CatalogDAO} that uses the provided data source.
+     * 
+     * @param dataSource the data source used to obtain the connections.
+     */
+    protected CatalogDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    /**
+     * Registers a listener to be notified after every change in the catalog.
+     * 
+     * @param listener the listener to notify.
+     */
+    public static void addChangeListener(Runnable listener) {
+        CHANGE_LISTENERS.add(listener);
+    }
+
+    /**
+     * Notifies the registered listeners that the catalog has changed. It must be called
+     * once the change is stored. If a {@link UnitOfWork} is open, the listeners are notified
+     * after it commits, so they never see uncommitted or rolled back changes. A failing
+     * listener does not fail the change.
+     */
+    protected void fireCatalogChanged() {
+        UnitOfWork.afterCommit(() -> {
+            for (Runnable listener : CHANGE_LISTENERS) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Error notifying a catalog change", e);
+                }
+            }
+        });
+    }
+
+}
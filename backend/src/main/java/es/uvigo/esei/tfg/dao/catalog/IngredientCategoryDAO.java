@@ -9,7 +9,8 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import es.uvigo.esei.tfg.dao.DAO;
+import javax.sql.DataSource;
+
 import es.uvigo.esei.tfg.entities.catalog.IngredientCategory;
 import es.uvigo.esei.tfg.exceptions.DAOException;
 
@@ -18,9 +19,25 @@ import es.uvigo.esei.tfg.exceptions.DAOException;
  * Ingredient categories are used to classify the ingredients in the system, 
  * and can be assigned to ingredients to group them by type or other criteria.
  */
-public class IngredientCategoryDAO extends DAO {
+public class IngredientCategoryDAO extends CatalogDAO {
     private final static Logger LOG = Logger.getLogger(IngredientCategoryDAO.class.getName());
 
+    /**
+     * Constructs a new instance of {@link IngredientCategoryDAO} that uses the data source of the application.
+     */
+    public IngredientCategoryDAO() {
+        super();
+    }
+
+    /**
+     * Constructs a new instance of {@link IngredientCategoryDAO} that uses the provided data source.
+     * 
+     * @param dataSource the data source used to obtain the connections.
+     */
+    public IngredientCategoryDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
 	//============     CREATE     ============
 
     /**
@@ -51,6 +68,7 @@ public class IngredientCategoryDAO extends DAO {
                     try (final ResultSet resultKeys = statement.getGeneratedKeys()) {
                         if (resultKeys.next()) {
                             category.setId(resultKeys.getLong(1));
+                            fireCatalogChanged();
                             return category;
                         } else {
                             LOG.log(Level.SEVERE, "Error retrieving generated ID for ingredient category");
@@ -108,7 +126,7 @@ public class IngredientCategoryDAO extends DAO {
      */
     public List<IngredientCategory> list()
     throws DAOException {
-        try (final Connection conn = this.getConnection(null)) {
+        try (final Connection conn = this.getReadConnection(null)) {
             final String query = "SELECT * FROM ingredient_categories ORDER BY name ASC";
 
             try (final PreparedStatement statement = conn.prepareStatement(query)) {
@@ -152,6 +170,8 @@ public class IngredientCategoryDAO extends DAO {
                 if (statement.executeUpdate() == 0) {
                     throw new IllegalArgumentException("No ingredient category found with the provided id");
                 }
+
+                fireCatalogChanged();
             }
         } catch (SQLException e) {
             LOG.log(Level.SEVERE, "Error updating ingredient category", e);
@@ -179,6 +199,8 @@ public class IngredientCategoryDAO extends DAO {
                 if (statement.executeUpdate() == 0) {
                     throw new IllegalArgumentException("No ingredient category found with the provided id");
                 }                
+
+                fireCatalogChanged();
             }
         } catch (SQLException e) {
             LOG.log(Level.SEVERE, "Error deleting ingredient category", e);
@@ -1,17 +1,23 @@
 package es.uvigo.esei.tfg.dao.catalog;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import es.uvigo.esei.tfg.dao.DAO;
+import javax.sql.DataSource;
+
+import es.uvigo.esei.tfg.dao.ColumnIndex;
+import es.uvigo.esei.tfg.dao.RowHandler;
 import es.uvigo.esei.tfg.entities.catalog.Ingredient;
 import es.uvigo.esei.tfg.entities.catalog.IngredientCategory;
 import es.uvigo.esei.tfg.exceptions.DAOException;
@@ -19,11 +25,27 @@ import es.uvigo.esei.tfg.exceptions.DAOException;
 /**
  * DAO class for the {@link Ingredient} entities.
  */
-public class IngredientDAO extends DAO {
+public class IngredientDAO extends CatalogDAO {
     private final static Logger LOG = Logger.getLogger(IngredientDAO.class.getName());
 
     private final static String INGREDIENT_CATEGORY_PREFIX = "ingredient_category_";
 
+    /**
+     * Constructs a new instance of {@link IngredientDAO} that uses the data source of the application.
+     */
+    public IngredientDAO() {
+        super();
+    }
+
+    /**
+     * Constructs a new instance of {@link IngredientDAO} that uses the provided data source.
+     * 
+     * @param dataSource the data source used to obtain the connections.
+     */
+    public IngredientDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
 	//============     CREATE     ============
 
     /**
@@ -56,6 +78,7 @@ public class IngredientDAO extends DAO {
                     try (final ResultSet result = statement.getGeneratedKeys()) {
                         if (result.next()) {
                             ingredient.setId(result.getLong(1));
+                            fireCatalogChanged();
                             return ingredient;
                         } else {
                             LOG.log(Level.SEVERE, "Error creating an ingredient: no ID obtained");
@@ -110,6 +133,50 @@ public class IngredientDAO extends DAO {
         }
     }
 
+    /**
+     * Retrieves the ingredients with the provided identifiers using a single query.
+     * 
+     * @param ids the identifiers of the ingredients to retrieve.
+     * @return a map from identifier to {@link Ingredient} entity. Identifiers that do not
+     * correspond to any existing ingredient are not present in the map.
+     * @throws DAOException if an error happens while retrieving the ingredients.
+     */
+    public Map<Long, Ingredient> getByIds(Collection<Long> ids)
+    throws DAOException {
+        final Map<Long, Ingredient> ingredients = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return ingredients;
+        }
+
+        try (final Connection conn = this.getConnection(null)) {
+            final String query = "SELECT i.*," +
+                " ic.name AS " + INGREDIENT_CATEGORY_PREFIX + "name," +
+                " ic.description AS " + INGREDIENT_CATEGORY_PREFIX + "description" +
+                " FROM ingredients i" +
+                " LEFT JOIN ingredient_categories ic ON i.category_id = ic.id_ingredient_category" +
+                " WHERE i.id_ingredient IN (" + placeholders(ids.size()) + ")";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                int index = 1;
+                for (Long id : ids) {
+                    statement.setLong(index++, id);
+                }
+
+                try (final ResultSet result = statement.executeQuery()) {
+                    final IngredientColumns columns = new IngredientColumns(result);
+                    while (result.next()) {
+                        Ingredient ingredient = rowToEntity(result, columns);
+                        ingredients.put(ingredient.getId(), ingredient);
+                    }
+                    return ingredients;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Error getting ingredients by ids", e);
+            throw new DAOException(e);
+        }
+    }
+
     /**
      * Retrieves an ingredient by its name.
      * 
@@ -163,7 +230,7 @@ public class IngredientDAO extends DAO {
             throw new IllegalArgumentException("Search term cannot be null or blank");
         }
 
-        try (final Connection conn = this.getConnection(null)) {
+        try (final Connection conn = this.getReadConnection(null)) {
             final String query = "SELECT i.*," +
                 " ic.name AS " + INGREDIENT_CATEGORY_PREFIX + "name," +
                 " ic.description AS " + INGREDIENT_CATEGORY_PREFIX + "description" +
@@ -176,9 +243,10 @@ public class IngredientDAO extends DAO {
                 statement.setString(1, "%" + term + "%");
 
                 try (final ResultSet result = statement.executeQuery()) {
+                    final IngredientColumns columns = new IngredientColumns(result);
                     final List<Ingredient> ingredients = new LinkedList<>();
                     while (result.next()) {
-                        ingredients.add(rowToEntity(result));
+                        ingredients.add(rowToEntity(result, columns));
                     }
                     return ingredients;
                 }
@@ -197,7 +265,7 @@ public class IngredientDAO extends DAO {
      */
     public List<Ingredient> list()
     throws DAOException {
-        try (final Connection conn = this.getConnection(null)) {
+        try (final Connection conn = this.getReadConnection(null)) {
             final String query = "SELECT i.*," +
                 " ic.name AS " + INGREDIENT_CATEGORY_PREFIX + "name," +
                 " ic.description AS " + INGREDIENT_CATEGORY_PREFIX + "description" +
@@ -207,9 +275,10 @@ public class IngredientDAO extends DAO {
 
             try (final PreparedStatement statement = conn.prepareStatement(query)) {
                 try (final ResultSet result = statement.executeQuery()) {
+                    final IngredientColumns columns = new IngredientColumns(result);
                     final List<Ingredient> ingredients = new LinkedList<>();  
                     while (result.next()) {
-                        ingredients.add(rowToEntity(result));
+                        ingredients.add(rowToEntity(result, columns));
                     }
                     return ingredients;
                 }
@@ -220,6 +289,48 @@ public class IngredientDAO extends DAO {
         }
     }
 
+    /**
+     * Streams the ingredients to the provided handler, ordered by name, one ingredient at a time
+     * as the rows are read from the database. If a search term is provided, only the ingredients
+     * whose name contains it are streamed.
+     * 
+     * @param term the search term to look for in the ingredient names, or {@code null} to stream all the ingredients.
+     * @param handler the handler that will receive each ingredient.
+     * @throws DAOException if an error happens while retrieving the ingredients.
+     * @throws IOException if the handler fails while processing an ingredient.
+     */
+    public void search(String term, RowHandler<Ingredient> handler)
+    throws DAOException, IOException {
+        final boolean hasTerm = term != null && !term.trim().isEmpty();
+
+        try (final Connection conn = this.getReadConnection(null)) {
+            final String query = "SELECT i.*," +
+                " ic.name AS " + INGREDIENT_CATEGORY_PREFIX + "name," +
+                " ic.description AS " + INGREDIENT_CATEGORY_PREFIX + "description" +
+                " FROM ingredients i" +
+                " LEFT JOIN ingredient_categories ic ON i.category_id = ic.id_ingredient_category" +
+                (hasTerm ? " WHERE i.name LIKE ?" : "") +
+                " ORDER BY i.name ASC";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                enableStreaming(statement);
+                if (hasTerm) {
+                    statement.setString(1, "%" + term + "%");
+                }
+
+                try (final ResultSet result = statement.executeQuery()) {
+                    final IngredientColumns columns = new IngredientColumns(result);
+                    while (result.next()) {
+                        handler.handle(rowToEntity(result, columns));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Error streaming ingredients", e);
+            throw new DAOException(e);
+        }
+    }
+
     //============     UPDATE     ============
 
     /**
@@ -253,6 +364,8 @@ public class IngredientDAO extends DAO {
                 if (statement.executeUpdate() == 0) {
                     throw new IllegalArgumentException("No ingredient found with the provided id");
                 }
+
+                fireCatalogChanged();
             }
         } catch (SQLException e) {
             LOG.log(Level.SEVERE, "Error updating an ingredient", e);
@@ -280,6 +393,8 @@ public class IngredientDAO extends DAO {
                 if (statement.executeUpdate() == 0) {
                     throw new IllegalArgumentException("No ingredient found with the provided id");
                 }
+
+                fireCatalogChanged();
             }
         } catch (SQLException e) {
             LOG.log(Level.SEVERE, "Error deleting an ingredient", e);
@@ -298,42 +413,54 @@ public class IngredientDAO extends DAO {
      */
     private Ingredient rowToEntity(ResultSet result)
     throws SQLException {
-        Set<String> columnNames = this.getColumnNames(result);
+        return rowToEntity(result, new IngredientColumns(result));
+    }
 
-        IngredientCategory category = extractIngredientCategory(result, columnNames);
+    /**
+     * Converts a ResultSet row into an Ingredient entity, reading the columns by their already resolved positions.
+     * 
+     * @param result the ResultSet containing the data of the ingredient.
+     * @param columns the positions of the columns of the ResultSet.
+     * @return an Ingredient entity representing the data in the ResultSet row.
+     * @throws SQLException if an error happens while accessing the ResultSet data.
+     */
+    private Ingredient rowToEntity(ResultSet result, IngredientColumns columns)
+    throws SQLException {
+        IngredientCategory category = extractIngredientCategory(result, columns);
         
         return new Ingredient(
-            result.getLong("id_ingredient"),
-            result.getString("name"),
+            result.getLong(columns.id),
+            result.getString(columns.name),
             category
         );
     }
 
     /**
-     * Extracts an IngredientCategory entity from the ResultSet if the category_id column is present and not null.
+     * Extracts an IngredientCategory entity from the ResultSet if the category_id column is present.
      * 
      * @param result the ResultSet containing the data of the ingredient and its category.
-     * @param columnNames the set of column names present in the ResultSet.
-     * @return an IngredientCategory entity representing the category of the ingredient, or {@code null} if the category_id column is not present or is null.
+     * @param columns the positions of the columns of the ResultSet.
+     * @return an IngredientCategory entity representing the category of the ingredient, or {@code null} if the category_id column is not present.
      * @throws SQLException if an error happens while accessing the ResultSet data.
      */
-    private IngredientCategory extractIngredientCategory(ResultSet result, Set<String> columnNames)
+    private IngredientCategory extractIngredientCategory(ResultSet result, IngredientColumns columns)
     throws SQLException {
-        if (!columnNames.contains("category_id")) {
+        if (columns.categoryId == ColumnIndex.ABSENT) {
             return null; // If the column is not present, we cannot extract the category
         } 
 
         IngredientCategory category = new IngredientCategory();
-        if (columnNames.contains("category_id") && !result.wasNull()) {
-            category.setId(result.getLong("category_id"));
+        final long categoryId = result.getLong(columns.categoryId);
+        if (!result.wasNull()) {
+            category.setId(categoryId);
         }
 
-        if (columnNames.contains(INGREDIENT_CATEGORY_PREFIX + "name")) {
-            category.setName(result.getString(INGREDIENT_CATEGORY_PREFIX + "name"));
+        if (columns.categoryName != ColumnIndex.ABSENT) {
+            category.setName(result.getString(columns.categoryName));
         }
 
-        if (columnNames.contains(INGREDIENT_CATEGORY_PREFIX + "description")) {
-            category.setDescription(result.getString(INGREDIENT_CATEGORY_PREFIX + "description"));
+        if (columns.categoryDescription != ColumnIndex.ABSENT) {
+            category.setDescription(result.getString(columns.categoryDescription));
         }
 
         return category;
@@ -353,5 +480,27 @@ public class IngredientDAO extends DAO {
             throw new IllegalArgumentException("Ingredient name cannot be null or blank");
         }
     }
-    
+
+    /**
+     * Positions of the ingredient columns in a ResultSet. They are resolved once per ResultSet
+     * and reused for all its rows, instead of looking the columns up by label on every row.
+     */
+    private static final class IngredientColumns {
+        private final int id;
+        private final int name;
+        private final int categoryId;
+        private final int categoryName;
+        private final int categoryDescription;
+
+        IngredientColumns(ResultSet result) throws SQLException {
+            final ColumnIndex columns = new ColumnIndex(result);
+
+            this.id = columns.require("id_ingredient");
+            this.name = columns.require("name");
+            this.categoryId = columns.of("category_id");
+            this.categoryName = columns.of(INGREDIENT_CATEGORY_PREFIX + "name");
+            this.categoryDescription = columns.of(INGREDIENT_CATEGORY_PREFIX + "description");
+        }
+    }
+
 }
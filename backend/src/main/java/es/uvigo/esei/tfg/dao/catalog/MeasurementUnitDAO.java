@@ -4,12 +4,16 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import es.uvigo.esei.tfg.dao.DAO;
+import javax.sql.DataSource;
+
 import es.uvigo.esei.tfg.entities.catalog.MeasurementUnit;
 import es.uvigo.esei.tfg.entities.catalog.MeasurementUnit.UnitType;
 import es.uvigo.esei.tfg.exceptions.DAOException;
@@ -19,9 +23,25 @@ import es.uvigo.esei.tfg.exceptions.DAOException;
  * Measurement units are used to specify the quantity of an ingredient in a recipe, 
  * and they can be of different types (e.g., weight, volume, countable).
  */
-public class MeasurementUnitDAO extends DAO {
+public class MeasurementUnitDAO extends CatalogDAO {
     private final static Logger LOG = Logger.getLogger(MeasurementUnitDAO.class.getName());
 
+    /**
+     * Constructs a new instance of {@link MeasurementUnitDAO} that uses the data source of the application.
+     */
+    public MeasurementUnitDAO() {
+        super();
+    }
+
+    /**
+     * Constructs a new instance of {@link MeasurementUnitDAO} that uses the provided data source.
+     * 
+     * @param dataSource the data source used to obtain the connections.
+     */
+    public MeasurementUnitDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
     //============     CREATE     ============
 
     /**
@@ -52,6 +72,7 @@ public class MeasurementUnitDAO extends DAO {
                     try (final ResultSet generatedKeys = statement.getGeneratedKeys()) {
                         if (generatedKeys.next()) {
                             unit.setId(generatedKeys.getInt(1));
+                            fireCatalogChanged();
                             return unit;
                         } else {
                             throw new DAOException("Failed to retrieve generated id for the new measurement unit");
@@ -99,6 +120,45 @@ public class MeasurementUnitDAO extends DAO {
         }
     }
 
+    /**
+     * Retrieves the measurement units with the provided identifiers using a single query.
+     * 
+     * @param ids the identifiers of the units to retrieve.
+     * @return a map from identifier to {@link MeasurementUnit} entity. Identifiers that do not
+     * correspond to any existing unit are not present in the map.
+     * @throws DAOException if an error happens while retrieving the units.
+     */
+    public Map<Long, MeasurementUnit> getByIds(Collection<Long> ids)
+    throws DAOException {
+        final Map<Long, MeasurementUnit> units = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return units;
+        }
+
+        try (final Connection conn = this.getConnection(null)) {
+            final String query = "SELECT * FROM measurement_units" +
+                " WHERE id_measurement_unit IN (" + placeholders(ids.size()) + ")";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                int index = 1;
+                for (Long id : ids) {
+                    statement.setLong(index++, id);
+                }
+
+                try (final ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        MeasurementUnit unit = rowToEntity(result);
+                        units.put(unit.getId(), unit);
+                    }
+                    return units;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Error getting measurement units by ids", e);
+            throw new DAOException(e);
+        }
+    }
+
     public List<MeasurementUnit> getByType(UnitType type) 
     throws DAOException, IllegalArgumentException {
         if (type == null) {
@@ -135,7 +195,7 @@ public class MeasurementUnitDAO extends DAO {
      */
     public List<MeasurementUnit> list()
     throws DAOException, IllegalArgumentException {
-        try (final Connection conn = this.getConnection(null)) {
+        try (final Connection conn = this.getReadConnection(null)) {
             final String query = "SELECT * FROM measurement_units ORDER BY type ASC, name ASC";
 
             try (final PreparedStatement statement = conn.prepareStatement(query)) {
@@ -182,6 +242,8 @@ public class MeasurementUnitDAO extends DAO {
                 if (statement.executeUpdate() == 0) {
                     throw new IllegalArgumentException("No measurement unit found with the provided id");
                 }
+
+                fireCatalogChanged();
             }
 
         } catch (SQLException e) {
@@ -210,6 +272,8 @@ public class MeasurementUnitDAO extends DAO {
                 if (statement.executeUpdate() == 0) {
                     throw new IllegalArgumentException("No measurement unit found with the provided id");
                 }
+
+                fireCatalogChanged();
             }
         } catch (SQLException e) {
             LOG.log(Level.SEVERE, "Error deleting a measurement unit", e);
@@ -0,0 +1,82 @@
+package es.uvigo.esei.tfg.dao.recipe;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import es.uvigo.esei.tfg.entities.recipe.Recipe;
+
+/**
+ * Position of a recipe in a listing ordered by {@code (created_at, id_recipe)} descending.
+ * Used for keyset pagination: the next page contains the recipes strictly after this position.
+ * 
+ * The cursor is exchanged with clients as an opaque URL-safe string (see {@link #encode()} and {@link #decode(String)}).
+ */
+public final class RecipeCursor {
+    private final static String SEPARATOR = "|";
+
+    private final LocalDateTime createdAt;
+    private final long recipeId;
+
+    public RecipeCursor(LocalDateTime createdAt, long recipeId) {
+        this.createdAt = requireNonNull(createdAt, "Creation date can't be null");
+        this.recipeId = recipeId;
+    }
+
+    /**
+     * Builds the cursor pointing at the given recipe.
+     * 
+     * @param recipe the last recipe of a page.
+     * @return a cursor positioned at the recipe.
+     */
+    public static RecipeCursor of(Recipe recipe) {
+        return new RecipeCursor(recipe.getCreatedAt(), recipe.getId());
+    }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public long getRecipeId() { return recipeId; }
+
+    /**
+     * Encodes this cursor as an opaque, URL-safe string.
+     * 
+     * @return the encoded cursor.
+     */
+    public String encode() {
+        final String raw = createdAt.toString() + SEPARATOR + recipeId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously generated with {@link #encode()}.
+     * 
+     * @param encoded the encoded cursor.
+     * @return the decoded cursor.
+     * @throws IllegalArgumentException if the value is not a valid cursor.
+     */
+    public static RecipeCursor decode(String encoded)
+    throws IllegalArgumentException {
+        if (encoded == null || encoded.trim().isEmpty()) {
+            throw new IllegalArgumentException("Cursor can't be null or blank");
+        }
+
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(encoded.trim()), StandardCharsets.UTF_8);
+            final int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+
+            return new RecipeCursor(
+                LocalDateTime.parse(raw.substring(0, separatorIndex)),
+                Long.parseLong(raw.substring(separatorIndex + 1))
+            );
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package es.uvigo.esei.tfg.dao.recipe;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -9,10 +10,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.Set;
 
+import javax.sql.DataSource;
 
+
+import es.uvigo.esei.tfg.dao.ColumnIndex;
 import es.uvigo.esei.tfg.dao.DAO;
+import es.uvigo.esei.tfg.dao.RowHandler;
 import es.uvigo.esei.tfg.entities.recipe.Recipe;
 import es.uvigo.esei.tfg.entities.recipe.RecipeTranslation;
 import es.uvigo.esei.tfg.entities.user.User;
@@ -27,6 +31,28 @@ public class RecipeDAO extends DAO {
     private final static String USER_PREFIX = "user_";
     private final static String RECIPE_TRANSLATION_PREFIX = "recipe_translation_";
 
+    // Keyset pagination over (created_at, id_recipe), newest first
+    private final static String KEYSET_CONDITION = 
+        " AND (r.created_at < ? OR (r.created_at = ? AND r.id_recipe < ?))";
+    private final static String KEYSET_ORDER_AND_LIMIT = 
+        " ORDER BY r.created_at DESC, r.id_recipe DESC LIMIT ?";
+
+    /**
+     * Constructs a new instance of {@link RecipeDAO} that uses the data source of the application.
+     */
+    public RecipeDAO() {
+        super();
+    }
+
+    /**
+     * Constructs a new instance of {@link RecipeDAO} that uses the provided data source.
+     * 
+     * @param dataSource the data source used to obtain the connections.
+     */
+    public RecipeDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
     //============     CREATE     ============
     
     public Recipe create(Recipe recipe)
@@ -133,40 +159,164 @@ public class RecipeDAO extends DAO {
         }
     }
 
+    public Recipe getWithTranslations(long id)
+    throws DAOException {
+        return getWithTranslations(id, null);
+    }
+
     /**
-     * Retrieves all public recipes, ordered by creation date (newest first).
+     * Retrieves a recipe by its ID together with its author's username and all of its
+     * translations, using a single query. The recipe will contain one {@link RecipeTranslation}
+     * per available locale.
+     *
+     * @param id The ID of the recipe to retrieve.
+     * @param externalConnection an optional external connection to use for the query.
+     * @return The recipe with the given ID and its translations, or null if no such recipe exists.
+     * @throws DAOException if a database error occurs during retrieval.
+     */
+    public Recipe getWithTranslations(long id, Connection externalConnection)
+    throws DAOException {
+        boolean isExternalConnection = isExternalConnection(externalConnection);
+        Connection conn = null;
+
+        try {
+            conn = this.getReadConnection(externalConnection);
+
+            final String query = "SELECT r.*," +
+                " u.username AS " + USER_PREFIX + "username," +
+                " t.locale AS " + RECIPE_TRANSLATION_PREFIX + "locale," +
+                " t.title AS " + RECIPE_TRANSLATION_PREFIX + "title," +
+                " t.description AS " + RECIPE_TRANSLATION_PREFIX + "description" +
+                " FROM recipes r" +
+                " JOIN users u ON r.user_id = u.id_user" +
+                " LEFT JOIN recipe_translations t ON r.id_recipe = t.recipe_id" +
+                " WHERE r.id_recipe = ?" +
+                " ORDER BY t.locale ASC";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                statement.setLong(1, id);
+
+                try (final ResultSet result = statement.executeQuery()) {
+                    final RecipeColumns columns = new RecipeColumns(result);
+
+                    // One row per translation: the first one carries the recipe data
+                    Recipe recipe = null;
+                    while (result.next()) {
+                        if (recipe == null) {
+                            recipe = rowToEntity(result, columns);
+                        } else {
+                            RecipeTranslation translation = extractTranslation(result, columns);
+                            if (translation != null) {
+                                recipe.addTranslation(translation);
+                            }
+                        }
+                    }
+                    return recipe;
+                }
+            }
+        } catch (SQLException ex) {
+            LOG.log(Level.SEVERE, "Error retrieving recipe with translations: " + ex.getMessage(), ex);
+            throw new DAOException("Error retrieving recipe with translations", ex);
+        } finally {
+            closeConnection(conn, isExternalConnection);
+        }
+    }
+
+    /**
+     * Retrieves the public recipes with the given IDs, together with their author's username.
+     * Private or missing recipes are left out, and the order of the result is not specified.
      * 
-     * @return A list of all public recipes. The list will be empty if no public recipes exist.
+     * @param ids the IDs of the recipes to retrieve.
+     * @return A list with the public recipes among the given IDs.
      * @throws DAOException if a database error occurs during retrieval.
      */
-    public List<Recipe> getPublic()
+    public List<Recipe> getPublicByIds(List<Long> ids)
     throws DAOException {
-        try (final Connection conn = this.getConnection(null)) {
+        if (ids == null || ids.isEmpty()) {
+            return new LinkedList<>();
+        }
+
+        try (final Connection conn = this.getReadConnection(null)) {
             final String query = "SELECT r.*," +
                 " u.username AS " + USER_PREFIX + "username" +
                 " FROM recipes r" +
                 " JOIN users u ON r.user_id = u.id_user" +
-                " WHERE is_public = TRUE" +
-                " ORDER BY created_at DESC";
+                " WHERE r.is_public = TRUE AND r.id_recipe IN (" + placeholders(ids.size()) + ")";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                int index = 1;
+                for (Long id : ids) {
+                    statement.setLong(index++, id);
+                }
 
-            try (final PreparedStatement statement = conn.prepareStatement(query)) {                
                 try (final ResultSet result = statement.executeQuery()) {
+                    final RecipeColumns columns = new RecipeColumns(result);
                     List<Recipe> recipes = new LinkedList<>();
                     while (result.next()) {
-                        recipes.add(rowToEntity(result));
+                        recipes.add(rowToEntity(result, columns));
                     }
                     return recipes;
                 }
             }
         } catch (SQLException e) {
-            LOG.log(Level.SEVERE, "Error retrieving public recipes: ",e);
+            LOG.log(Level.SEVERE, "Error retrieving public recipes by IDs: ", e);
             throw new DAOException(e);
         }
     }
 
-    public List<Recipe> getPublicByLocale(String locale) 
+    /**
+     * Retrieves a page of public recipes, ordered by creation date (newest first).
+     * 
+     * @param cursor the position of the last recipe of the previous page, or null to get the first page.
+     * @param limit the maximum number of recipes to retrieve.
+     * @return A list of public recipes after the cursor. The list will be empty if no more public recipes exist.
+     * @throws DAOException if a database error occurs during retrieval.
+     */
+    public List<Recipe> getPublic(RecipeCursor cursor, int limit)
     throws DAOException {
-        try (final Connection conn = this.getConnection(null)) {
+        try (final Connection conn = this.getReadConnection(null)) {
+            final String query = "SELECT r.*," +
+                " u.username AS " + USER_PREFIX + "username" +
+                " FROM recipes r" +
+                " JOIN users u ON r.user_id = u.id_user" +
+                " WHERE r.is_public = TRUE" +
+                (cursor != null ? KEYSET_CONDITION : "") +
+                KEYSET_ORDER_AND_LIMIT;
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                setKeysetParameters(statement, 1, cursor, limit);
+
+                try (final ResultSet result = statement.executeQuery()) {
+                    final RecipeColumns columns = new RecipeColumns(result);
+                    List<Recipe> recipes = new LinkedList<>();
+                    while (result.next()) {
+                        recipes.add(rowToEntity(result, columns));
+                    }
+                    return recipes;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Error retrieving public recipes: ",e);
+            throw new DAOException(e);
+        }
+    }
+
+    /**
+     * Retrieves a page of public recipes that have a translation for the given locale, ordered by
+     * creation date (newest first). Each recipe contains the translation for the locale.
+     * 
+     * The recipes are streamed to the handler as the rows are read from the database.
+     * 
+     * @param locale the locale code (e.g. "en", "es") of the translations.
+     * @param cursor the position of the last recipe of the previous page, or null to get the first page.
+     * @param limit the maximum number of recipes to retrieve.
+     * @param handler the handler that will receive each recipe.
+     * @throws DAOException if a database error occurs during retrieval.
+     * @throws IOException if the handler fails while processing a recipe.
+     */
+    public void getPublicByLocale(String locale, RecipeCursor cursor, int limit, RowHandler<Recipe> handler) 
+    throws DAOException, IOException {
+        try (final Connection conn = this.getReadConnection(null)) {
             final String query = "SELECT r.*," +
                 " u.username AS " + USER_PREFIX + "username," +
                 " t.locale AS " + RECIPE_TRANSLATION_PREFIX + "locale," +
@@ -175,18 +325,20 @@ public class RecipeDAO extends DAO {
                 " FROM recipes r" +
                 " JOIN users u ON r.user_id = u.id_user" +
                 " JOIN recipe_translations t ON r.id_recipe = t.recipe_id" +
-                " WHERE is_public = TRUE AND t.locale = ?" +
-                " ORDER BY created_at DESC";
+                " WHERE r.is_public = TRUE AND t.locale = ?" +
+                (cursor != null ? KEYSET_CONDITION : "") +
+                KEYSET_ORDER_AND_LIMIT;
 
             try (final PreparedStatement statement = conn.prepareStatement(query)) {                
+                enableStreaming(statement);
                 statement.setString(1, locale);
+                setKeysetParameters(statement, 2, cursor, limit);
 
                 try (final ResultSet result = statement.executeQuery()) {
-                    List<Recipe> recipes = new LinkedList<>();
+                    final RecipeColumns columns = new RecipeColumns(result);
                     while (result.next()) {
-                        recipes.add(rowToEntity(result));
+                        handler.handle(rowToEntity(result, columns));
                     }
-                    return recipes;
                 }
             }
         } catch (SQLException e) {
@@ -196,30 +348,34 @@ public class RecipeDAO extends DAO {
     }
 
     /**
-     * Retrieves all recipes created by a specific user, ordered by creation date (newest first).
+     * Retrieves a page of the recipes created by a specific user, ordered by creation date (newest first).
      * 
      * @param userId The ID of the user whose recipes to retrieve.
-     * @return A list of recipes created by the specified user. The list will be empty if the user has not created any recipes.
-     * @throws IllegalArgumentException if the user ID is not positive.
+     * @param cursor the position of the last recipe of the previous page, or null to get the first page.
+     * @param limit the maximum number of recipes to retrieve.
+     * @return A list of recipes created by the specified user after the cursor. The list will be empty if there are no more recipes.
      * @throws DAOException if a database error occurs during retrieval.
      */
-    public List<Recipe> getByUserId(long userId) 
+    public List<Recipe> getByUserId(long userId, RecipeCursor cursor, int limit) 
     throws DAOException, IllegalArgumentException {
-        try (final Connection conn = this.getConnection(null)) {
+        try (final Connection conn = this.getReadConnection(null)) {
             final String query = "SELECT r.*," +
                 " u.username AS " + USER_PREFIX + "username" +
                 " FROM recipes r" +
                 " JOIN users u ON r.user_id = u.id_user" +
-                " WHERE user_id=?" +
-                " ORDER BY created_at DESC";
+                " WHERE r.user_id=?" +
+                (cursor != null ? KEYSET_CONDITION : "") +
+                KEYSET_ORDER_AND_LIMIT;
 
             try (final PreparedStatement statement = conn.prepareStatement(query)) {
                 statement.setLong(1, userId);
+                setKeysetParameters(statement, 2, cursor, limit);
 
                 try (final ResultSet result = statement.executeQuery()) {
+                    final RecipeColumns columns = new RecipeColumns(result);
                     List<Recipe> recipes = new LinkedList<>();
                     while (result.next()) {
-                        recipes.add(rowToEntity(result));
+                        recipes.add(rowToEntity(result, columns));
                     }
                     return recipes;
                 }
@@ -404,43 +560,54 @@ public class RecipeDAO extends DAO {
      * @throws SQLException if an error occurs while accessing the ResultSet.
      */
     private Recipe rowToEntity(ResultSet result) throws SQLException {
-        Set<String> columnNames = this.getColumnNames(result);
+        return rowToEntity(result, new RecipeColumns(result));
+    }
 
+    /**
+     * Converts a ResultSet row into a Recipe entity, reading the columns by their already resolved
+     * positions. This method assumes that the ResultSet is already positioned at the correct row.
+     * 
+     * @param result The ResultSet containing the recipe data.
+     * @param columns The positions of the columns of the ResultSet.
+     * @return A Recipe entity populated with the data from the ResultSet.
+     * @throws SQLException if an error occurs while accessing the ResultSet.
+     */
+    private Recipe rowToEntity(ResultSet result, RecipeColumns columns) throws SQLException {
         Recipe recipe = new Recipe();
-        recipe.setId(result.getLong("id_recipe"));
-        recipe.setPreparationTime(result.getInt("preparation_time"));
-        recipe.setCookingTime(result.getInt("cooking_time"));
-        recipe.setServings(result.getInt("servings"));
+        recipe.setId(result.getLong(columns.id));
+        recipe.setPreparationTime(result.getInt(columns.preparationTime));
+        recipe.setCookingTime(result.getInt(columns.cookingTime));
+        recipe.setServings(result.getInt(columns.servings));
         
-        String difficultyStr = result.getString("difficulty");
+        String difficultyStr = result.getString(columns.difficulty);
         if (difficultyStr != null) {
             recipe.setDifficulty(Recipe.Difficulty.valueOf(difficultyStr));
         }
         
-        recipe.setPublic(result.getBoolean("is_public"));
-        recipe.setLunchbox(result.getBoolean("is_lunchbox"));
-        recipe.setImagePath(result.getString("image_path"));
+        recipe.setPublic(result.getBoolean(columns.isPublic));
+        recipe.setLunchbox(result.getBoolean(columns.isLunchbox));
+        recipe.setImagePath(result.getString(columns.imagePath));
 
-        recipe.setUser(extractUser(result, columnNames));
+        recipe.setUser(extractUser(result, columns));
 
-        RecipeTranslation translation = extractTranslation(result, columnNames);
+        RecipeTranslation translation = extractTranslation(result, columns);
         if (translation != null) {
             recipe.getTranslations().add(translation);
         }
 
-        if (columnNames.contains("root_recipe_id")) {
-            recipe.setRootRecipeId(result.getLong("root_recipe_id"));
+        if (columns.rootRecipeId != ColumnIndex.ABSENT) {
+            recipe.setRootRecipeId(result.getLong(columns.rootRecipeId));
         }
 
-        if (columnNames.contains("created_at")) {
-            Timestamp createdAt = result.getTimestamp("created_at");
+        if (columns.createdAt != ColumnIndex.ABSENT) {
+            Timestamp createdAt = result.getTimestamp(columns.createdAt);
             if (createdAt != null) {
                 recipe.setCreatedAt(createdAt.toLocalDateTime());
             }
         }
 
-        if (columnNames.contains("updated_at")) {
-            Timestamp updatedAt = result.getTimestamp("updated_at");
+        if (columns.updatedAt != ColumnIndex.ABSENT) {
+            Timestamp updatedAt = result.getTimestamp(columns.updatedAt);
             if (updatedAt != null) {
                 recipe.setUpdatedAt(updatedAt.toLocalDateTime());
             }
@@ -448,14 +615,35 @@ public class RecipeDAO extends DAO {
         return recipe;
     }
 
-    private User extractUser(ResultSet result, Set<String> columnNames)
+    /**
+     * Sets the keyset pagination parameters of a list query, starting at the given parameter index.
+     * The cursor parameters are only set if a cursor is provided.
+     * 
+     * @param statement the statement to configure.
+     * @param index the index of the first keyset parameter.
+     * @param cursor the position of the last recipe of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to retrieve.
+     * @throws SQLException if an error occurs while setting the parameters.
+     */
+    private void setKeysetParameters(PreparedStatement statement, int index, RecipeCursor cursor, int limit)
+    throws SQLException {
+        if (cursor != null) {
+            Timestamp createdAt = Timestamp.valueOf(cursor.getCreatedAt());
+            statement.setTimestamp(index++, createdAt);
+            statement.setTimestamp(index++, createdAt);
+            statement.setLong(index++, cursor.getRecipeId());
+        }
+        statement.setInt(index, limit);
+    }
+
+    private User extractUser(ResultSet result, RecipeColumns columns)
     throws SQLException {
 
         // 'user_id' column is mandatory
-        User user = new User(result.getLong("user_id"));
+        User user = new User(result.getLong(columns.userId));
 
-        if (columnNames.contains(USER_PREFIX + "username")) {
-            user.setUsername(result.getString(USER_PREFIX + "username"));
+        if (columns.username != ColumnIndex.ABSENT) {
+            user.setUsername(result.getString(columns.username));
         }
 
         // Additional user fields can be extracted here if needed
@@ -463,22 +651,23 @@ public class RecipeDAO extends DAO {
         return user;
     }
 
-    private RecipeTranslation extractTranslation(ResultSet result, Set<String> columnNames) 
+    private RecipeTranslation extractTranslation(ResultSet result, RecipeColumns columns) 
     throws SQLException {
-        if (!columnNames.contains("locale")) {
-            return null; // No translation data in this result set
+        if (columns.translationLocale == ColumnIndex.ABSENT
+            || result.getString(columns.translationLocale) == null) {
+            return null; // No translation data in this result set (or no matching row in a LEFT JOIN)
         }
 
         RecipeTranslation translation = new RecipeTranslation();
-        translation.setRecipeId(result.getLong("id_recipe"));
-        translation.setLocale(result.getString(RECIPE_TRANSLATION_PREFIX + "locale"));
+        translation.setRecipeId(result.getLong(columns.id));
+        translation.setLocale(result.getString(columns.translationLocale));
 
-        if (columnNames.contains(RECIPE_TRANSLATION_PREFIX + "title")) {
-            translation.setTitle(result.getString(RECIPE_TRANSLATION_PREFIX + "title"));
+        if (columns.translationTitle != ColumnIndex.ABSENT) {
+            translation.setTitle(result.getString(columns.translationTitle));
         }
 
-        if (columnNames.contains(RECIPE_TRANSLATION_PREFIX + "description")) {
-            translation.setDescription(result.getString(RECIPE_TRANSLATION_PREFIX + "description"));
+        if (columns.translationDescription != ColumnIndex.ABSENT) {
+            translation.setDescription(result.getString(columns.translationDescription));
         }
         return translation;
     }
@@ -504,4 +693,48 @@ public class RecipeDAO extends DAO {
         }
     }
 
+    /**
+     * Positions of the recipe columns in a ResultSet. They are resolved once per ResultSet
+     * and reused for all its rows, instead of looking the columns up by label on every row.
+     */
+    private static final class RecipeColumns {
+        private final int id;
+        private final int preparationTime;
+        private final int cookingTime;
+        private final int servings;
+        private final int difficulty;
+        private final int isPublic;
+        private final int isLunchbox;
+        private final int imagePath;
+        private final int userId;
+        private final int rootRecipeId;
+        private final int createdAt;
+        private final int updatedAt;
+        private final int username;
+        private final int translationLocale;
+        private final int translationTitle;
+        private final int translationDescription;
+
+        RecipeColumns(ResultSet result) throws SQLException {
+            final ColumnIndex columns = new ColumnIndex(result);
+
+            this.id = columns.require("id_recipe");
+            this.preparationTime = columns.require("preparation_time");
+            this.cookingTime = columns.require("cooking_time");
+            this.servings = columns.require("servings");
+            this.difficulty = columns.require("difficulty");
+            this.isPublic = columns.require("is_public");
+            this.isLunchbox = columns.require("is_lunchbox");
+            this.imagePath = columns.require("image_path");
+            this.userId = columns.require("user_id");
+            this.rootRecipeId = columns.of("root_recipe_id");
+            this.createdAt = columns.of("created_at");
+            this.updatedAt = columns.of("updated_at");
+            this.username = columns.of(USER_PREFIX + "username");
+            this.translationLocale = columns.of(RECIPE_TRANSLATION_PREFIX + "locale");
+            this.translationTitle = columns.of(RECIPE_TRANSLATION_PREFIX + "title");
+            this.translationDescription = columns.of(RECIPE_TRANSLATION_PREFIX + "description");
+        }
+    }
+
 }
@@ -1,17 +1,23 @@
 package es.uvigo.esei.tfg.dao.recipe;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.sql.DataSource;
+
+import es.uvigo.esei.tfg.dao.ColumnIndex;
 import es.uvigo.esei.tfg.dao.DAO;
+import es.uvigo.esei.tfg.dao.RowHandler;
 import es.uvigo.esei.tfg.entities.catalog.Ingredient;
 import es.uvigo.esei.tfg.entities.catalog.IngredientCategory;
 import es.uvigo.esei.tfg.entities.catalog.MeasurementUnit;
@@ -30,6 +36,22 @@ public class RecipeIngredientDAO extends DAO{
     private final static String MEASUREMENT_UNIT_PREFIX = "measurement_unit_";
     private final static String INGREDIENT_CATEGORY_PREFIX = "ingredient_category_";
 
+    /**
+     * Constructs a new instance of {@link RecipeIngredientDAO} that uses the data source of the application.
+     */
+    public RecipeIngredientDAO() {
+        super();
+    }
+
+    /**
+     * Constructs a new instance of {@link RecipeIngredientDAO} that uses the provided data source.
+     * 
+     * @param dataSource the data source used to obtain the connections.
+     */
+    public RecipeIngredientDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
     //============     CREATE     ============
 
     public RecipeIngredient create(RecipeIngredient recipeIngredient)
@@ -104,9 +126,7 @@ public class RecipeIngredientDAO extends DAO{
             throw new IllegalArgumentException("List of recipe ingredients cannot be null or empty");
         }
 
-        for (RecipeIngredient ingredient : ingredients) {
-            create(ingredient);
-        }
+        insertBatch(ingredients, null);
     }
 
     public List<RecipeIngredient> createAllForRecipe(List<RecipeIngredient> ingredients, long recipeId)
@@ -114,18 +134,74 @@ public class RecipeIngredientDAO extends DAO{
         return createAllForRecipe(ingredients, recipeId, null);
     }
 
+    /**
+     * Persists a list of {@link RecipeIngredient} associated with a recipe in a single batch.
+     * 
+     * @param ingredients the list of recipe ingredients to be created.
+     * @param recipeId the ID of the recipe the ingredients belong to.
+     * @param externalConnection an optional external connection to use for the operation.
+     * @return the created recipe ingredients with their generated IDs.
+     * @throws DAOException if there is an error during the database operation.
+     * @throws IllegalArgumentException if the provided list is null or empty, or if any of the recipe ingredients has invalid data.
+     */
     public List<RecipeIngredient> createAllForRecipe(List<RecipeIngredient> ingredients, long recipeId, Connection externalConnection) 
     throws DAOException, IllegalArgumentException {
         if (ingredients == null || ingredients.isEmpty()) {
             throw new IllegalArgumentException("List of recipe ingredients cannot be null or empty");
         }
 
-        List<RecipeIngredient> createdIngredients = new LinkedList<>();
         for (RecipeIngredient ingredient : ingredients) {
             ingredient.setRecipe(new Recipe(recipeId));
-            createdIngredients.add(create(ingredient, externalConnection));
         }
-        return createdIngredients;
+        return insertBatch(ingredients, externalConnection);
+    }
+
+    /**
+     * Inserts all the ingredients with one batched statement and sets their generated IDs.
+     */
+    private List<RecipeIngredient> insertBatch(List<RecipeIngredient> ingredients, Connection externalConnection)
+    throws DAOException, IllegalArgumentException {
+        for (RecipeIngredient ingredient : ingredients) {
+            ensureRecipeIngredientDataIntegrity(ingredient);
+        }
+
+        boolean isExternalConnection = isExternalConnection(externalConnection);
+        Connection conn = null;
+
+        try {
+            conn = this.getConnection(externalConnection);
+
+            final String query = "INSERT INTO recipe_ingredients" +
+                " (quantity, notes, recipe_id, ingredient_id, measurement_unit_id)" +
+                " VALUES (?, ?, ?, ?, ?)";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                for (RecipeIngredient recipeIngredient : ingredients) {
+                    statement.setBigDecimal(1, recipeIngredient.getQuantity());
+                    statement.setString(2, recipeIngredient.getNotes());
+                    statement.setLong(3, recipeIngredient.getRecipe().getId());
+                    statement.setLong(4, recipeIngredient.getIngredient().getId());
+                    statement.setLong(5, recipeIngredient.getUnit().getId());
+                    statement.addBatch();
+                }
+
+                long[] ids = executeBatchWithKeys(statement, ingredients.size());
+                List<RecipeIngredient> createdIngredients = new LinkedList<>();
+                int index = 0;
+                for (RecipeIngredient recipeIngredient : ingredients) {
+                    recipeIngredient.setId(ids[index++]);
+                    createdIngredients.add(recipeIngredient);
+                }
+                return createdIngredients;
+            }
+
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Error creating recipe ingredients", ex);
+            throw new DAOException("Error creating recipe ingredients", ex);
+        
+        } finally {
+            closeConnection(conn, isExternalConnection);
+        }
     }
 
     //============     READ     ============
@@ -160,17 +236,28 @@ public class RecipeIngredientDAO extends DAO{
         }
     }
 
+    public List<RecipeIngredient> getByRecipeId(long recipeId)
+    throws DAOException, IllegalArgumentException {
+        return getByRecipeId(recipeId, null);
+    }
+
     /**
      * Retrieves all {@link RecipeIngredient} associated with a given recipe ID.
      * 
      * @param recipeId the ID of the recipe whose ingredients to retrieve.
+     * @param externalConnection an optional external connection to use for the query.
      * @return a list of recipe ingredients associated with the given recipe ID.
      * @throws DAOException if there is an error during the database operation.
      * @throws IllegalArgumentException if no ingredients are found for the given recipe ID.
      */
-    public List<RecipeIngredient> getByRecipeId(long recipeId)
+    public List<RecipeIngredient> getByRecipeId(long recipeId, Connection externalConnection)
     throws DAOException, IllegalArgumentException {
-        try (final Connection conn = this.getConnection(null)) {
+        boolean isExternalConnection = isExternalConnection(externalConnection);
+        Connection conn = null;
+
+        try {
+            conn = this.getReadConnection(externalConnection);
+
             final String query = "SELECT ri.*," +
                 " i.name AS " + INGREDIENT_PREFIX + "name, i.category_id," +
                 " ic.name AS " + INGREDIENT_CATEGORY_PREFIX + "name," +
@@ -188,9 +275,10 @@ public class RecipeIngredientDAO extends DAO{
                 statement.setLong(1, recipeId);
             
                 try (final ResultSet result = statement.executeQuery()) {
+                    final RecipeIngredientColumns columns = new RecipeIngredientColumns(result);
                     List<RecipeIngredient> ingredients = new LinkedList<>();
                     while (result.next()) {
-                        ingredients.add(rowToEntity(result));
+                        ingredients.add(rowToEntity(result, columns));
                     }
                     return ingredients;
                 }
@@ -198,6 +286,73 @@ public class RecipeIngredientDAO extends DAO{
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Error retrieving recipe ingredients for recipe ID: " + recipeId, ex);
             throw new DAOException("Error retrieving recipe ingredients for recipe ID: " + recipeId, ex);
+        } finally {
+            closeConnection(conn, isExternalConnection);
+        }
+    }
+
+    /**
+     * Retrieves which ingredients are used by every public recipe. Only the IDs of the 
+     * {@link Recipe} and the {@link Ingredient} of each {@link RecipeIngredient} are populated.
+     * The rows are streamed to the handler as they are read from the database.
+     * 
+     * @param handler the handler that will receive each recipe ingredient.
+     * @throws DAOException if there is an error during the database operation.
+     * @throws IOException if the handler fails while processing a recipe ingredient.
+     */
+    public void listPublic(RowHandler<RecipeIngredient> handler)
+    throws DAOException, IOException {
+        try (final Connection conn = this.getReadConnection(null)) {
+            final String query = "SELECT ri.recipe_id, ri.ingredient_id" +
+                " FROM recipe_ingredients ri" +
+                " JOIN recipes r ON ri.recipe_id = r.id_recipe" +
+                " WHERE r.is_public = TRUE";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                enableStreaming(statement);
+
+                try (final ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        RecipeIngredient recipeIngredient = new RecipeIngredient();
+                        // Columns read by position, in the order of the query
+                        recipeIngredient.setRecipe(new Recipe(result.getLong(1)));
+                        recipeIngredient.setIngredient(new Ingredient(result.getLong(2)));
+                        handler.handle(recipeIngredient);
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Error retrieving ingredients of public recipes", ex);
+            throw new DAOException("Error retrieving ingredients of public recipes", ex);
+        }
+    }
+
+    /**
+     * Counts, for every ingredient used in any recipe, the number of recipes that use it.
+     * 
+     * @return a map from ingredient ID to the number of recipes that use the ingredient.
+     * Ingredients not used by any recipe are not present in the map.
+     * @throws DAOException if there is an error during the database operation.
+     */
+    public Map<Long, Integer> countRecipesByIngredient()
+    throws DAOException {
+        try (final Connection conn = this.getReadConnection(null)) {
+            final String query = "SELECT ingredient_id, COUNT(DISTINCT recipe_id) AS recipes" +
+                " FROM recipe_ingredients" +
+                " GROUP BY ingredient_id";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                try (final ResultSet result = statement.executeQuery()) {
+                    Map<Long, Integer> counts = new HashMap<>();
+                    while (result.next()) {
+                        counts.put(result.getLong("ingredient_id"), result.getInt("recipes"));
+                    }
+                    return counts;
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Error counting recipes by ingredient", ex);
+            throw new DAOException("Error counting recipes by ingredient", ex);
         }
     }
 
@@ -312,21 +467,33 @@ public class RecipeIngredientDAO extends DAO{
      */
     private RecipeIngredient rowToEntity(ResultSet result)
     throws SQLException {
-        Set<String> columnNames = this.getColumnNames(result);
+        return rowToEntity(result, new RecipeIngredientColumns(result));
+    }
 
-        Recipe recipe = extractRecipe(result, columnNames);
-        Ingredient ingredient = extractIngredient(result, columnNames);
-        IngredientCategory ingredientCategory = extractIngredientCategory(result, columnNames);
-        MeasurementUnit unit = extractMeasurementUnit(result, columnNames);
+    /**
+     * Converts a database row from the recipe_ingredients table into a {@link RecipeIngredient} entity,
+     * reading the columns by their already resolved positions.
+     *
+     * @param result the ResultSet containing the data of a recipe ingredient row.
+     * @param columns the positions of the columns of the ResultSet.
+     * @return a RecipeIngredient entity populated with the data from the ResultSet.
+     * @throws SQLException if there is an error accessing the ResultSet.
+     */
+    private RecipeIngredient rowToEntity(ResultSet result, RecipeIngredientColumns columns)
+    throws SQLException {
+        Recipe recipe = extractRecipe(result, columns);
+        Ingredient ingredient = extractIngredient(result, columns);
+        IngredientCategory ingredientCategory = extractIngredientCategory(result, columns);
+        MeasurementUnit unit = extractMeasurementUnit(result, columns);
 
         if (ingredient != null && ingredientCategory != null) {
             ingredient.setCategory(ingredientCategory);
         }
 
         return new RecipeIngredient(
-            result.getLong("id_recipe_ingredient"),
-            result.getBigDecimal("quantity"),
-            result.getString("notes"),
+            result.getLong(columns.id),
+            result.getBigDecimal(columns.quantity),
+            result.getString(columns.notes),
             ingredient,
             unit,
             recipe
@@ -337,42 +504,42 @@ public class RecipeIngredientDAO extends DAO{
      * Extracts recipe information from the ResultSet.
      *
      * @param result the ResultSet containing the data.
-     * @param columnNames the set of column names present in the ResultSet.
+     * @param columns the positions of the columns of the ResultSet.
      * @return a Recipe entity populated with the data from the ResultSet.
      * @throws SQLException if there is an error accessing the ResultSet.
      */
-    private Recipe extractRecipe(ResultSet result, Set<String> columnNames)
+    private Recipe extractRecipe(ResultSet result, RecipeIngredientColumns columns)
     throws SQLException {
 
         // 'recipe_id' column is mandatory
-        Recipe recipe = new Recipe(result.getLong("recipe_id"));
+        Recipe recipe = new Recipe(result.getLong(columns.recipeId));
 
-        if (columnNames.contains(RECIPE_PREFIX + "preparation_time")) {
-            recipe.setPreparationTime(result.getInt(RECIPE_PREFIX + "preparation_time"));
+        if (columns.recipePreparationTime != ColumnIndex.ABSENT) {
+            recipe.setPreparationTime(result.getInt(columns.recipePreparationTime));
         }
 
-        if (columnNames.contains(RECIPE_PREFIX + "cooking_time")) {
-            recipe.setCookingTime(result.getInt(RECIPE_PREFIX + "cooking_time"));
+        if (columns.recipeCookingTime != ColumnIndex.ABSENT) {
+            recipe.setCookingTime(result.getInt(columns.recipeCookingTime));
         }
 
-        if (columnNames.contains(RECIPE_PREFIX + "difficulty")) {
-            recipe.setDifficulty(Recipe.Difficulty.valueOf(result.getString(RECIPE_PREFIX + "difficulty")));
+        if (columns.recipeDifficulty != ColumnIndex.ABSENT) {
+            recipe.setDifficulty(Recipe.Difficulty.valueOf(result.getString(columns.recipeDifficulty)));
         }
 
-        if (columnNames.contains(RECIPE_PREFIX + "servings")) {
-            recipe.setServings(result.getInt(RECIPE_PREFIX + "servings"));
+        if (columns.recipeServings != ColumnIndex.ABSENT) {
+            recipe.setServings(result.getInt(columns.recipeServings));
         }
 
-        if (columnNames.contains(RECIPE_PREFIX + "is_public")) {
-            recipe.setPublic(result.getBoolean(RECIPE_PREFIX + "is_public"));
+        if (columns.recipeIsPublic != ColumnIndex.ABSENT) {
+            recipe.setPublic(result.getBoolean(columns.recipeIsPublic));
         }
 
-        if (columnNames.contains(RECIPE_PREFIX + "is_lunchbox")) {
-            recipe.setLunchbox(result.getBoolean(RECIPE_PREFIX + "is_lunchbox"));
+        if (columns.recipeIsLunchbox != ColumnIndex.ABSENT) {
+            recipe.setLunchbox(result.getBoolean(columns.recipeIsLunchbox));
         }
 
-        if (columnNames.contains(RECIPE_PREFIX + "image_path")) {
-            recipe.setImagePath(result.getString(RECIPE_PREFIX + "image_path"));
+        if (columns.recipeImagePath != ColumnIndex.ABSENT) {
+            recipe.setImagePath(result.getString(columns.recipeImagePath));
         }
 
         return recipe;
@@ -382,17 +549,17 @@ public class RecipeIngredientDAO extends DAO{
      * Extracts ingredient information from the ResultSet.
      *
      * @param result the ResultSet containing the data.
-     * @param columnNames the set of column names present in the ResultSet.
+     * @param columns the positions of the columns of the ResultSet.
      * @return an Ingredient entity populated with the data from the ResultSet.
      * @throws SQLException if there is an error accessing the ResultSet.
      */
-    private Ingredient extractIngredient(ResultSet result, Set<String> columnNames)
+    private Ingredient extractIngredient(ResultSet result, RecipeIngredientColumns columns)
     throws SQLException {
         // 'ingredient_id' column is mandatory
-        Ingredient ingredient = new Ingredient(result.getLong("ingredient_id"));
+        Ingredient ingredient = new Ingredient(result.getLong(columns.ingredientId));
 
-        if (columnNames.contains(INGREDIENT_PREFIX + "name")) {
-            ingredient.setName(result.getString(INGREDIENT_PREFIX + "name"));
+        if (columns.ingredientName != ColumnIndex.ABSENT) {
+            ingredient.setName(result.getString(columns.ingredientName));
         }
 
         return ingredient;
@@ -402,25 +569,25 @@ public class RecipeIngredientDAO extends DAO{
      * Extracts ingredient category information from the ResultSet.
      *
      * @param result the ResultSet containing the data.
-     * @param columnNames the set of column names present in the ResultSet.
+     * @param columns the positions of the columns of the ResultSet.
      * @return an IngredientCategory entity populated with the data from the ResultSet, or null if category data is not present.
      * @throws SQLException if there is an error accessing the ResultSet.
      */
-    private IngredientCategory extractIngredientCategory(ResultSet result, Set<String> columnNames)
+    private IngredientCategory extractIngredientCategory(ResultSet result, RecipeIngredientColumns columns)
     throws SQLException {
-            if (!columnNames.contains("category_id")) {
+            if (columns.categoryId == ColumnIndex.ABSENT) {
                 return null;
             }
 
             IngredientCategory category = new IngredientCategory();
-            category.setId(result.getLong("category_id"));
+            category.setId(result.getLong(columns.categoryId));
 
-            if (columnNames.contains(INGREDIENT_CATEGORY_PREFIX + "name")) {
-                category.setName(result.getString(INGREDIENT_CATEGORY_PREFIX + "name"));
+            if (columns.categoryName != ColumnIndex.ABSENT) {
+                category.setName(result.getString(columns.categoryName));
             }
 
-            if (columnNames.contains(INGREDIENT_CATEGORY_PREFIX + "description")) {
-                category.setDescription(result.getString(INGREDIENT_CATEGORY_PREFIX + "description"));
+            if (columns.categoryDescription != ColumnIndex.ABSENT) {
+                category.setDescription(result.getString(columns.categoryDescription));
             }
 
             return category;
@@ -430,21 +597,21 @@ public class RecipeIngredientDAO extends DAO{
      * Extracts measurement unit information from the ResultSet.
      *
      * @param result the ResultSet containing the data.
-     * @param columnNames the set of column names present in the ResultSet.
+     * @param columns the positions of the columns of the ResultSet.
      * @return a MeasurementUnit entity populated with the data from the ResultSet.
      * @throws SQLException if there is an error accessing the ResultSet.
      */
-    private MeasurementUnit extractMeasurementUnit(ResultSet result, Set<String> columnNames)
+    private MeasurementUnit extractMeasurementUnit(ResultSet result, RecipeIngredientColumns columns)
     throws SQLException {
         // 'measurement_unit_id' column is mandatory
-        MeasurementUnit unit = new MeasurementUnit(result.getLong("measurement_unit_id"));
+        MeasurementUnit unit = new MeasurementUnit(result.getLong(columns.unitId));
 
-        if (columnNames.contains(MEASUREMENT_UNIT_PREFIX + "name")) {
-            unit.setName(result.getString(MEASUREMENT_UNIT_PREFIX + "name"));
+        if (columns.unitName != ColumnIndex.ABSENT) {
+            unit.setName(result.getString(columns.unitName));
         }
 
-        if (columnNames.contains(MEASUREMENT_UNIT_PREFIX + "abbreviation")) {
-            unit.setAbbreviation(result.getString(MEASUREMENT_UNIT_PREFIX + "abbreviation"));
+        if (columns.unitAbbreviation != ColumnIndex.ABSENT) {
+            unit.setAbbreviation(result.getString(columns.unitAbbreviation));
         }
 
         return unit;
@@ -480,4 +647,54 @@ public class RecipeIngredientDAO extends DAO{
         }
     }
 
+    /**
+     * Positions of the recipe ingredient columns in a ResultSet. They are resolved once per ResultSet
+     * and reused for all its rows, instead of looking the columns up by label on every row.
+     */
+    private static final class RecipeIngredientColumns {
+        private final int id;
+        private final int quantity;
+        private final int notes;
+        private final int recipeId;
+        private final int recipePreparationTime;
+        private final int recipeCookingTime;
+        private final int recipeDifficulty;
+        private final int recipeServings;
+        private final int recipeIsPublic;
+        private final int recipeIsLunchbox;
+        private final int recipeImagePath;
+        private final int ingredientId;
+        private final int ingredientName;
+        private final int categoryId;
+        private final int categoryName;
+        private final int categoryDescription;
+        private final int unitId;
+        private final int unitName;
+        private final int unitAbbreviation;
+
+        RecipeIngredientColumns(ResultSet result) throws SQLException {
+            final ColumnIndex columns = new ColumnIndex(result);
+
+            this.id = columns.require("id_recipe_ingredient");
+            this.quantity = columns.require("quantity");
+            this.notes = columns.require("notes");
+            this.recipeId = columns.require("recipe_id");
+            this.recipePreparationTime = columns.of(RECIPE_PREFIX + "preparation_time");
+            this.recipeCookingTime = columns.of(RECIPE_PREFIX + "cooking_time");
+            this.recipeDifficulty = columns.of(RECIPE_PREFIX + "difficulty");
+            this.recipeServings = columns.of(RECIPE_PREFIX + "servings");
+            this.recipeIsPublic = columns.of(RECIPE_PREFIX + "is_public");
+            this.recipeIsLunchbox = columns.of(RECIPE_PREFIX + "is_lunchbox");
+            this.recipeImagePath = columns.of(RECIPE_PREFIX + "image_path");
+            this.ingredientId = columns.require("ingredient_id");
+            this.ingredientName = columns.of(INGREDIENT_PREFIX + "name");
+            this.categoryId = columns.of("category_id");
+            this.categoryName = columns.of(INGREDIENT_CATEGORY_PREFIX + "name");
+            this.categoryDescription = columns.of(INGREDIENT_CATEGORY_PREFIX + "description");
+            this.unitId = columns.require("measurement_unit_id");
+            this.unitName = columns.of(MEASUREMENT_UNIT_PREFIX + "name");
+            this.unitAbbreviation = columns.of(MEASUREMENT_UNIT_PREFIX + "abbreviation");
+        }
+    }
+
 }
@@ -9,9 +9,12 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.sql.DataSource;
+
 import es.uvigo.esei.tfg.dao.DAO;
 import es.uvigo.esei.tfg.entities.recipe.Recipe;
 import es.uvigo.esei.tfg.entities.recipe.RecipeStep;
+import es.uvigo.esei.tfg.entities.recipe.RecipeStepTranslation;
 import es.uvigo.esei.tfg.exceptions.DAOException;
 
 /**
@@ -20,6 +23,24 @@ import es.uvigo.esei.tfg.exceptions.DAOException;
 public class RecipeStepDAO extends DAO {
     private final static Logger LOG = Logger.getLogger(RecipeStepDAO.class.getName());
 
+    private final static String STEP_TRANSLATION_PREFIX = "step_translation_";
+
+    /**
+     * Constructs a new instance of {@link RecipeStepDAO} that uses the data source of the application.
+     */
+    public RecipeStepDAO() {
+        super();
+    }
+
+    /**
+     * Constructs a new instance of {@link RecipeStepDAO} that uses the provided data source.
+     * 
+     * @param dataSource the data source used to obtain the connections.
+     */
+    public RecipeStepDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
     //============     CREATE     ============
 
     public RecipeStep create(RecipeStep recipeStep)
@@ -77,11 +98,18 @@ public class RecipeStepDAO extends DAO {
         }
     }
 
+    public List<RecipeStep> createAll(List<RecipeStep> steps)
+    throws DAOException, IllegalArgumentException {
+        return createAll(steps, null);
+    }
+
     /**
-     * Persists a list of {@link RecipeStep} entities in the database.
+     * Persists a list of {@link RecipeStep} entities in the database in a single batch.
      * All steps must be associated with the same valid recipe.
+     * The generated IDs are set in the provided steps.
      * 
      * @param steps the list of recipe steps to be created. Must not be null or empty.
+     * @return the created recipe steps with their generated IDs.
      * @throws DAOException if there is an error during the database operation.
      * @throws IllegalArgumentException if the provided list is null, empty, or contains invalid steps.
      */
@@ -90,12 +118,43 @@ public class RecipeStepDAO extends DAO {
         if (steps == null || steps.isEmpty()) {
             throw new IllegalArgumentException("Recipe steps list cannot be null or empty");
         }
+        for (RecipeStep step : steps) {
+            ensureRecipeStepDataIntegrity(step);
+        }
 
-        List<RecipeStep> createdSteps = new LinkedList<>();
-        for (RecipeStep step: steps) {
-            createdSteps.add(create(step, externalConnection));
+        boolean isExternalConnection = isExternalConnection(externalConnection);
+        Connection conn = null;
+
+        try {
+            conn = this.getConnection(externalConnection);
+
+            final String query = "INSERT INTO recipe_steps" +
+                " (step_number, image_path, recipe_id)" +
+                " VALUES (?, ?, ?)";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                for (RecipeStep step : steps) {
+                    statement.setInt(1, step.getStepNumber());
+                    statement.setString(2, step.getImagePath());
+                    statement.setLong(3, step.getRecipe().getId());
+                    statement.addBatch();
+                }
+
+                long[] ids = executeBatchWithKeys(statement, steps.size());
+                List<RecipeStep> createdSteps = new LinkedList<>();
+                int index = 0;
+                for (RecipeStep step : steps) {
+                    step.setId(ids[index++]);
+                    createdSteps.add(step);
+                }
+                return createdSteps;
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Error creating recipe steps", e);
+            throw new DAOException(e);
+        } finally {
+            closeConnection(conn, isExternalConnection);
         }
-        return createdSteps;
     }
 
     //============     READ     ============
@@ -162,6 +221,67 @@ public class RecipeStepDAO extends DAO {
         }
     }
 
+    public List<RecipeStep> getByRecipeIdWithTranslation(long recipeId, String locale)
+    throws DAOException {
+        return getByRecipeIdWithTranslation(recipeId, locale, null);
+    }
+
+    /**
+     * Retrieves all {@link RecipeStep} entities associated with a specific recipe ID, together
+     * with their translation for the given locale, using a single query.
+     * The steps are ordered by their step number in ascending order. Steps without a translation
+     * for the given locale are returned with an empty list of translations.
+     * 
+     * @param recipeId the identifier of the recipe whose steps are to be retrieved.
+     * @param locale the locale code (e.g. "en", "es") of the step translations to retrieve.
+     * @param externalConnection an optional external connection to use for the query.
+     * @return a list of recipe steps with their translation for the specified locale.
+     * @throws DAOException if there is an error during the database operation.
+     */
+    public List<RecipeStep> getByRecipeIdWithTranslation(long recipeId, String locale, Connection externalConnection)
+    throws DAOException {
+        boolean isExternalConnection = isExternalConnection(externalConnection);
+        Connection conn = null;
+
+        try {
+            conn = this.getReadConnection(externalConnection);
+
+            final String query = "SELECT rs.*," +
+                " rst.locale AS " + STEP_TRANSLATION_PREFIX + "locale," +
+                " rst.title AS " + STEP_TRANSLATION_PREFIX + "title," +
+                " rst.description AS " + STEP_TRANSLATION_PREFIX + "description" +
+                " FROM recipe_steps rs" +
+                " LEFT JOIN recipe_step_translations rst" +
+                " ON rst.step_id = rs.id_recipe_step AND rst.locale = ?" +
+                " WHERE rs.recipe_id = ?" +
+                " ORDER BY rs.step_number ASC";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                statement.setString(1, locale);
+                statement.setLong(2, recipeId);
+
+                try (final ResultSet result = statement.executeQuery()) {
+                    List<RecipeStep> steps = new LinkedList<>();
+                    while (result.next()) {
+                        RecipeStep step = rowToEntity(result);
+
+                        RecipeStepTranslation translation = extractTranslation(result);
+                        if (translation != null) {
+                            step.getTranslations().add(translation);
+                        }
+                        steps.add(step);
+                    }
+                    return steps;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Error retrieving recipe steps with translations by recipe ID", e);
+            throw new DAOException(e);
+        } finally {
+            closeConnection(conn, isExternalConnection);
+        }
+    }
+
     //============     UPDATE     ============
 
     /**
@@ -288,6 +408,28 @@ public class RecipeStepDAO extends DAO {
         return step;
     }
 
+    /**
+     * Extracts the step translation joined to the current row, if any.
+     * 
+     * @param result the ResultSet containing the data of a recipe step and its translation.
+     * @return the RecipeStepTranslation of the row, or null if the step has no translation for the requested locale.
+     * @throws SQLException if there is an error accessing the ResultSet data.
+     */
+    private RecipeStepTranslation extractTranslation(ResultSet result)
+    throws SQLException {
+        String locale = result.getString(STEP_TRANSLATION_PREFIX + "locale");
+        if (locale == null) {
+            return null; // No matching row in the LEFT JOIN
+        }
+
+        return new RecipeStepTranslation(
+            result.getLong("id_recipe_step"),
+            locale,
+            result.getString(STEP_TRANSLATION_PREFIX + "title"),
+            result.getString(STEP_TRANSLATION_PREFIX + "description")
+        );
+    }
+
     /**
      * Validates the integrity of a {@link RecipeStep} entity before database operations.
      * Checks that the step is not null, has a valid associated recipe, a positive step number, and a non-null description.
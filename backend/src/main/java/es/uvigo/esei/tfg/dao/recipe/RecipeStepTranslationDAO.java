@@ -9,6 +9,8 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.sql.DataSource;
+
 import es.uvigo.esei.tfg.dao.DAO;
 import es.uvigo.esei.tfg.entities.recipe.Recipe;
 import es.uvigo.esei.tfg.entities.recipe.RecipeStepTranslation;
@@ -17,6 +19,22 @@ import es.uvigo.esei.tfg.exceptions.DAOException;
 public class RecipeStepTranslationDAO extends DAO {
     private final static Logger LOGGER = Logger.getLogger(RecipeStepTranslationDAO.class.getName());
 
+    /**
+     * Constructs a new instance of {@link RecipeStepTranslationDAO} that uses the data source of the application.
+     */
+    public RecipeStepTranslationDAO() {
+        super();
+    }
+
+    /**
+     * Constructs a new instance of {@link RecipeStepTranslationDAO} that uses the provided data source.
+     * 
+     * @param dataSource the data source used to obtain the connections.
+     */
+    public RecipeStepTranslationDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
     //============     CREATE     ============
 
     public RecipeStepTranslation create(RecipeStepTranslation translation)
@@ -68,12 +86,43 @@ public class RecipeStepTranslationDAO extends DAO {
         if (translations == null || translations.isEmpty()) {
             throw new IllegalArgumentException("Translations list cannot be null or empty");
         }
-
-        List<RecipeStepTranslation> createdTranslations = new LinkedList<>();
         for (RecipeStepTranslation translation : translations) {
-            createdTranslations.add(create(translation, externalConnection));
+            ensureRecipeStepTranslationDataIntegrity(translation);
+        }
+
+        boolean isExternalConnection  = isExternalConnection(externalConnection);
+        Connection conn = null;
+
+        try {
+            conn = this.getConnection(externalConnection);
+
+            final String query = "INSERT INTO recipe_step_translations" +
+                " (step_id, locale, title, description)" +
+                " VALUES (?, ?, ?, ?)";
+
+            // All the translations are sent to the database in a single batch
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                for (RecipeStepTranslation translation : translations) {
+                    statement.setLong(1, translation.getStepId());
+                    statement.setString(2, translation.getLocale());
+                    statement.setString(3, translation.getTitle());
+                    statement.setString(4, translation.getDescription());
+                    statement.addBatch();
+                }
+
+                for (int affectedRows : statement.executeBatch()) {
+                    if (affectedRows == 0) {
+                        throw new DAOException("Creating recipe step translations failed, no rows affected.");
+                    }
+                }
+                return new LinkedList<>(translations);
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Error creating recipe step translations: " + ex.getMessage(), ex);
+            throw new DAOException("Error creating recipe step translations", ex);
+        } finally {
+            closeConnection(conn, isExternalConnection);
         }
-        return createdTranslations;
     }
 
     //============     READ     ============
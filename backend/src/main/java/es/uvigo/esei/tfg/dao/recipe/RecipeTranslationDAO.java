@@ -1,5 +1,6 @@
 package es.uvigo.esei.tfg.dao.recipe;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -7,9 +8,14 @@ import java.sql.SQLException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
 
 import es.uvigo.esei.tfg.dao.DAO;
+import es.uvigo.esei.tfg.dao.RowHandler;
 import es.uvigo.esei.tfg.entities.recipe.Recipe;
 import es.uvigo.esei.tfg.entities.recipe.RecipeTranslation;
 import es.uvigo.esei.tfg.entities.user.User;
@@ -19,6 +25,22 @@ public class RecipeTranslationDAO extends DAO {
     private final static Logger LOG = Logger.getLogger(RecipeTranslationDAO.class.getName());
 
     
+    /**
+     * Constructs a new instance of {@link RecipeTranslationDAO} that uses the data source of the application.
+     */
+    public RecipeTranslationDAO() {
+        super();
+    }
+
+    /**
+     * Constructs a new instance of {@link RecipeTranslationDAO} that uses the provided data source.
+     * 
+     * @param dataSource the data source used to obtain the connections.
+     */
+    public RecipeTranslationDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
     //============     CREATE     ============
 
     public RecipeTranslation create(RecipeTranslation translation)
@@ -124,6 +146,36 @@ public class RecipeTranslationDAO extends DAO {
         }
     }
 
+    /**
+     * Retrieves the translations of all the public recipes. The translations are streamed
+     * to the handler as the rows are read from the database.
+     * 
+     * @param handler the handler that will receive each translation.
+     * @throws DAOException if a database access error occurs while retrieving the translations.
+     * @throws IOException if the handler fails while processing a translation.
+     */
+    public void listPublic(RowHandler<RecipeTranslation> handler)
+    throws DAOException, IOException {
+        try (final Connection conn = this.getReadConnection(null)) {
+            final String query = "SELECT t.* FROM recipe_translations t" +
+                " JOIN recipes r ON t.recipe_id = r.id_recipe" +
+                " WHERE r.is_public = TRUE";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                enableStreaming(statement);
+
+                try (final ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        handler.handle(rowToEntity(result));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "SQL error while retrieving public recipe translations: " + e.getMessage(), e);
+            throw new DAOException("SQL error while retrieving public recipe translations.", e);
+        }
+    }
+
     /**
      * Retrieves a list of available locale codes for the translations of a specific recipe.
      * 
@@ -153,6 +205,72 @@ public class RecipeTranslationDAO extends DAO {
         }
     }
 
+    /**
+     * Retrieves, in a single query, the best matching translation for each of the given recipes.
+     * For every recipe the first locale of {@code preferredLocales} that has a translation is chosen.
+     * If none of them is available, the first translation by locale code is used as a fallback.
+     * 
+     * @param recipeIds the IDs of the recipes for which to retrieve the translations.
+     * @param preferredLocales the locale codes in order of preference. {@code null} entries are ignored.
+     * @return a map from recipe ID to its best matching {@link RecipeTranslation}. Recipes without
+     * any translation are not present in the map.
+     * @throws DAOException if a database access error occurs while retrieving the translations.
+     */
+    public Map<Long, RecipeTranslation> getPreferredByRecipeIds(List<Long> recipeIds, List<String> preferredLocales)
+    throws DAOException {
+        final Map<Long, RecipeTranslation> translations = new HashMap<>();
+        if (recipeIds == null || recipeIds.isEmpty()) {
+            return translations;
+        }
+
+        final List<String> locales = new ArrayList<>();
+        if (preferredLocales != null) {
+            for (String locale : preferredLocales) {
+                if (locale != null && !locale.isEmpty() && !locales.contains(locale)) {
+                    locales.add(locale);
+                }
+            }
+        }
+
+        try (final Connection conn = this.getReadConnection(null)) {
+            final StringBuilder query = new StringBuilder("SELECT * FROM recipe_translations")
+                .append(" WHERE recipe_id IN (").append(placeholders(recipeIds.size())).append(")")
+                .append(" ORDER BY recipe_id");
+            if (!locales.isEmpty()) {
+                query.append(", CASE locale");
+                for (int i = 0; i < locales.size(); i++) {
+                    query.append(" WHEN ? THEN ").append(i);
+                }
+                query.append(" ELSE ").append(locales.size()).append(" END");
+            }
+            query.append(", locale ASC");
+
+            try (final PreparedStatement statement = conn.prepareStatement(query.toString())) {
+                int index = 1;
+                for (Long recipeId : recipeIds) {
+                    statement.setLong(index++, recipeId);
+                }
+                for (String locale : locales) {
+                    statement.setString(index++, locale);
+                }
+
+                try (final ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        // Rows come sorted by preference, so the first one of each recipe wins
+                        RecipeTranslation translation = rowToEntity(result);
+                        if (!translations.containsKey(translation.getRecipeId())) {
+                            translations.put(translation.getRecipeId(), translation);
+                        }
+                    }
+                    return translations;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "SQL error while retrieving preferred recipe translations: " + e.getMessage(), e);
+            throw new DAOException("SQL error while retrieving preferred recipe translations.", e);
+        }
+    }
+
     //============     UPDATE     ============
 
 
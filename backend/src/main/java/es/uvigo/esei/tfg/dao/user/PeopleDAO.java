@@ -1,5 +1,6 @@
 package es.uvigo.esei.tfg.dao.user;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -10,7 +11,10 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.sql.DataSource;
+
 import es.uvigo.esei.tfg.dao.DAO;
+import es.uvigo.esei.tfg.dao.RowHandler;
 import es.uvigo.esei.tfg.entities.user.Person;
 import es.uvigo.esei.tfg.exceptions.DAOException;
 
@@ -23,6 +27,22 @@ import es.uvigo.esei.tfg.exceptions.DAOException;
 public class PeopleDAO extends DAO {
 	private final static Logger LOG = Logger.getLogger(PeopleDAO.class.getName());
 	
+	/**
+	 * Constructs a new instance of {@link PeopleDAO} that uses the data source of the application.
+	 */
+	public PeopleDAO() {
+		super();
+	}
+
+	/**
+	 * Constructs a new instance of {@link PeopleDAO} that uses the provided data source.
+	 * 
+	 * @param dataSource the data source used to obtain the connections.
+	 */
+	public PeopleDAO(DataSource dataSource) {
+		super(dataSource);
+	}
+
 	//============     CREATE     ============
 
 	public Person create(Person person)
@@ -117,6 +137,33 @@ public class PeopleDAO extends DAO {
 		}
 	}
 	
+	/**
+	 * Streams all the people persisted in the system to the provided handler,
+	 * one person at a time as the rows are read from the database.
+	 * 
+	 * @param handler the handler that will receive each person.
+	 * @throws DAOException if an error happens while retrieving the people.
+	 * @throws IOException if the handler fails while processing a person.
+	 */
+	public void list(RowHandler<Person> handler) throws DAOException, IOException {
+		try (final Connection conn = this.getConnection(null)) {
+			final String query = "SELECT * FROM people";
+			
+			try (final PreparedStatement statement = conn.prepareStatement(query)) {
+				enableStreaming(statement);
+				
+				try (final ResultSet result = statement.executeQuery()) {
+					while (result.next()) {
+						handler.handle(rowToEntity(result));
+					}
+				}
+			}
+		} catch (SQLException e) {
+			LOG.log(Level.SEVERE, "Error listing people", e);
+			throw new DAOException(e);
+		}
+	}
+	
 	/**
 	 * Returns a list with all the people persisted in the system.
 	 * 
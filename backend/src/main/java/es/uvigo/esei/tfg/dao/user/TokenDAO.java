@@ -4,17 +4,40 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.sql.DataSource;
+
 import es.uvigo.esei.tfg.dao.DAO;
 import es.uvigo.esei.tfg.entities.user.Token;
 import es.uvigo.esei.tfg.exceptions.DAOException;
+import es.uvigo.esei.tfg.util.JwtUtil;
 
 public class TokenDAO extends DAO {
     
     private final static Logger LOG = Logger.getLogger(TokenDAO.class.getName());
 
+    /**
+     * Constructs a new instance of {@link TokenDAO} that uses the data source of the application.
+     */
+    public TokenDAO() {
+        super();
+    }
+
+    /**
+     * Constructs a new instance of {@link TokenDAO} that uses the provided data source.
+     * 
+     * @param dataSource the data source used to obtain the connections.
+     */
+    public TokenDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
 	//============     CREATE     ============
 	
     public Token create(Token token) 
@@ -33,13 +56,14 @@ public class TokenDAO extends DAO {
             conn = this.getConnection(externalConnection);
 
             final String query = "INSERT INTO tokens" +
-                " (token, token_type, user_id) " +
-                " VALUES (?, ?, ?)";
+                " (token_hash, token_type, expires_at, user_id) " +
+                " VALUES (?, ?, ?, ?)";
 
             try (final PreparedStatement statement = conn.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS)) {
-                statement.setString(1, token.getToken());
+                statement.setBytes(1, token.getTokenHash());
                 statement.setString(2, token.getTokenType());
-                statement.setLong(3, token.getIdUser());
+                statement.setTimestamp(3, Timestamp.valueOf(token.getExpiresAt()));
+                statement.setLong(4, token.getIdUser());
 
                 if (statement.executeUpdate() == 1) {
                     try (final ResultSet resultKeys = statement.getGeneratedKeys()) {
@@ -90,28 +114,72 @@ public class TokenDAO extends DAO {
         }
     }
 
-    public Token getByToken(String token)
+    /**
+     * Retrieves a token by the SHA-256 digest of its content, using the unique index of the digests.
+     * 
+     * @param tokenHash the digest of the token to retrieve.
+     * @return the token with the provided digest.
+     * @throws DAOException if an error happens while retrieving the token.
+     * @throws IllegalArgumentException if the digest is not valid or no token has the provided digest.
+     */
+    public Token getByTokenHash(byte[] tokenHash)
     throws DAOException, IllegalArgumentException {
-        if (token == null || token.trim().isEmpty()) {
-            throw new IllegalArgumentException("Token can't be null or empty");
+        if (tokenHash == null || tokenHash.length != JwtUtil.DIGEST_LENGTH) {
+            throw new IllegalArgumentException("Token hash must have " + JwtUtil.DIGEST_LENGTH + " bytes");
         }
         
         try (final Connection conn = this.getConnection(null)) {
-            final String query = "SELECT * FROM tokens WHERE token = ?";
+            final String query = "SELECT * FROM tokens WHERE token_hash = ?";
 
             try (final PreparedStatement statement = conn.prepareStatement(query)) {
-                statement.setString(1, token);
+                statement.setBytes(1, tokenHash);
 
                 try (final ResultSet result = statement.executeQuery()) {
                     if (result.next()) {
                         return rowToEntity(result);                        
                     } else {
-                        throw new IllegalArgumentException("No token found with the provided token string");
+                        throw new IllegalArgumentException("No token found with the provided token hash");
                     }
                 }
             }
         } catch (SQLException e) {
-            LOG.log(Level.SEVERE, "Error retrieving token by token string", e);
+            LOG.log(Level.SEVERE, "Error retrieving token by token hash", e);
+            throw new DAOException(e);
+        }
+    }
+
+    /**
+     * Retrieves the identifiers of the tokens that can be deleted, because they are expired or
+     * revoked, in ascending order. The search starts after the provided identifier, so the
+     * tokens can be visited in chunks that walk the primary key.
+     * 
+     * @param afterId the identifier after which to start the search. Use 0 to start from the first token.
+     * @param limit the maximum number of identifiers to retrieve.
+     * @return the identifiers of the tokens that can be deleted.
+     * @throws DAOException if an error happens while retrieving the identifiers.
+     */
+    public List<Long> getPurgeableIds(long afterId, int limit)
+    throws DAOException {
+        try (final Connection conn = this.getConnection(null)) {
+            final String query = "SELECT id_token FROM tokens" +
+                " WHERE id_token > ? AND (revoked = true OR expired = true OR expires_at < ?)" +
+                " ORDER BY id_token LIMIT ?";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                statement.setLong(1, afterId);
+                statement.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+                statement.setInt(3, limit);
+
+                try (final ResultSet result = statement.executeQuery()) {
+                    final List<Long> ids = new ArrayList<>();
+                    while (result.next()) {
+                        ids.add(result.getLong("id_token"));
+                    }
+                    return ids;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Error retrieving purgeable tokens", e);
             throw new DAOException(e);
         }
     }
@@ -120,11 +188,79 @@ public class TokenDAO extends DAO {
 
 	//============     UPDATE     ============
     
-	// Add specific update methods if needed
+    /**
+     * Revokes a token of a user only if it is still active, that is, not revoked nor expired.
+     * The check and the update are done in a single statement, so when several transactions
+     * try to revoke the same token only one of them succeeds.
+     * 
+     * @param tokenHash the digest of the token to revoke.
+     * @param userId the identifier of the user the token must belong to.
+     * @param externalConnection an optional connection to use, so the revocation is done in its transaction.
+     * @return true if the token has been revoked, false if no active token of the user has the provided digest.
+     * @throws DAOException if an error happens while revoking the token.
+     */
+    public boolean revokeIfActive(byte[] tokenHash, long userId)
+    throws DAOException {
+        return revokeIfActive(tokenHash, userId, null);
+    }
+
+    public boolean revokeIfActive(byte[] tokenHash, long userId, Connection externalConnection)
+    throws DAOException {
+        boolean isExternalConnection = isExternalConnection(externalConnection);
+        Connection conn = null;
+
+        try {
+            conn = this.getConnection(externalConnection);
+
+            final String query = "UPDATE tokens SET revoked = true" +
+                " WHERE token_hash = ? AND user_id = ? AND revoked = false AND expired = false AND expires_at > ?";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                statement.setBytes(1, tokenHash);
+                statement.setLong(2, userId);
+                statement.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+
+                return statement.executeUpdate() == 1;
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Error revoking token", e);
+            throw new DAOException("Error revoking token: " + e.getMessage(), e);
+
+        } finally {
+            closeConnection(conn, isExternalConnection);
+        }
+    }
 
 	//============     DELETE     ============
     
-    // Add specific delete methods if needed
+    /**
+     * Deletes the tokens with the provided identifiers in a single statement.
+     * 
+     * @param ids the identifiers of the tokens to delete.
+     * @return the number of deleted tokens.
+     * @throws DAOException if an error happens while deleting the tokens.
+     */
+    public int deleteAll(Collection<Long> ids)
+    throws DAOException {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        try (final Connection conn = this.getConnection(null)) {
+            final String query = "DELETE FROM tokens WHERE id_token IN (" + placeholders(ids.size()) + ")";
+
+            try (final PreparedStatement statement = conn.prepareStatement(query)) {
+                int index = 1;
+                for (Long id : ids) {
+                    statement.setLong(index++, id);
+                }
+                return statement.executeUpdate();
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Error deleting tokens", e);
+            throw new DAOException(e);
+        }
+    }
 
 	// Add specific delete methods if needed
 
@@ -171,10 +307,11 @@ public class TokenDAO extends DAO {
     private Token rowToEntity(ResultSet result) throws SQLException {
         return new Token(
             result.getInt("id_token"),
-            result.getString("token"),
+            result.getBytes("token_hash"),
             result.getString("token_type"),
             result.getBoolean("expired"),
             result.getBoolean("revoked"),
+            result.getTimestamp("expires_at").toLocalDateTime(),
             result.getLong("user_id")
         );
     }
@@ -190,14 +327,18 @@ public class TokenDAO extends DAO {
             throw new IllegalArgumentException("token can't be null");
         }
 
-        if (token.getToken() == null || token.getToken().trim().isEmpty()) {
-            throw new IllegalArgumentException("token can't be null or empty");
+        if (token.getTokenHash() == null || token.getTokenHash().length != JwtUtil.DIGEST_LENGTH) {
+            throw new IllegalArgumentException("tokenHash must have " + JwtUtil.DIGEST_LENGTH + " bytes");
         }
 
         if (token.getTokenType() == null || token.getTokenType().trim().isEmpty()) {
             throw new IllegalArgumentException("tokenType can't be null or empty");
         }
 
+        if (token.getExpiresAt() == null) {
+            throw new IllegalArgumentException("expiresAt can't be null");
+        }
+
         if (token.getIdUser() <= 0) {
             throw new IllegalArgumentException("idUser must be a positive number");
         }                
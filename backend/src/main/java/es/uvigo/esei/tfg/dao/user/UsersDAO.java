@@ -6,13 +6,17 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.sql.DataSource;
 
 
+
+import es.uvigo.esei.tfg.dao.ColumnIndex;
 import es.uvigo.esei.tfg.dao.DAO;
 import es.uvigo.esei.tfg.entities.user.Person;
 import es.uvigo.esei.tfg.entities.user.User;
@@ -26,6 +30,22 @@ import es.uvigo.esei.tfg.exceptions.DAOException;
 public class UsersDAO extends DAO {
 	private final static Logger LOG = Logger.getLogger(UsersDAO.class.getName());
 	
+	/**
+	 * Constructs a new instance of {@link UsersDAO} that uses the data source of the application.
+	 */
+	public UsersDAO() {
+		super();
+	}
+
+	/**
+	 * Constructs a new instance of {@link UsersDAO} that uses the provided data source.
+	 * 
+	 * @param dataSource the data source used to obtain the connections.
+	 */
+	public UsersDAO(DataSource dataSource) {
+		super(dataSource);
+	}
+
 	//============     CREATE     ============
 	
 
@@ -171,6 +191,24 @@ public class UsersDAO extends DAO {
 		}
 	}
 
+	/**
+	 * Returns the current token version of the user with the given identifier.
+	 * 
+	 * @param userId the identifier of the user.
+	 * @return the current token version of the user.
+	 * @throws DAOException if an error happens while retrieving the token version.
+	 * @throws IllegalArgumentException if the provided userId does not correspond to any existing user.
+	 */
+	public int getTokenVersion(long userId)
+	throws DAOException, IllegalArgumentException {
+		try (final Connection conn = this.getConnection(null)) {
+			return getTokenVersion(userId, conn);
+		} catch (SQLException e) {
+			LOG.log(Level.SEVERE, "Error getting the token version of a user", e);
+			throw new DAOException(e);
+		}
+	}
+
 	// Add specific read methods if needed
 
 	//============     UPDATE     ============
@@ -239,6 +277,43 @@ public class UsersDAO extends DAO {
 		}
 	}
 
+	/**
+	 * Sets the last login timestamps of several users in a single batch.
+	 * Users that do not exist anymore are ignored.
+	 * 
+	 * @param lastLogins the last login timestamp of each user, by user identifier.
+	 * @throws DAOException if an error happens while updating the last login timestamps.
+	 */
+	public void updateLastLogins(Map<Long, LocalDateTime> lastLogins)
+	throws DAOException {
+		if (lastLogins.isEmpty()) {
+			return;
+		}
+		
+		try (final Connection conn = this.getConnection(null)) {
+
+			// Never move a timestamp backwards if a newer one was already stored
+			final String query = "UPDATE users SET last_login = ?" +
+				" WHERE id_user = ? AND (last_login IS NULL OR last_login < ?)";
+
+			try (final PreparedStatement statement = conn.prepareStatement(query)) {
+				for (Map.Entry<Long, LocalDateTime> lastLogin : lastLogins.entrySet()) {
+					final Timestamp timestamp = Timestamp.valueOf(lastLogin.getValue());
+					statement.setTimestamp(1, timestamp);
+					statement.setLong(2, lastLogin.getKey());
+					statement.setTimestamp(3, timestamp);
+					statement.addBatch();
+				}
+				
+				statement.executeBatch();
+			}
+		
+		} catch (SQLException e) {
+			LOG.log(Level.SEVERE, "Error updating last logins", e);
+			throw new DAOException(e);
+		}
+	}
+
 	// Add specific update methods if needed
 
 	//============     DELETE     ============
@@ -312,6 +387,85 @@ public class UsersDAO extends DAO {
 		}
 	}
 
+	/**
+	 * Records a failed login attempt for the user with the given identifier and, in the same
+	 * statement, locks the account if the user had already reached the maximum number of
+	 * failed login attempts. The decision is taken by the database with the current counter,
+	 * so concurrent attempts can not skip the lock.
+	 * 
+	 * @param userId the identifier of the user for which to record the failed login attempt.
+	 * @param maxFailedAttempts the number of failed login attempts allowed before locking the account.
+	 * @throws DAOException if an error happens while recording the failed login attempt.
+	 * @throws IllegalArgumentException if the provided userId does not correspond to any existing user.
+	 */
+	public void recordFailedLoginAttempt(long userId, int maxFailedAttempts)
+	throws DAOException, IllegalArgumentException {
+		try (final Connection conn = this.getConnection(null)) {
+
+			// blocked is assigned first so it sees the counter before the increment in every database
+			final String query = "UPDATE users SET" +
+				" blocked = (blocked OR failed_login_attempts >= ?)," +
+				" failed_login_attempts = failed_login_attempts + 1" +
+				" WHERE id_user = ?";
+
+			try (final PreparedStatement statement = conn.prepareStatement(query)) {				
+				statement.setInt(1, maxFailedAttempts);
+				statement.setLong(2, userId);
+				
+				if (statement.executeUpdate() != 1) {
+					throw new IllegalArgumentException("Could not record failed login attempt, no rows affected");
+				}			
+			}
+
+		} catch (SQLException e) {
+			LOG.log(Level.SEVERE, "Error recording failed login attempt", e);
+			throw new DAOException(e);
+		}
+	}
+
+	/**
+	 * Increments the token version of the user with the given identifier,
+	 * so all the tokens issued to the user until now are no longer valid.
+	 * 
+	 * @param userId the identifier of the user.
+	 * @return the new token version of the user.
+	 * @throws DAOException if an error happens while incrementing the token version.
+	 * @throws IllegalArgumentException if the provided userId does not correspond to any existing user.
+	 */
+	public int incrementTokenVersion(long userId)
+	throws DAOException, IllegalArgumentException {
+		return incrementTokenVersion(userId, null);
+	}
+
+	public int incrementTokenVersion(long userId, Connection externalConnection)
+	throws DAOException, IllegalArgumentException {
+		boolean isExternalConnection = isExternalConnection(externalConnection);
+		Connection conn = null;
+
+		try {
+			conn = this.getConnection(externalConnection);
+
+			final String query = "UPDATE users SET token_version = token_version + 1 WHERE id_user = ?";
+
+			try (final PreparedStatement statement = conn.prepareStatement(query)) {
+				statement.setLong(1, userId);
+				
+				if (statement.executeUpdate() != 1) {
+					throw new IllegalArgumentException("Could not increment token version, no rows affected");
+				}
+			}
+
+			return getTokenVersion(userId, conn);
+
+		} catch (SQLException e) {
+			LOG.log(Level.SEVERE, "Error incrementing the token version of a user", e);
+			throw new DAOException(e);
+
+		} finally {
+			closeConnection(conn, isExternalConnection);
+		}
+	}
+
 	/**
 	 * Resets the failed login attempts counter for the user with the given identifier. 
 	 * This method sets the failed login attempts counter to zero.
@@ -468,40 +622,50 @@ public class UsersDAO extends DAO {
 	 */
 	private User rowToEntity(ResultSet result) throws SQLException {
 
-		Set<String> columnNames = this.getColumnNames(result);
+		final ColumnIndex columns = new ColumnIndex(result);
 
-		Person person = extractPerson(result, columnNames);
+		Person person = extractPerson(result, columns);
 
 		User user = new User(
-			result.getLong("id_user"),
-			result.getString("username"),
-			result.getString("password_hash"),
-			result.getString("email"),
-			result.getString("role"),
+			result.getLong(columns.require("id_user")),
+			result.getString(columns.require("username")),
+			result.getString(columns.require("password_hash")),
+			result.getString(columns.require("email")),
+			result.getString(columns.require("role")),
 			person				
 		);
 
-		if (columnNames.contains("active")) {
-			user.setActive(result.getBoolean("active"));
+		final int active = columns.of("active");
+		if (active != ColumnIndex.ABSENT) {
+			user.setActive(result.getBoolean(active));
+		}
+
+		final int blocked = columns.of("blocked");
+		if (blocked != ColumnIndex.ABSENT) {
+			user.setBlocked(result.getBoolean(blocked));
 		}
 
-		if (columnNames.contains("blocked")) {
-			user.setBlocked(result.getBoolean("blocked"));
+		final int failedLoginAttempts = columns.of("failed_login_attempts");
+		if (failedLoginAttempts != ColumnIndex.ABSENT) {
+			user.setFailedLoginAttempts(result.getInt(failedLoginAttempts));
 		}
 
-		if (columnNames.contains("failed_login_attempts")) {
-			user.setFailedLoginAttempts(result.getInt("failed_login_attempts"));
+		final int tokenVersion = columns.of("token_version");
+		if (tokenVersion != ColumnIndex.ABSENT) {
+			user.setTokenVersion(result.getInt(tokenVersion));
 		}
 
-		if (columnNames.contains("creation_date")) {
-			Timestamp createdAt = result.getTimestamp("creation_date");
+		final int creationDate = columns.of("creation_date");
+		if (creationDate != ColumnIndex.ABSENT) {
+			Timestamp createdAt = result.getTimestamp(creationDate);
 			if (createdAt != null) {
 				user.setCreationDate(createdAt.toLocalDateTime());
 			}
 		}
 
-		if (columnNames.contains("last_login")) {
-			Timestamp lastLogin = result.getTimestamp("last_login");
+		final int lastLoginColumn = columns.of("last_login");
+		if (lastLoginColumn != ColumnIndex.ABSENT) {
+			Timestamp lastLogin = result.getTimestamp(lastLoginColumn);
 			if (lastLogin != null) {
 				user.setLastLogin(lastLogin.toLocalDateTime());
 			}
@@ -511,18 +675,37 @@ public class UsersDAO extends DAO {
 	}
 
 
-	private Person extractPerson(ResultSet result, Set<String> columnNames)
+	private int getTokenVersion(long userId, Connection conn)
+	throws SQLException, IllegalArgumentException {
+		final String query = "SELECT token_version FROM users WHERE id_user = ?";
+
+		try (final PreparedStatement statement = conn.prepareStatement(query)) {
+			statement.setLong(1, userId);
+
+			try (final ResultSet result = statement.executeQuery()) {
+				if (result.next()) {
+					return result.getInt("token_version");
+				} else {
+					throw new IllegalArgumentException("Invalid id");
+				}
+			}
+		}
+	}
+
+	private Person extractPerson(ResultSet result, ColumnIndex columns)
 	throws SQLException {
 		String prefix = "person_";
-		String id = result.getString("person_id");
+		String id = result.getString(columns.require("person_id"));
 		Person person = new Person(Long.parseLong(id));
 
-		if (columnNames.contains(prefix + "name")) {
-			person.setName(result.getString(prefix + "name"));
+		final int name = columns.of(prefix + "name");
+		if (name != ColumnIndex.ABSENT) {
+			person.setName(result.getString(name));
 		}
 
-		if (columnNames.contains(prefix + "surname")) {
-			person.setSurname(result.getString(prefix + "surname"));
+		final int surname = columns.of(prefix + "surname");
+		if (surname != ColumnIndex.ABSENT) {
+			person.setSurname(result.getString(surname));
 		}
 
 		return person;
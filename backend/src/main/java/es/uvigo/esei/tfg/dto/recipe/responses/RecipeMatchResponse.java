@@ -0,0 +1,30 @@
+package es.uvigo.esei.tfg.dto.recipe.responses;
+
+/**
+ * A DTO that represents a recipe found from a set of available ingredients.
+ * 
+ * Contains the summary of the recipe and how many of its ingredients
+ * are not among the available ones.
+ */
+public class RecipeMatchResponse {
+
+    private RecipeSummaryResponse recipe;
+    private int missingIngredients;
+
+    // Constructor needed for JSON conversion
+    public RecipeMatchResponse() {}
+
+    public RecipeMatchResponse(RecipeSummaryResponse recipe, int missingIngredients) {
+        this.recipe = recipe;
+        this.missingIngredients = missingIngredients;
+    }
+
+    // Getters and setters
+
+    public RecipeSummaryResponse getRecipe() { return recipe; }
+    public void setRecipe(RecipeSummaryResponse recipe) { this.recipe = recipe; }
+
+    public int getMissingIngredients() { return missingIngredients; }
+    public void setMissingIngredients(int missingIngredients) { this.missingIngredients = missingIngredients; }
+
+}
@@ -0,0 +1,33 @@
+package es.uvigo.esei.tfg.dto.recipe.responses;
+
+import java.util.List;
+
+/**
+ * A DTO that represents a page of recipe summaries.
+ * 
+ * Used in list endpoints with keyset pagination. The {@code nextCursor}
+ * must be sent back to obtain the following page, and is {@code null}
+ * when there are no more recipes.
+ */
+public class RecipePageResponse {
+
+    private List<RecipeSummaryResponse> items;
+    private String nextCursor;
+
+    // Constructor needed for JSON conversion
+    public RecipePageResponse() {}
+
+    public RecipePageResponse(List<RecipeSummaryResponse> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and setters
+
+    public List<RecipeSummaryResponse> getItems() { return items; }
+    public void setItems(List<RecipeSummaryResponse> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+}
@@ -2,54 +2,59 @@ package es.uvigo.esei.tfg.entities.user;
 
 import static java.util.Objects.requireNonNull;
 
+import java.time.LocalDateTime;
+
 /**
  * This class represents a token that is used for authentication and authorization purposes.
- * It contains information about the token itself, its type, whether it is expired or revoked, 
- * and the ID of the user it belongs to.
+ * It contains the SHA-256 digest of the token, as tokens are never stored in clear, its type,
+ * whether it is expired or revoked, when it expires, and the ID of the user it belongs to.
  */
 public class Token {
     
     private long id;
-    private String token;
+    private byte[] tokenHash;
     private String tokenType;
     private boolean expired;
     private boolean revoked;
+    private LocalDateTime expiresAt;
     private long idUser;
 
     // Constructor needed for the JSON conversion
     public Token() {}
 
     public Token(
-        String token,
+        byte[] tokenHash,
         String tokenType,
         long idUser
     ) {
-        this.token = token;
+        this.tokenHash = tokenHash;
         this.tokenType = tokenType;
         this.idUser = idUser;
     }
 
     public Token(
         long id,
-        String token,
+        byte[] tokenHash,
         String tokenType,
         boolean expired,
         boolean revoked,
+        LocalDateTime expiresAt,
         long idUser
     ) {
         this.id = id;
-        this.token = token;
+        this.tokenHash = tokenHash;
         this.tokenType = tokenType;
         this.expired = expired;
         this.revoked = revoked;
+        this.expiresAt = expiresAt;
         this.idUser = idUser;
     }
 
     public long getId() { return id; }
     public void setId(long id) { this.id = id; }
 
-    public String getToken() { return token; }
-    public void setToken(String token) { this.token = requireNonNull(token); }
+    public byte[] getTokenHash() { return tokenHash; }
+    public void setTokenHash(byte[] tokenHash) { this.tokenHash = requireNonNull(tokenHash); }
 
     public String getTokenType() { return tokenType; }
     public void setTokenType(String tokenType) { this.tokenType = requireNonNull(tokenType); }
@@ -60,6 +65,9 @@ public class Token {
     public boolean isRevoked() { return revoked; }
     public void setRevoked(boolean revoked) { this.revoked = revoked; }
 
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = requireNonNull(expiresAt); }
+
     public long getIdUser() { return idUser; }
     public void setIdUser(long idUser) { this.idUser = idUser; }
 
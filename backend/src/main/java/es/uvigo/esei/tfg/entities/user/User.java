@@ -17,6 +17,7 @@ public class User {
 	private boolean active;
 	private boolean blocked;
 	private int failedLoginAttempts;
+	private int tokenVersion;
 	private LocalDateTime creationDate;
 	private LocalDateTime lastLogin;
 	private Person person;
@@ -90,6 +91,11 @@ public class User {
 		this.failedLoginAttempts = failedLoginAttempts;
 	}
 
+	public int getTokenVersion() { return tokenVersion; }
+	public void setTokenVersion(int tokenVersion) {
+		this.tokenVersion = tokenVersion;
+	}
+
 	public LocalDateTime getCreationDate() { return creationDate; }
 	public void setCreationDate(LocalDateTime creationDate) {
 		this.creationDate = requireNonNull(creationDate, "Creation date can't be null");
@@ -1,5 +1,7 @@
 package es.uvigo.esei.tfg.rest;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -10,8 +12,12 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
 
 import es.uvigo.esei.tfg.dto.auth.LoginRequest;
 import es.uvigo.esei.tfg.dto.ErrorResponse;
@@ -22,8 +28,11 @@ import es.uvigo.esei.tfg.exceptions.AccountBlockedException;
 import es.uvigo.esei.tfg.exceptions.AuthenticationException;
 import es.uvigo.esei.tfg.exceptions.ValidationException;
 import es.uvigo.esei.tfg.exceptions.DAOException;
+import es.uvigo.esei.tfg.security.JwtPrincipal;
+import es.uvigo.esei.tfg.security.RateLimited;
 import es.uvigo.esei.tfg.security.Secured;
 import es.uvigo.esei.tfg.services.user.AuthService;
+import es.uvigo.esei.tfg.services.user.PasswordHashingExecutor;
 
 /**
  * REST resource for authentication.
@@ -33,23 +42,30 @@ import es.uvigo.esei.tfg.services.user.AuthService;
 public class AuthResource extends BaseResource {
     private final static Logger LOG = Logger.getLogger(AuthResource.class.getName());
 
-    private final AuthService authService;
+    // Seconds a client should wait before retrying when the hashing pool is busy
+    private final static int RETRY_AFTER_SECONDS = 1;
 
-    public AuthResource() {
-        this(new AuthService());
-    }
+    private final AuthService authService;
+    private final PasswordHashingExecutor hashingExecutor;
 
-    public AuthResource(AuthService authService) {
+    public AuthResource(AuthService authService, PasswordHashingExecutor hashingExecutor) {
         this.authService = authService;
+        this.hashingExecutor = hashingExecutor;
     }
 
     @POST
+    @RateLimited
     @Path("/register")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response register(
-        RegisterRequest request
+    public void register(
+        RegisterRequest request,
+        @Suspended AsyncResponse asyncResponse
     ) {
+        runOnHashingPool(asyncResponse, () -> doRegister(request));
+    }
+
+    private Response doRegister(RegisterRequest request) {
         try {
             AuthResponse registerResponse = this.authService.register(request);
             return ok(registerResponse);
@@ -68,12 +84,18 @@ public class AuthResource extends BaseResource {
     }    
 
     @POST
+    @RateLimited
     @Path("/login")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response login(
-        LoginRequest request
+    public void login(
+        LoginRequest request,
+        @Suspended AsyncResponse asyncResponse
     ) {
+        runOnHashingPool(asyncResponse, () -> doLogin(request));
+    }
+
+    private Response doLogin(LoginRequest request) {
         try {
             final AuthResponse loginResponse = this.authService.login(request);
             return ok(loginResponse);
@@ -100,13 +122,14 @@ public class AuthResource extends BaseResource {
 
     @POST
     @Secured
+    @Transactional
     @Path("/logout")
     @Produces(MediaType.APPLICATION_JSON)
     public Response logout(
-        @HeaderParam("Authorization") String authHeader
+        @Context SecurityContext securityContext
     ) {
         try {
-            this.authService.logout(authHeader);
+            this.authService.logout((JwtPrincipal) securityContext.getUserPrincipal());
             return ok();
 
         } catch (IllegalArgumentException iae) {
@@ -121,14 +144,22 @@ public class AuthResource extends BaseResource {
     }
 
     @POST
-    @Secured
+    @Secured(refreshToken = true)
+    @RateLimited
     @Path("/refresh")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response refreshToken(
-        @HeaderParam("Authorization") String authHeader
+    public void refreshToken(
+        @Context SecurityContext securityContext,
+        @HeaderParam("Authorization") String authHeader,
+        @Suspended AsyncResponse asyncResponse
     ) { 
+        final JwtPrincipal principal = (JwtPrincipal) securityContext.getUserPrincipal();
+        runOnHashingPool(asyncResponse, () -> doRefreshToken(principal, authHeader));
+    }
+
+    private Response doRefreshToken(JwtPrincipal principal, String authHeader) {
         try {
-            TokenResponse tokenResponse = this.authService.refreshToken(authHeader);
+            TokenResponse tokenResponse = this.authService.refreshToken(principal, authHeader);
             return ok(tokenResponse);             
         
         } catch (IllegalArgumentException iae) {
@@ -141,6 +172,23 @@ public class AuthResource extends BaseResource {
         }
     }
 
-}
-
+    /**
+     * Builds the response of a request in the password hashing pool, releasing the request thread
+     * meanwhile. If the pool is busy, the request is answered right away with a 503 Service Unavailable.
+     */
+    private void runOnHashingPool(AsyncResponse asyncResponse, Supplier<Response> task) {
+        try {
+            hashingExecutor.execute(() -> {
+                try {
+                    asyncResponse.resume(task.get());
+                } catch (RuntimeException e) {
+                    asyncResponse.resume(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.log(Level.WARNING, "Password hashing pool is full, rejecting request");
+            asyncResponse.resume(serviceUnavailable("Server busy, please retry later", RETRY_AFTER_SECONDS));
+        }
+    }
 
+}
@@ -2,6 +2,7 @@ package es.uvigo.esei.tfg.rest;
 
 import java.util.Map;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import es.uvigo.esei.tfg.dto.ErrorResponse;
@@ -121,6 +122,20 @@ public abstract class BaseResource {
         return forbidden("Forbidden");
     }
 
+    // SERVICE UNAVAILABLE RESPONSES
+
+    protected Response serviceUnavailable(String code, String message, int retryAfterSeconds) {
+        return Response
+            .status(Response.Status.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+            .entity(new ErrorResponse(code, message))
+            .build();
+    }
+
+    protected Response serviceUnavailable(String message, int retryAfterSeconds) {
+        return serviceUnavailable("UNAVAIL_001", message, retryAfterSeconds);
+    }
+
     // INTERNAL SERVER ERROR RESPONSES
 
     protected Response internalServerError(String code, String message, Map<String, Object> details) {
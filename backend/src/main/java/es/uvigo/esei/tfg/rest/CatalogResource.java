@@ -1,7 +1,5 @@
 package es.uvigo.esei.tfg.rest;
 
-import java.util.LinkedList;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -11,64 +9,55 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
-import es.uvigo.esei.tfg.dao.catalog.IngredientCategoryDAO;
-import es.uvigo.esei.tfg.dao.catalog.IngredientDAO;
-import es.uvigo.esei.tfg.dao.catalog.MeasurementUnitDAO;
-import es.uvigo.esei.tfg.dto.catalog.IngredientCategoryResponse;
-import es.uvigo.esei.tfg.dto.catalog.IngredientResponse;
-import es.uvigo.esei.tfg.dto.catalog.MeasurementUnitResponse;
-import es.uvigo.esei.tfg.entities.catalog.Ingredient;
-import es.uvigo.esei.tfg.entities.catalog.IngredientCategory;
-import es.uvigo.esei.tfg.entities.catalog.MeasurementUnit;
 import es.uvigo.esei.tfg.entities.catalog.MeasurementUnit.UnitType;
 import es.uvigo.esei.tfg.exceptions.DAOException;
+import es.uvigo.esei.tfg.exceptions.ValidationException;
 import es.uvigo.esei.tfg.security.Secured;
+import es.uvigo.esei.tfg.services.catalog.CachedJson;
+import es.uvigo.esei.tfg.services.catalog.CatalogCache;
+import es.uvigo.esei.tfg.services.catalog.IngredientSuggestionService;
 
 @Secured
+@Transactional
 @Path("/catalog")
 @Produces(MediaType.APPLICATION_JSON)
 public class CatalogResource extends BaseResource {
     private final static Logger LOG = Logger.getLogger(CatalogResource.class.getName());
 
-    private final IngredientCategoryDAO ingredientCategoryDAO;
-    private final IngredientDAO ingredientDAO;
-    private final MeasurementUnitDAO measurementUnitDAO;
+    // Seconds a client may reuse a catalog response before revalidating it
+    private final static int CACHE_MAX_AGE = 300;
+
+    private final CatalogCache catalogCache;
+    private final IngredientSuggestionService ingredientSuggestionService;
 
     public CatalogResource() {
-        this.ingredientCategoryDAO = new IngredientCategoryDAO();
-        this.ingredientDAO = new IngredientDAO();
-        this.measurementUnitDAO = new MeasurementUnitDAO();
+        this(CatalogCache.getInstance(), new IngredientSuggestionService());
     }
 
-    CatalogResource(IngredientCategoryDAO ingredientCategoryDAO, IngredientDAO ingredientDAO, MeasurementUnitDAO measurementUnitDAO) {
-        this.ingredientCategoryDAO = ingredientCategoryDAO;
-        this.ingredientDAO = ingredientDAO;
-        this.measurementUnitDAO = measurementUnitDAO;
+    public CatalogResource(CatalogCache catalogCache, IngredientSuggestionService ingredientSuggestionService) {
+        this.catalogCache = catalogCache;
+        this.ingredientSuggestionService = ingredientSuggestionService;
     }
 
     @GET
     @Path("/categories")
-    public Response listCategories() {
+    public Response listCategories(@Context Request request) {
         try {
-            List<IngredientCategory> categories = ingredientCategoryDAO.list();
+            CachedJson categories = catalogCache.getCategories();
 
-            if (categories == null || categories.isEmpty()) {
+            if (categories == null) {
                 return notFound("No ingredient categories found");
             }
 
-            List<IngredientCategoryResponse> response = new LinkedList<>();
-            for ( IngredientCategory category : categories) {
-                response.add(new IngredientCategoryResponse(
-                    category.getId(),
-                    category.getName(),
-                    category.getDescription()
-                ));
-            }        
-
-            return ok(response);
+            return cached(request, categories);
 
         } catch (DAOException e) {
             LOG.log(Level.SEVERE, "Error fetching ingredient categories", e);
@@ -80,34 +69,22 @@ public class CatalogResource extends BaseResource {
     @GET
     @Path("/units")
     public Response listUnits(
+        @Context Request request,
         @QueryParam("type") String type
     ) {
         try {
-            List<MeasurementUnit> units;
+            UnitType unitType = null;
 
             if (type != null && !type.trim().isEmpty()) {
                 try {
-                    UnitType unitType = UnitType.valueOf(type.toUpperCase());
-                    units = measurementUnitDAO.getByType(unitType);
+                    unitType = UnitType.valueOf(type.toUpperCase());
                 } catch (IllegalArgumentException iae) {
                     LOG.log(Level.FINE, "Invalid unit type provided: " + type, iae);
                     return badRequest("Invalid unit type: " + type + ". Valid types are: MASS, VOLUME, COUNT, OTHER");
                 }
-            } else {
-                units = measurementUnitDAO.list();
             }
 
-            List<MeasurementUnitResponse> response = new LinkedList<>();
-            for (MeasurementUnit unit : units) {
-                response.add(new MeasurementUnitResponse(
-                    unit.getId(),
-                    unit.getName(),
-                    unit.getAbbreviation(),
-                    unit.getType().name()
-                ));
-            }   
-
-            return ok(response);
+            return cached(request, catalogCache.getUnits(unitType));
         
         } catch (DAOException e) {
             LOG.log(Level.SEVERE, "Error fetching measurement units", e);
@@ -115,31 +92,38 @@ public class CatalogResource extends BaseResource {
         }
     }
 
+    /**
+     * Lists the ingredients of the catalog. When a search text is provided, only the best 
+     * suggestions for it are returned, which are served from memory as the text is typed.
+     *
+     * @param request The request, used to check its cache validators.
+     * @param search Optional query parameter with the (partially typed) name of the ingredient.
+     * @param limit Optional query parameter with the maximum number of suggestions to return.
+     * @return A Response containing the ingredients or an error message.
+     */
     @GET
     @Path("/ingredients")
     public Response listIngredients(
-        @QueryParam("search") String search
+        @Context Request request,
+        @QueryParam("search") String search,
+        @QueryParam("limit") Integer limit
     ) {
-        try {
-            List<Ingredient> ingredients;
+        if (search != null && !search.trim().isEmpty()) {
+            try {
+                return ok(ingredientSuggestionService.suggest(search, limit));
 
-            if (search != null && !search.trim().isEmpty()) {
-                ingredients = ingredientDAO.search(search.trim());
-            } else {
-                ingredients = ingredientDAO.list();
-            }
+            } catch (ValidationException ve) {
+                LOG.log(Level.FINE, "Invalid parameters suggesting ingredients: " + ve.getMessage(), ve);
+                return badRequest(ve.getMessage());
 
-            List<IngredientResponse> response = new LinkedList<>();
-            for (Ingredient ingredient : ingredients) {
-                response.add(new IngredientResponse(
-                    ingredient.getId(),
-                    ingredient.getName(),
-                    ingredient.getCategory() != null ? ingredient.getCategory().getId() : null,
-                    ingredient.getCategory() != null ? ingredient.getCategory().getName() : null
-                ));
+            } catch (DAOException e) {
+                LOG.log(Level.SEVERE, "Error suggesting ingredients", e);
+                return internalServerError("Failed to fetch ingredients");
             }
+        }
 
-            return ok(response);
+        try {
+            return cached(request, catalogCache.getIngredients());
 
         } catch (DAOException e) {
             LOG.log(Level.SEVERE, "Error fetching ingredients", e);
@@ -147,4 +131,25 @@ public class CatalogResource extends BaseResource {
         }
     }
 
+    /**
+     * Builds the response for a cached catalog document. Clients may keep it for a while and then
+     * revalidate it with its entity tag, getting a 304 Not Modified response if it did not change.
+     */
+    private Response cached(Request request, CachedJson json) {
+        final EntityTag entityTag = new EntityTag(json.getEntityTag());
+        final CacheControl cacheControl = new CacheControl();
+        cacheControl.setPrivate(true);
+        cacheControl.setMaxAge(CACHE_MAX_AGE);
+
+        ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.tag(entityTag).cacheControl(cacheControl).build();
+        }
+
+        return Response.ok(json.getBody(), MediaType.APPLICATION_JSON_TYPE)
+            .tag(entityTag)
+            .cacheControl(cacheControl)
+            .build();
+    }
+
 }
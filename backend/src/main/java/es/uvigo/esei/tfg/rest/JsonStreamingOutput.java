@@ -0,0 +1,70 @@
+package es.uvigo.esei.tfg.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.uvigo.esei.tfg.exceptions.DAOException;
+
+/**
+ * {@link StreamingOutput} that writes a JSON document incrementally with a Jackson
+ * {@link JsonGenerator}. Used by the list endpoints so each row is serialized and sent
+ * while the results are being read from the database, instead of building the whole
+ * list (and its DTO copy) in memory before serializing it.
+ */
+public class JsonStreamingOutput implements StreamingOutput {
+    private final static Logger LOG = Logger.getLogger(JsonStreamingOutput.class.getName());
+
+    // The container owns the output stream, and a failed listing must not be closed as if it were complete
+    private final static ObjectMapper MAPPER = new ObjectMapper()
+        .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+        .configure(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT, false);
+
+    /**
+     * Writes the content of the JSON document.
+     */
+    @FunctionalInterface
+    public interface JsonWriter {
+        void write(JsonGenerator generator) throws IOException, DAOException;
+    }
+
+    private final JsonWriter writer;
+
+    public JsonStreamingOutput(JsonWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Creates a streaming output that writes a JSON array with the elements produced by the given writer.
+     * 
+     * @param elementsWriter writes the elements of the array.
+     * @return the streaming output.
+     */
+    public static JsonStreamingOutput array(JsonWriter elementsWriter) {
+        return new JsonStreamingOutput(generator -> {
+            generator.writeStartArray();
+            elementsWriter.write(generator);
+            generator.writeEndArray();
+        });
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        try (final JsonGenerator generator = MAPPER.getFactory().createGenerator(output)) {
+            writer.write(generator);
+        } catch (DAOException e) {
+            // If nothing was flushed yet the client still gets a 500, otherwise the response is aborted
+            LOG.log(Level.SEVERE, "Error streaming JSON response", e);
+            throw new WebApplicationException(e, Response.Status.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+}
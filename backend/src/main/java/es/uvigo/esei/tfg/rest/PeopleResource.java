@@ -23,6 +23,7 @@ import es.uvigo.esei.tfg.exceptions.DAOException;
  * 
  * @author DRM
  */
+@Transactional
 @Path("/people")
 @Produces(MediaType.APPLICATION_JSON)
 public class PeopleResource {
@@ -37,8 +38,12 @@ public class PeopleResource {
 		this(new PeopleDAO());
 	}
 	
-	// Needed for testing purposes
-	PeopleResource(PeopleDAO dao) {
+	/**
+	 * Constructs a new instance of {@link PeopleResource} that uses the provided DAO.
+	 * 
+	 * @param dao the DAO used to access the people.
+	 */
+	public PeopleResource(PeopleDAO dao) {
 		this.dao = dao;
 	}
 	
@@ -85,12 +90,7 @@ public class PeopleResource {
 	 */
 	@GET
 	public Response list() {
-		try {
-			return Response.ok(this.dao.list()).build();
-		} catch (DAOException e) {
-			LOG.log(Level.SEVERE, "Error listing people", e);
-			return Response.serverError().entity(e.getMessage()).build();
-		}
+		return Response.ok(JsonStreamingOutput.array(generator -> this.dao.list(generator::writeObject))).build();
 	}
 
 	/**
@@ -9,21 +9,23 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
 
 import es.uvigo.esei.tfg.exceptions.DAOException;
 import es.uvigo.esei.tfg.exceptions.ValidationException;
+import es.uvigo.esei.tfg.security.JwtPrincipal;
 import es.uvigo.esei.tfg.security.Secured;
 import es.uvigo.esei.tfg.services.recipe.RecipeManagmentService;
-import es.uvigo.esei.tfg.util.JwtUtil;
+import es.uvigo.esei.tfg.services.recipe.RecipeManagmentService.RecipePageStream;
 import es.uvigo.esei.tfg.dao.recipe.RecipeDAO;
 import es.uvigo.esei.tfg.dto.recipe.requests.AddRecipeStepRequest;
 import es.uvigo.esei.tfg.dto.recipe.requests.AddRecipeTranslationRequest;
@@ -31,7 +33,7 @@ import es.uvigo.esei.tfg.dto.recipe.requests.CreateRecipeRequest;
 import es.uvigo.esei.tfg.dto.recipe.requests.UpdateRecipeStepRequest;
 import es.uvigo.esei.tfg.dto.recipe.requests.UpdateRecipeStepTranslationRequest;
 import es.uvigo.esei.tfg.dto.recipe.responses.RecipeDetailResponse;
-import es.uvigo.esei.tfg.dto.recipe.responses.RecipeSummaryResponse;
+import es.uvigo.esei.tfg.dto.recipe.responses.RecipePageResponse;
 import es.uvigo.esei.tfg.dto.recipe.requests.UpdateRecipeTranslationRequest;
 import es.uvigo.esei.tfg.entities.recipe.Recipe;
 
@@ -39,6 +41,7 @@ import es.uvigo.esei.tfg.entities.recipe.Recipe;
  * REST resource for managing recipes.
  */
 @Secured
+@Transactional
 @Path("/recipes")
 @Produces(MediaType.APPLICATION_JSON)
 public class RecipeResource extends BaseResource {
@@ -46,19 +49,16 @@ public class RecipeResource extends BaseResource {
     private final static String DEFAULT_LOCALE = "en";
 
 	private final RecipeManagmentService recipeService;
-    private final JwtUtil jwtUtil;
 
     /**
      * Constructs a new instance of {@link RecipeResource}.
      */
     public RecipeResource() {
-        this.recipeService = new RecipeManagmentService();
-        this.jwtUtil = new JwtUtil();
+        this(new RecipeManagmentService());
     }
 
-    RecipeResource(RecipeManagmentService recipeService, JwtUtil jwtUtil) {
+    public RecipeResource(RecipeManagmentService recipeService) {
         this.recipeService = recipeService;
-        this.jwtUtil = jwtUtil;
     }
 
 //============     RECIPE ENDPOINTS     ============
@@ -68,19 +68,19 @@ public class RecipeResource extends BaseResource {
     /**
      * Creates a new recipe.
      *
-     * @param authHeader The Authorization header containing the JWT token.
+     * @param securityContext The security context with the authenticated user.
      * @param request The request body containing the recipe details.
      * @return A Response containing the created recipe details or an error message.
      */
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     public Response add(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         CreateRecipeRequest request
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            RecipeDetailResponse response = this.recipeService.createRecipe(request, username);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            RecipeDetailResponse response = this.recipeService.createRecipe(request, principal);
             return ok(response);
 
         } catch (ValidationException ve) {
@@ -103,7 +103,7 @@ public class RecipeResource extends BaseResource {
     /**
      * Retrieves a recipe by its ID.
      *
-     * @param authHeader The Authorization header containing the JWT token.
+     * @param securityContext The security context with the authenticated user.
      * @param id The ID of the recipe to retrieve.
      * @param locale Optional query parameter to specify the locale for the recipe translation.
      * @return A Response containing the recipe details or an error message.
@@ -111,13 +111,13 @@ public class RecipeResource extends BaseResource {
     @GET
     @Path("/{id}")
     public Response get(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id,
         @QueryParam("locale") String locale
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            RecipeDetailResponse response = this.recipeService.getRecipebyId(id, username, locale);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            RecipeDetailResponse response = this.recipeService.getRecipebyId(id, principal, locale);
             return ok(response);
 
         } catch (IllegalArgumentException iae) {
@@ -131,55 +131,111 @@ public class RecipeResource extends BaseResource {
     }
 
     /**
-     * Retrieves a list of recipes, optionally filtered by title or ingredient.
+     * Retrieves a page of public recipes, optionally filtered by title.
+     * When searching by title, the recipes are ranked by relevance and returned in a single page.
+     * Searching by ingredient is rejected with a 400 Bad Request pointing to {@link #match}.
      *
      * @param locale Optional query parameter to specify the locale for the recipe translations.
-     * @param title Optional query parameter to filter recipes by title.
-     * @param ingredient Optional query parameter to filter recipes by ingredient.
-     * @return A Response containing a list of recipe summaries or an error message.
+     * @param title Optional query parameter with the text to search in the title and description of the recipes.
+     * @param ingredient Not supported, only checked to reject the request.
+     * @param cursor Optional query parameter with the cursor returned with the previous page.
+     * @param limit Optional query parameter with the maximum number of recipes of the page.
+     * @return A Response containing a page of recipe summaries or an error message.
      */
     @GET
     public Response list(
         @QueryParam("locale") String locale,
         @QueryParam("title") String title,
-        @QueryParam("ingredient") String ingredient
+        @QueryParam("ingredient") String ingredient,
+        @QueryParam("cursor") String cursor,
+        @QueryParam("limit") Integer limit
     ) {
-        List<RecipeSummaryResponse> response;
         try {
-            if (title != null || ingredient != null) {
-                // Search by title or ingredient
-                response = null;
-            } else {
-                response = this.recipeService.getPublicRecipes(locale);
-            } 
+            if (title != null) {
+                return ok(this.recipeService.searchPublicRecipes(title, locale, limit));
+            } else if (ingredient != null) {
+                return badRequest("Searching recipes by ingredient is done with /recipes/match?ingredient={id}");
+            }
+
+            // Validated before streaming so an invalid request still gets a proper error response
+            RecipePageStream page = this.recipeService.streamPublicRecipes(locale, cursor, limit);
+
+            // Same shape as RecipePageResponse, written while the page is read from the database
+            return ok(new JsonStreamingOutput(generator -> {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("items");
+                String nextCursor = page.forEach(generator::writeObject);
+                generator.writeEndArray();
+                generator.writeStringField("nextCursor", nextCursor);
+                generator.writeEndObject();
+            }));
 
-            return ok(response);
+        } catch (ValidationException ve) {
+            LOG.log(Level.FINE, "Invalid parameters listing recipes: " + ve.getMessage(), ve);
+            return badRequest(ve.getMessage());
 
         } catch (DAOException e) {
-            LOG.log(Level.SEVERE, "Error listing recipes", e);
-            return internalServerError("Internal server error while listing recipes");
+            LOG.log(Level.SEVERE, "Error searching recipes", e);
+            return internalServerError("Internal server error while searching recipes");
         }
     }
 
     /**
-     * Retrieves a list of recipes created by the authenticated user, optionally filtered by locale.
+     * Finds the public recipes that can be cooked with the given ingredients. Recipes that have 
+     * all the ingredients come first, followed by the ones missing one and then two ingredients.
      *
-     * @param authHeader The Authorization header containing the JWT token.
+     * @param ingredients The IDs of the available ingredients. The parameter can be repeated.
      * @param locale Optional query parameter to specify the locale for the recipe translations.
-     * @return A Response containing a list of recipe summaries or an error message.
+     * @param limit Optional query parameter with the maximum number of recipes to return.
+     * @return A Response containing the matching recipes with their number of missing ingredients or an error message.
+     */
+    @GET
+    @Path("/match")
+    public Response match(
+        @QueryParam("ingredient") List<Long> ingredients,
+        @QueryParam("locale") String locale,
+        @QueryParam("limit") Integer limit
+    ) {
+        try {
+            return ok(this.recipeService.matchPublicRecipes(ingredients, locale, limit));
+
+        } catch (ValidationException ve) {
+            LOG.log(Level.FINE, "Invalid parameters matching recipes: " + ve.getMessage(), ve);
+            return badRequest(ve.getMessage());
+
+        } catch (DAOException e) {
+            LOG.log(Level.SEVERE, "Error matching recipes", e);
+            return internalServerError("Internal server error while matching recipes");
+        }
+    }
+
+    /**
+     * Retrieves a page of the recipes created by the authenticated user, optionally filtered by locale.
+     *
+     * @param securityContext The security context with the authenticated user.
+     * @param locale Optional query parameter to specify the locale for the recipe translations.
+     * @param cursor Optional query parameter with the cursor returned with the previous page.
+     * @param limit Optional query parameter with the maximum number of recipes of the page.
+     * @return A Response containing a page of recipe summaries or an error message.
      */
     @GET
     @Path("/my")
     public Response listMyRecipes(
-        @HeaderParam("Authorization") String authHeader,
-        @QueryParam("locale") String locale
+        @Context SecurityContext securityContext,
+        @QueryParam("locale") String locale,
+        @QueryParam("cursor") String cursor,
+        @QueryParam("limit") Integer limit
     ) {
-        List<RecipeSummaryResponse> response;
+        RecipePageResponse response;
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            response = this.recipeService.getUserRecipes(username, locale);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            response = this.recipeService.getUserRecipes(principal, locale, cursor, limit);
             return ok(response);
 
+        } catch (ValidationException ve) {
+            LOG.log(Level.FINE, "Invalid pagination parameters listing user's recipes: " + ve.getMessage(), ve);
+            return badRequest(ve.getMessage());
+
         } catch (IllegalArgumentException iae) {
             LOG.log(Level.FINE, "Invalid token or user not found: " + iae.getMessage(), iae);
             return badRequest(iae.getMessage());
@@ -196,7 +252,7 @@ public class RecipeResource extends BaseResource {
     /**
      * Updates an existing recipe (general fields + ingredients).
      *
-     * @param authHeader The Authorization header containing the JWT token.
+     * @param securityContext The security context with the authenticated user.
      * @param id The ID of the recipe to update.
      * @param request The request object containing the updated recipe details.
      * @return A Response containing the updated recipe details or an error message.
@@ -205,13 +261,13 @@ public class RecipeResource extends BaseResource {
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
     public Response update(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id,
         CreateRecipeRequest request
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            RecipeDetailResponse response = this.recipeService.updateRecipe(id, request, username);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            RecipeDetailResponse response = this.recipeService.updateRecipe(id, request, principal);
             return ok(response);
         
         } catch (ValidationException ve) {
@@ -231,7 +287,7 @@ public class RecipeResource extends BaseResource {
     /**
      * Updates the visibility of a recipe (public/private).
      *
-     * @param authHeader The Authorization header containing the JWT token.
+     * @param securityContext The security context with the authenticated user.
      * @param id The ID of the recipe to update.
      * @param isPublic The new visibility status of the recipe (true for public, false for private).
      * @return A Response indicating success or containing an error message.
@@ -239,13 +295,13 @@ public class RecipeResource extends BaseResource {
     @PUT
     @Path("/{id}/visibility")
     public Response updateVisibility(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id,
         @QueryParam("public") boolean isPublic
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            this.recipeService.updateVisibility(id, isPublic, username);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            this.recipeService.updateVisibility(id, isPublic, principal);
             return ok();
 
         } catch (IllegalArgumentException iae) {
@@ -264,19 +320,19 @@ public class RecipeResource extends BaseResource {
     /**
      * Deletes an existing recipe.
      *
-     * @param authHeader The Authorization header containing the JWT token.
+     * @param securityContext The security context with the authenticated user.
      * @param id The ID of the recipe to delete.
      * @return A Response indicating success or containing an error message.
      */
     @DELETE
     @Path("/{id}")  
     public Response delete(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            recipeService.deleteRecipe(id, username);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            recipeService.deleteRecipe(id, principal);
             return ok(id);
 
         } catch (IllegalArgumentException iae) {
@@ -296,7 +352,7 @@ public class RecipeResource extends BaseResource {
     /**
      * Adds a new translation to an existing recipe.
      *
-     * @param authHeader The Authorization header containing the JWT token.
+     * @param securityContext The security context with the authenticated user.
      * @param id The ID of the recipe to which the translation will be added.
      * @param request The request object containing the details of the translation to be added.
      * @return A Response indicating success or containing an error message.
@@ -305,13 +361,13 @@ public class RecipeResource extends BaseResource {
     @Consumes(MediaType.APPLICATION_JSON)
     @Path("/{id}/translations")
     public Response addTranslation(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id,
         AddRecipeTranslationRequest request
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            RecipeDetailResponse response = this.recipeService.addRecipeTranslation(id, request, username);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            RecipeDetailResponse response = this.recipeService.addRecipeTranslation(id, request, principal);
             return ok(response);
 
         } catch (ValidationException ve) {
@@ -334,7 +390,7 @@ public class RecipeResource extends BaseResource {
     /**
     * Updates an existing translation of a recipe.
     *
-    * @param authHeader The Authorization header containing the JWT token.
+    * @param securityContext The security context with the authenticated user.
     * @param id The ID of the recipe whose translation will be updated.
     * @param locale The locale of the translation to be updated.
     * @param request The request object containing the updated details of the translation.
@@ -344,14 +400,14 @@ public class RecipeResource extends BaseResource {
     @Path("/{id}/translation/{locale}")
     @Consumes(MediaType.APPLICATION_JSON)
     public Response updateTranslation(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id,
         @PathParam("locale") String locale,
         UpdateRecipeTranslationRequest request
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            RecipeDetailResponse response = this.recipeService.updateRecipeTranslation(id, locale, request, username);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            RecipeDetailResponse response = this.recipeService.updateRecipeTranslation(id, locale, request, principal);
             return ok(response);
 
         } catch (ValidationException ve) {
@@ -374,7 +430,7 @@ public class RecipeResource extends BaseResource {
     /**
      * Deletes an existing translation of a recipe.
      *
-     * @param authHeader The Authorization header containing the JWT token.
+     * @param securityContext The security context with the authenticated user.
      * @param id The ID of the recipe whose translation will be deleted.
      * @param locale The locale of the translation to be deleted.
      * @return A Response indicating success or containing an error message.
@@ -382,13 +438,13 @@ public class RecipeResource extends BaseResource {
     @DELETE
     @Path("/{id}/translation/{locale}")
     public Response deleteTranslation(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id,
         @PathParam("locale") String locale
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            recipeService.deleteRecipeTranslation(id, locale, username);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            recipeService.deleteRecipeTranslation(id, locale, principal);
             return ok();
 
         } catch (ValidationException ve) {
@@ -414,7 +470,7 @@ public class RecipeResource extends BaseResource {
     /**
      * Adds a new step to an existing recipe.
      *
-     * @param authHeader The Authorization header containing the JWT token.
+     * @param securityContext The security context with the authenticated user.
      * @param id The ID of the recipe to which the step will be added.
      * @param request The request object containing the details of the step to be added.
      * @return A Response indicating success or containing an error message.
@@ -423,13 +479,13 @@ public class RecipeResource extends BaseResource {
     @Path("/{id}/steps")
     @Consumes(MediaType.APPLICATION_JSON)
     public Response addStep(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id,
         AddRecipeStepRequest request
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            RecipeDetailResponse response = recipeService.addRecipeStep(id, request, username);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            RecipeDetailResponse response = recipeService.addRecipeStep(id, request, principal);
             return ok(response);
 
         } catch (ValidationException ve) {
@@ -453,15 +509,15 @@ public class RecipeResource extends BaseResource {
     @Path("/{id}/steps/{stepId}")
     @Consumes(MediaType.APPLICATION_JSON)
     public Response updateStep(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id,
         @PathParam("stepId") long stepId,
         @QueryParam("locale") String locale,
         UpdateRecipeStepRequest request
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            RecipeDetailResponse response = recipeService.updateRecipeStep(id, stepId, request, username, locale);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            RecipeDetailResponse response = recipeService.updateRecipeStep(id, stepId, request, principal, locale);
             return ok(response);
 
         } catch (ValidationException ve) {
@@ -484,14 +540,14 @@ public class RecipeResource extends BaseResource {
     @DELETE
     @Path("/{id}/steps/{stepId}")
     public Response deleteStep(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id,
         @PathParam("stepId") long stepId,
         @QueryParam("locale") String locale
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            RecipeDetailResponse response = recipeService.deleteRecipeStep(id, stepId, username, locale);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            RecipeDetailResponse response = recipeService.deleteRecipeStep(id, stepId, principal, locale);
             return ok(response);
 
         } catch (IllegalArgumentException iae) {
@@ -513,15 +569,15 @@ public class RecipeResource extends BaseResource {
     @Path("/{id}/steps/{stepId}/translation/{locale}")
     @Consumes(MediaType.APPLICATION_JSON)
     public Response updateStepTranslation(
-        @HeaderParam("Authorization") String authHeader,
+        @Context SecurityContext securityContext,
         @PathParam("id") long id,
         @PathParam("stepId") long stepId,
         @PathParam("locale") String locale,
         UpdateRecipeStepTranslationRequest request
     ) {
         try {
-            String username = obtainUsernameFromAuthHeader(authHeader);
-            RecipeDetailResponse response = recipeService.updateRecipeStepTranslation(id, stepId, locale, request, username);
+            JwtPrincipal principal = authenticatedUser(securityContext);
+            RecipeDetailResponse response = recipeService.updateRecipeStepTranslation(id, stepId, locale, request, principal);
             return ok(response);
 
         } catch (ValidationException ve) {
@@ -540,12 +596,9 @@ public class RecipeResource extends BaseResource {
 
 //============     HELPER METHODS     ============
 
-    private String obtainUsernameFromAuthHeader(String authHeader) {
-        String token = jwtUtil.extractTokenFromHeader(authHeader);
-        if (token == null) {
-            throw new IllegalArgumentException("Invalid Authorization header format");
-        }
-        return jwtUtil.getUsernameFromToken(token);
+    private JwtPrincipal authenticatedUser(SecurityContext securityContext) {
+        // Set by JwtAuthenticationFilter once the token has been verified
+        return (JwtPrincipal) securityContext.getUserPrincipal();
     }
 
 }
@@ -0,0 +1,16 @@
+package es.uvigo.esei.tfg.rest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import javax.ws.rs.NameBinding;
+
+/**
+ * Marks the endpoints whose requests run in a single {@link es.uvigo.esei.tfg.dao.UnitOfWork},
+ * opened and closed by {@link UnitOfWorkFilter}.
+ */
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Transactional {}
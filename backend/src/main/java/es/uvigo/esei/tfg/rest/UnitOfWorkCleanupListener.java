@@ -0,0 +1,55 @@
+package es.uvigo.esei.tfg.rest;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ws.rs.ext.Provider;
+
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import es.uvigo.esei.tfg.dao.UnitOfWork;
+import es.uvigo.esei.tfg.exceptions.DAOException;
+
+/**
+ * Closes the unit of work opened by {@link UnitOfWorkFilter} once its request is finished, when
+ * the response filter did not close it. That happens when the request ends with an exception
+ * that is not mapped to a response (e.g. a {@link NullPointerException}), which skips the response
+ * filters. The changes of those units of work are rolled back, and their connections are returned
+ * instead of being left bound to the thread for the next request.
+ */
+@Provider
+public class UnitOfWorkCleanupListener implements ApplicationEventListener {
+
+    private static final Logger LOG = Logger.getLogger(UnitOfWorkCleanupListener.class.getName());
+
+    private static final RequestEventListener CLEANUP = event -> {
+        if (event.getType() != RequestEvent.Type.FINISHED) {
+            return;
+        }
+
+        final Object unitOfWork = event.getContainerRequest().getProperty(UnitOfWorkFilter.UNIT_OF_WORK_PROPERTY);
+        if (unitOfWork instanceof UnitOfWork) {
+            event.getContainerRequest().removeProperty(UnitOfWorkFilter.UNIT_OF_WORK_PROPERTY);
+            LOG.warning("Rolling back the unit of work of a request that was not closed");
+
+            try {
+                ((UnitOfWork) unitOfWork).close();
+            } catch (DAOException e) {
+                LOG.log(Level.SEVERE, "Error rolling back the unit of work of the request", e);
+            }
+        }
+    };
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return CLEANUP;
+    }
+
+}
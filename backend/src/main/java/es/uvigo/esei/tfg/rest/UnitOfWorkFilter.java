@@ -0,0 +1,83 @@
+package es.uvigo.esei.tfg.rest;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+import es.uvigo.esei.tfg.dao.UnitOfWork;
+import es.uvigo.esei.tfg.dto.ErrorResponse;
+import es.uvigo.esei.tfg.exceptions.DAOException;
+import es.uvigo.esei.tfg.security.JwtPrincipal;
+
+/**
+ * Runs each request to the {@link Transactional} endpoints in a {@link UnitOfWork}, so all the
+ * DAO calls of the request, including the ones made by the resource and the services it calls,
+ * share a single pooled connection. The unit of work is committed before the response is written
+ * when the response is successful or a redirection, and rolled back otherwise, so a request
+ * rejected with a client or server error never keeps partial changes. A failed commit turns the
+ * response into a 500 Internal Server Error.
+ *
+ * The unit of work is opened with {@link UnitOfWork#beginRequest(Object)} once the request is
+ * authenticated, so its reads may go to the read replica and the writes are attributed to
+ * the authenticated user, who reads from the primary for a while after writing.
+ *
+ * Requests that end without running the response filters have their unit of work rolled back
+ * by the {@link UnitOfWorkCleanupListener}, and {@link UnitOfWork#beginRequest(Object)}
+ * discards any unit of work that a previous request left open in the thread.
+ *
+ * Entities streamed once the response is written (e.g. {@link JsonStreamingOutput}) run after
+ * the unit of work is closed and read through their own connection.
+ */
+@Transactional
+@Provider
+@Priority(Priorities.AUTHENTICATION + 50)
+public class UnitOfWorkFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final Logger LOG = Logger.getLogger(UnitOfWorkFilter.class.getName());
+    static final String UNIT_OF_WORK_PROPERTY = UnitOfWork.class.getName();
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        final Principal principal = requestContext.getSecurityContext().getUserPrincipal();
+        final Long userId = principal instanceof JwtPrincipal ? ((JwtPrincipal) principal).getUserId() : null;
+
+        requestContext.setProperty(UNIT_OF_WORK_PROPERTY, UnitOfWork.beginRequest(userId));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+    throws IOException {
+        final UnitOfWork unitOfWork = (UnitOfWork) requestContext.getProperty(UNIT_OF_WORK_PROPERTY);
+        if (unitOfWork == null) {
+            return;
+        }
+        requestContext.removeProperty(UNIT_OF_WORK_PROPERTY);
+
+        try {
+            final Response.Status.Family family = responseContext.getStatusInfo().getFamily();
+            if (family == Response.Status.Family.SUCCESSFUL || family == Response.Status.Family.REDIRECTION) {
+                unitOfWork.commit();
+            }
+            unitOfWork.close();
+
+        } catch (DAOException e) {
+            LOG.log(Level.SEVERE, "Error committing the unit of work of the request", e);
+            responseContext.setStatus(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode());
+            responseContext.setEntity(
+                new ErrorResponse("SYS_001", "Internal server error"), null, MediaType.APPLICATION_JSON_TYPE
+            );
+        }
+    }
+
+}
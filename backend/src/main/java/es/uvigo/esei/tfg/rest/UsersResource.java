@@ -4,12 +4,13 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
 
 import es.uvigo.esei.tfg.dto.UserProfileResponse;
 import es.uvigo.esei.tfg.exceptions.DAOException;
@@ -22,6 +23,7 @@ import es.uvigo.esei.tfg.services.user.UserPersonService;
  * @author DRM
  */
 @Secured
+@Transactional
 @Path("/users")
 @Produces(MediaType.APPLICATION_JSON)
 public class UsersResource extends BaseResource{
@@ -61,14 +63,14 @@ public class UsersResource extends BaseResource{
 	@Path("/profile")
 	@Produces(MediaType.APPLICATION_JSON)
 	public Response getUserProfile(
-		@HeaderParam("Authorization") String authHeader
+		@Context SecurityContext securityContext
 	) {
 		try {
-			UserProfileResponse userProfileResponse = this.userPersonService.getProfile(authHeader);
+			UserProfileResponse userProfileResponse = this.userPersonService.getProfile(securityContext.getUserPrincipal().getName());
 			return ok(userProfileResponse);
 
 		} catch (IllegalArgumentException iae) {
-			LOG.log(Level.FINE, "Invalid Authorization header provided", iae);
+			LOG.log(Level.FINE, "Invalid user profile request", iae);
 			return badRequest(iae.getMessage());
 
 		} catch (DAOException e) {
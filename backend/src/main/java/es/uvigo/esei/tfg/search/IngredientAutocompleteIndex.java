@@ -0,0 +1,278 @@
+package es.uvigo.esei.tfg.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import es.uvigo.esei.tfg.entities.catalog.Ingredient;
+
+/**
+ * In-memory index to suggest ingredients while their name is being typed.
+ *
+ * Suggestions are looked up, in this order, among:
+ * <ol>
+ *   <li>the ingredients whose name starts with the text,</li>
+ *   <li>the ingredients with a word in their name that starts with the text (e.g. "pep" for "black pepper"),</li>
+ *   <li>the ingredients whose name shares most of its trigrams with the text, which also finds
+ *   names with small typos (e.g. "tomatp" for "tomato").</li>
+ * </ol>
+ * Within the first two groups the ingredients used by more recipes come first. Names are compared
+ * accent-folded, like in {@link TextAnalyzer#fold(String)}.
+ *
+ * The content is an immutable snapshot that is replaced as a whole when the catalog is loaded,
+ * so suggestions never wait for a reload. When the catalog or the recipes change, the index is
+ * marked as stale (see {@link #markStale()}) so it is loaded again. The index is shared by the whole
+ * application (see {@link #getInstance()}).
+ */
+public class IngredientAutocompleteIndex {
+    private final static IngredientAutocompleteIndex INSTANCE = new IngredientAutocompleteIndex();
+
+    private final static int TRIGRAM_LENGTH = 3;
+    // Minimum fraction of the trigrams of the text that a name must share to be suggested
+    private final static double MIN_TRIGRAM_SIMILARITY = 0.5;
+
+    private volatile Snapshot snapshot = null;
+    private final AtomicBoolean stale = new AtomicBoolean(false);
+
+    /**
+     * Returns the index shared by the whole application.
+     *
+     * @return the shared index.
+     */
+    public static IngredientAutocompleteIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Checks whether the index has been loaded.
+     *
+     * @return true if the index has been loaded, false otherwise.
+     */
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    /**
+     * Marks the index as stale because the ingredients or the number of recipes that use them
+     * may have changed. The current content is still used until the index is loaded again.
+     */
+    public void markStale() {
+        stale.set(true);
+    }
+
+    /**
+     * Checks whether the index is stale and clears the mark, so only one of the callers
+     * that find it stale loads it again.
+     *
+     * @return true if the index was stale, false otherwise.
+     */
+    public boolean takeStale() {
+        return stale.getAndSet(false);
+    }
+
+    /**
+     * Replaces the content of the index with the given ingredients.
+     *
+     * @param ingredients all the ingredients of the catalog.
+     * @param usages the number of recipes that use each ingredient, by ingredient ID.
+     * Ingredients not present in the map are considered unused.
+     */
+    public void load(Collection<Ingredient> ingredients, Map<Long, Integer> usages) {
+        this.snapshot = new Snapshot(ingredients, usages);
+    }
+
+    /**
+     * Suggests the ingredients that best match a partially typed name.
+     *
+     * @param text the typed text.
+     * @param limit the maximum number of suggestions.
+     * @return the suggested ingredients, best suggestions first. The list will be empty
+     * if the index is not loaded or nothing matches.
+     */
+    public List<Ingredient> suggest(String text, int limit) {
+        final Snapshot current = snapshot;
+        final String folded = TextAnalyzer.fold(text).trim();
+        if (current == null || folded.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        final Set<Integer> suggested = new LinkedHashSet<>();
+        current.addPrefixMatches(current.names, folded, suggested, limit);
+        current.addPrefixMatches(current.words, folded, suggested, limit);
+        if (suggested.size() < limit) {
+            current.addTrigramMatches(folded, suggested, limit);
+        }
+
+        final List<Ingredient> ingredients = new ArrayList<>(suggested.size());
+        for (int entry : suggested) {
+            ingredients.add(current.ingredients[entry]);
+        }
+        return ingredients;
+    }
+
+    /**
+     * Trigrams of a folded text, marking the start of the text so prefixes weigh more.
+     * The end is only marked for indexed names, as the typed text is usually incomplete.
+     */
+    private static Set<String> trigrams(String folded, boolean markEnd) {
+        final String padded = "$" + folded + (markEnd ? "$" : "");
+        final Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + TRIGRAM_LENGTH <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + TRIGRAM_LENGTH));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Sorted array of keys, each pointing to the ingredient it was taken from.
+     */
+    private static final class KeyArray {
+        private final String[] keys;
+        private final int[] entries;
+
+        KeyArray(List<String> keys, List<Integer> entries) {
+            final Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(keys::get));
+
+            this.keys = new String[order.length];
+            this.entries = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                this.keys[i] = keys.get(order[i]);
+                this.entries[i] = entries.get(order[i]);
+            }
+        }
+
+        /**
+         * Position of the first key that is not lower than the prefix.
+         */
+        int lowerBound(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle].compareTo(prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static final class Snapshot {
+        private final Ingredient[] ingredients;
+        private final int[] usages;
+
+        // Full names and every word-starting suffix of the names, for prefix lookups
+        private final KeyArray names;
+        private final KeyArray words;
+        // trigram -> ingredients whose name contains it
+        private final Map<String, int[]> trigrams;
+
+        Snapshot(Collection<Ingredient> catalog, Map<Long, Integer> usageCounts) {
+            this.ingredients = catalog.toArray(new Ingredient[0]);
+            this.usages = new int[ingredients.length];
+
+            final List<String> nameKeys = new ArrayList<>();
+            final List<Integer> nameEntries = new ArrayList<>();
+            final List<String> wordKeys = new ArrayList<>();
+            final List<Integer> wordEntries = new ArrayList<>();
+            final Map<String, List<Integer>> trigramEntries = new HashMap<>();
+
+            for (int entry = 0; entry < ingredients.length; entry++) {
+                final String name = TextAnalyzer.fold(ingredients[entry].getName()).trim();
+                usages[entry] = usageCounts.getOrDefault(ingredients[entry].getId(), 0);
+
+                nameKeys.add(name);
+                nameEntries.add(entry);
+                for (int i = 1; i < name.length(); i++) {
+                    if (!Character.isLetterOrDigit(name.charAt(i - 1)) && Character.isLetterOrDigit(name.charAt(i))) {
+                        wordKeys.add(name.substring(i));
+                        wordEntries.add(entry);
+                    }
+                }
+                for (String trigram : trigrams(name, true)) {
+                    trigramEntries.computeIfAbsent(trigram, key -> new ArrayList<>()).add(entry);
+                }
+            }
+
+            this.names = new KeyArray(nameKeys, nameEntries);
+            this.words = new KeyArray(wordKeys, wordEntries);
+            this.trigrams = new HashMap<>(trigramEntries.size());
+            for (Map.Entry<String, List<Integer>> trigram : trigramEntries.entrySet()) {
+                this.trigrams.put(trigram.getKey(), trigram.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+
+        /**
+         * Adds the most used ingredients with a key starting with the prefix, until the limit is reached.
+         */
+        void addPrefixMatches(KeyArray keys, String prefix, Set<Integer> suggested, int limit) {
+            if (suggested.size() >= limit) {
+                return;
+            }
+
+            final Set<Integer> found = new LinkedHashSet<>();
+            for (int i = keys.lowerBound(prefix); i < keys.keys.length && keys.keys[i].startsWith(prefix); i++) {
+                if (!suggested.contains(keys.entries[i])) {
+                    found.add(keys.entries[i]);
+                }
+            }
+            final List<Integer> matches = new ArrayList<>(found);
+            matches.sort(byUsage());
+
+            for (int i = 0; i < matches.size() && suggested.size() < limit; i++) {
+                suggested.add(matches.get(i));
+            }
+        }
+
+        /**
+         * Adds the ingredients that share most trigrams with the text, until the limit is reached.
+         */
+        void addTrigramMatches(String text, Set<Integer> suggested, int limit) {
+            final Set<String> textTrigrams = trigrams(text, false);
+            if (text.length() < TRIGRAM_LENGTH) {
+                return;
+            }
+
+            final Map<Integer, Integer> shared = new HashMap<>();
+            for (String trigram : textTrigrams) {
+                int[] entries = trigrams.get(trigram);
+                if (entries != null) {
+                    for (int entry : entries) {
+                        shared.merge(entry, 1, Integer::sum);
+                    }
+                }
+            }
+
+            final List<Integer> matches = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+                if (!suggested.contains(entry.getKey()) && entry.getValue() >= MIN_TRIGRAM_SIMILARITY * textTrigrams.size()) {
+                    matches.add(entry.getKey());
+                }
+            }
+            matches.sort(Comparator.<Integer>comparingInt(shared::get).reversed().thenComparing(byUsage()));
+
+            for (int i = 0; i < matches.size() && suggested.size() < limit; i++) {
+                suggested.add(matches.get(i));
+            }
+        }
+
+        private Comparator<Integer> byUsage() {
+            return Comparator.<Integer>comparingInt(entry -> usages[entry]).reversed()
+                .thenComparing(entry -> ingredients[entry].getName());
+        }
+    }
+
+}
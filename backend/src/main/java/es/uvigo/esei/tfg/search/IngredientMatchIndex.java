@@ -0,0 +1,260 @@
+package es.uvigo.esei.tfg.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * In-memory index to find the recipes that can be cooked with a set of ingredients.
+ *
+ * Each ingredient is mapped to a bitmap of the recipes that use it, and the recipes are also
+ * grouped in bitmaps by their number of ingredients. A query adds up the bitmaps of the available
+ * ingredients with bit-sliced counters, so the number of available ingredients of every recipe
+ * is known without visiting the recipes one by one, and compares it with the size of the recipes
+ * to know how many ingredients are missing.
+ *
+ * The bitmaps are compressed {@link RoaringBitmap}s, so the memory used by an ingredient grows with
+ * the number of recipes that use it rather than with the highest recipe ID, and the operations of
+ * a query only visit the recipes of the bitmaps involved.
+ *
+ * Only public recipes are meant to be indexed. The index is shared by the whole application
+ * (see {@link #getInstance()}), so it is safe to use from concurrent requests.
+ */
+public class IngredientMatchIndex {
+    private final static IngredientMatchIndex INSTANCE = new IngredientMatchIndex();
+
+    private final static long[] NO_INGREDIENTS = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ingredient ID -> recipes that use it
+    private Map<Long, RoaringBitmap> recipesByIngredient = new HashMap<>();
+    // recipe ID -> ingredients of the recipe, needed to remove it from the bitmaps
+    private Map<Integer, long[]> ingredientsByRecipe = new HashMap<>();
+    // number of ingredients -> recipes with that number of ingredients
+    private List<RoaringBitmap> recipesBySize = new ArrayList<>();
+
+    /**
+     * A recipe that matches a query, with the number of its ingredients that are not available.
+     */
+    public static final class Match {
+        private final long recipeId;
+        private final int missingIngredients;
+
+        Match(long recipeId, int missingIngredients) {
+            this.recipeId = recipeId;
+            this.missingIngredients = missingIngredients;
+        }
+
+        public long getRecipeId() { return recipeId; }
+
+        public int getMissingIngredients() { return missingIngredients; }
+    }
+
+    /**
+     * Returns the index shared by the whole application.
+     *
+     * @return the shared index.
+     */
+    public static IngredientMatchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Adds an ingredient to a recipe. Adding an ingredient that the recipe already has does nothing.
+     *
+     * @param recipeId the ID of the recipe.
+     * @param ingredientId the ID of the ingredient.
+     */
+    public void add(long recipeId, long ingredientId) {
+        final int bit = toBit(recipeId);
+
+        lock.writeLock().lock();
+        try {
+            long[] ingredients = ingredientsByRecipe.getOrDefault(bit, NO_INGREDIENTS);
+            for (long ingredient : ingredients) {
+                if (ingredient == ingredientId) {
+                    return;
+                }
+            }
+
+            long[] updated = Arrays.copyOf(ingredients, ingredients.length + 1);
+            updated[ingredients.length] = ingredientId;
+            ingredientsByRecipe.put(bit, updated);
+
+            recipesByIngredient.computeIfAbsent(ingredientId, id -> new RoaringBitmap()).add(bit);
+            sizeBitmap(ingredients.length).remove(bit);
+            sizeBitmap(updated.length).add(bit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the ingredients of a recipe with the given ones.
+     *
+     * @param recipeId the ID of the recipe.
+     * @param ingredientIds the current ingredients of the recipe.
+     */
+    public void put(long recipeId, Collection<Long> ingredientIds) {
+        lock.writeLock().lock();
+        try {
+            remove(recipeId);
+            for (Long ingredientId : ingredientIds) {
+                add(recipeId, ingredientId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a recipe from the index.
+     *
+     * @param recipeId the ID of the recipe.
+     */
+    public void remove(long recipeId) {
+        final int bit = toBit(recipeId);
+
+        lock.writeLock().lock();
+        try {
+            long[] ingredients = ingredientsByRecipe.remove(bit);
+            if (ingredients == null) {
+                return;
+            }
+
+            for (long ingredientId : ingredients) {
+                RoaringBitmap recipes = recipesByIngredient.get(ingredientId);
+                recipes.remove(bit);
+                if (recipes.isEmpty()) {
+                    recipesByIngredient.remove(ingredientId);
+                }
+            }
+            sizeBitmap(ingredients.length).remove(bit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the content of this index with the content of another one, built from scratch.
+     *
+     * @param rebuilt the index with the new content.
+     */
+    public void swap(IngredientMatchIndex rebuilt) {
+        // Recipes created in a row have consecutive IDs, which compress better as runs
+        rebuilt.recipesByIngredient.values().forEach(RoaringBitmap::runOptimize);
+        rebuilt.recipesBySize.forEach(RoaringBitmap::runOptimize);
+
+        lock.writeLock().lock();
+        try {
+            this.recipesByIngredient = rebuilt.recipesByIngredient;
+            this.ingredientsByRecipe = rebuilt.ingredientsByRecipe;
+            this.recipesBySize = rebuilt.recipesBySize;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the recipes that can be cooked with the given ingredients, or that miss only a few of them.
+     * Recipes that use none of the given ingredients are never returned.
+     *
+     * @param ingredientIds the IDs of the available ingredients.
+     * @param maxMissing the maximum number of missing ingredients of the returned recipes.
+     * @param limit the maximum number of results.
+     * @return the matching recipes, ordered by number of missing ingredients and then newest first.
+     */
+    public List<Match> match(Set<Long> ingredientIds, int maxMissing, int limit) {
+        final List<Match> matches = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            final List<RoaringBitmap> bitmaps = new ArrayList<>(ingredientIds.size());
+            for (Long ingredientId : ingredientIds) {
+                RoaringBitmap recipes = recipesByIngredient.get(ingredientId);
+                if (recipes != null) {
+                    bitmaps.add(recipes);
+                }
+            }
+            if (bitmaps.isEmpty()) {
+                return matches;
+            }
+
+            // counters[i] holds bit i of the number of available ingredients of every recipe
+            final RoaringBitmap[] counters = new RoaringBitmap[32 - Integer.numberOfLeadingZeros(bitmaps.size())];
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = new RoaringBitmap();
+            }
+            final RoaringBitmap candidates = new RoaringBitmap();
+            for (RoaringBitmap recipes : bitmaps) {
+                candidates.or(recipes);
+
+                // The bitmaps of the index are never modified, only the counters
+                RoaringBitmap carry = recipes;
+                for (int i = 0; i < counters.length && !carry.isEmpty(); i++) {
+                    RoaringBitmap nextCarry = RoaringBitmap.and(counters[i], carry);
+                    counters[i].xor(carry);
+                    carry = nextCarry;
+                }
+            }
+
+            // buckets[m] holds the recipes with exactly m missing ingredients
+            final RoaringBitmap[] buckets = new RoaringBitmap[maxMissing + 1];
+            for (int m = 0; m <= maxMissing; m++) {
+                buckets[m] = new RoaringBitmap();
+            }
+            for (int available = 1; available <= bitmaps.size(); available++) {
+                RoaringBitmap withAvailable = candidates.clone();
+                for (int i = 0; i < counters.length && !withAvailable.isEmpty(); i++) {
+                    if ((available & (1 << i)) != 0) {
+                        withAvailable.and(counters[i]);
+                    } else {
+                        withAvailable.andNot(counters[i]);
+                    }
+                }
+                if (withAvailable.isEmpty()) {
+                    continue;
+                }
+
+                for (int m = 0; m <= maxMissing && available + m < recipesBySize.size(); m++) {
+                    buckets[m].or(RoaringBitmap.and(withAvailable, recipesBySize.get(available + m)));
+                }
+            }
+
+            for (int m = 0; m <= maxMissing && matches.size() < limit; m++) {
+                IntIterator recipes = buckets[m].getReverseIntIterator();
+                while (recipes.hasNext() && matches.size() < limit) {
+                    matches.add(new Match(recipes.next(), m));
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private RoaringBitmap sizeBitmap(int size) {
+        while (recipesBySize.size() <= size) {
+            recipesBySize.add(new RoaringBitmap());
+        }
+        return recipesBySize.get(size);
+    }
+
+    private static int toBit(long recipeId) {
+        if (recipeId < 0 || recipeId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Recipe ID out of the indexable range: " + recipeId);
+        }
+        return (int) recipeId;
+    }
+
+}
@@ -0,0 +1,259 @@
+package es.uvigo.esei.tfg.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import es.uvigo.esei.tfg.entities.recipe.RecipeTranslation;
+
+/**
+ * In-memory inverted index over the title and description of the recipe translations,
+ * with one index per locale. Results are ranked with BM25, counting title terms
+ * {@value #TITLE_WEIGHT} times so matches in the title weigh more than in the description.
+ *
+ * Only public recipes are meant to be indexed. The index is shared by the whole application
+ * (see {@link #getInstance()}), so it is safe to use from concurrent requests.
+ */
+public class RecipeSearchIndex {
+    private final static RecipeSearchIndex INSTANCE = new RecipeSearchIndex();
+
+    // Usual BM25 parameters: term frequency saturation and document length normalization
+    private final static double K1 = 1.2;
+    private final static double B = 0.75;
+    private final static int TITLE_WEIGHT = 2;
+
+    private volatile Map<String, LocaleIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the index shared by the whole application.
+     *
+     * @return the shared index.
+     */
+    public static RecipeSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Adds or replaces the translation of a recipe for its locale.
+     *
+     * @param translation the translation to index.
+     */
+    public void index(RecipeTranslation translation) {
+        indexes
+            .computeIfAbsent(translation.getLocale(), LocaleIndex::new)
+            .put(translation.getRecipeId(), translation.getTitle(), translation.getDescription());
+    }
+
+    /**
+     * Replaces all the indexed translations of a recipe with the given ones.
+     *
+     * @param recipeId the ID of the recipe.
+     * @param translations the current translations of the recipe.
+     */
+    public void replace(long recipeId, Collection<RecipeTranslation> translations) {
+        remove(recipeId);
+        for (RecipeTranslation translation : translations) {
+            index(translation);
+        }
+    }
+
+    /**
+     * Removes all the indexed translations of a recipe.
+     *
+     * @param recipeId the ID of the recipe.
+     */
+    public void remove(long recipeId) {
+        for (LocaleIndex index : indexes.values()) {
+            index.remove(recipeId);
+        }
+    }
+
+    /**
+     * Replaces the content of this index with the content of another one, built from scratch.
+     * Searches keep using the previous content until the swap is done.
+     *
+     * @param rebuilt the index with the new content.
+     */
+    public void swap(RecipeSearchIndex rebuilt) {
+        this.indexes = rebuilt.indexes;
+    }
+
+    /**
+     * Searches the recipes whose translations match the given text.
+     *
+     * @param text the text to search.
+     * @param locale the locale code of the translations to search, or null to search all of them.
+     * When searching all the locales, each recipe is ranked by its best matching translation.
+     * @param limit the maximum number of results.
+     * @return the IDs of the matching recipes, best matches first.
+     */
+    public List<Long> search(String text, String locale, int limit) {
+        final Map<Long, Double> scores = new HashMap<>();
+
+        if (locale != null) {
+            LocaleIndex index = indexes.get(locale);
+            if (index != null) {
+                index.score(text, scores);
+            }
+        } else {
+            for (LocaleIndex index : indexes.values()) {
+                Map<Long, Double> localeScores = new HashMap<>();
+                index.score(text, localeScores);
+                localeScores.forEach((recipeId, score) -> scores.merge(recipeId, score, Math::max));
+            }
+        }
+
+        return top(scores, limit);
+    }
+
+    /**
+     * Selects the highest scores with a bounded heap. Ties are broken by the newest recipe first.
+     */
+    private static List<Long> top(Map<Long, Double> scores, int limit) {
+        if (scores.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        final PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(limit + 1, (a, b) -> {
+            int byScore = Double.compare(a.getValue(), b.getValue());
+            return byScore != 0 ? byScore : Long.compare(a.getKey(), b.getKey());
+        });
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        final List<Long> recipeIds = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            recipeIds.add(heap.poll().getKey());
+        }
+        Collections.reverse(recipeIds);
+        return recipeIds;
+    }
+
+    /**
+     * Inverted index of the translations of a single locale.
+     */
+    private static final class LocaleIndex {
+        private final String locale;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        // term -> (recipe ID -> weighted term frequency)
+        private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+        // recipe ID -> terms of the recipe, needed to remove it from the postings
+        private final Map<Long, Set<String>> recipeTerms = new HashMap<>();
+        // recipe ID -> weighted length of the recipe
+        private final Map<Long, Integer> lengths = new HashMap<>();
+        private long totalLength = 0;
+
+        LocaleIndex(String locale) {
+            this.locale = locale;
+        }
+
+        void put(long recipeId, String title, String description) {
+            final Map<String, Integer> frequencies = new HashMap<>();
+            for (String term : TextAnalyzer.terms(title, locale)) {
+                frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+            }
+            for (String term : TextAnalyzer.terms(description, locale)) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+
+            int length = 0;
+            for (int frequency : frequencies.values()) {
+                length += frequency;
+            }
+
+            lock.writeLock().lock();
+            try {
+                removeUnlocked(recipeId);
+
+                for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                    postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(recipeId, entry.getValue());
+                }
+                recipeTerms.put(recipeId, frequencies.keySet());
+                lengths.put(recipeId, length);
+                totalLength += length;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long recipeId) {
+            lock.writeLock().lock();
+            try {
+                removeUnlocked(recipeId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeUnlocked(long recipeId) {
+            Set<String> terms = recipeTerms.remove(recipeId);
+            if (terms == null) {
+                return;
+            }
+
+            for (String term : terms) {
+                Map<Long, Integer> recipes = postings.get(term);
+                if (recipes != null) {
+                    recipes.remove(recipeId);
+                    if (recipes.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            totalLength -= lengths.remove(recipeId);
+        }
+
+        /**
+         * Adds the BM25 score of every recipe matching the text to the provided map.
+         */
+        void score(String text, Map<Long, Double> scores) {
+            // Repeated words in the query do not add more weight
+            final Set<String> queryTerms = new LinkedHashSet<>(TextAnalyzer.terms(text, locale));
+            if (queryTerms.isEmpty()) {
+                return;
+            }
+
+            lock.readLock().lock();
+            try {
+                final int documents = lengths.size();
+                if (documents == 0) {
+                    return;
+                }
+                final double averageLength = (double) totalLength / documents;
+
+                for (String term : queryTerms) {
+                    Map<Long, Integer> recipes = postings.get(term);
+                    if (recipes == null) {
+                        continue;
+                    }
+
+                    final int frequency = recipes.size();
+                    final double idf = Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+
+                    for (Map.Entry<Long, Integer> entry : recipes.entrySet()) {
+                        final int tf = entry.getValue();
+                        final double norm = 1 - B + B * lengths.get(entry.getKey()) / averageLength;
+                        scores.merge(entry.getKey(), idf * tf * (K1 + 1) / (tf + K1 * norm), Double::sum);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+}
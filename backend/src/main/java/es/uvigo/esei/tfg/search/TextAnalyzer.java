@@ -0,0 +1,80 @@
+package es.uvigo.esei.tfg.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits free text into the terms used by the search indexes.
+ *
+ * Terms are lower-cased and accent-folded (e.g. "Canción" and "cancion" produce the same term),
+ * and the most common stop words of the supported locales are dropped.
+ */
+public final class TextAnalyzer {
+
+    private final static Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+    private final static Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private final static Map<String, Set<String>> STOP_WORDS = new HashMap<>();
+    static {
+        STOP_WORDS.put("en", new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "into", "is", "it",
+            "of", "on", "or", "the", "to", "with"
+        )));
+        // Already accent-folded, as they are compared against folded terms
+        STOP_WORDS.put("es", new HashSet<>(Arrays.asList(
+            "a", "al", "con", "de", "del", "el", "en", "es", "la", "las", "lo", "los", "o", "para",
+            "por", "se", "sin", "su", "un", "una", "y"
+        )));
+    }
+
+    private TextAnalyzer() {}
+
+    /**
+     * Lower-cases the text and removes its diacritics.
+     *
+     * @param text the text to fold.
+     * @return the folded text, or an empty string if the text is null.
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Splits the text into folded terms, in the order they appear and keeping repetitions.
+     *
+     * @param text the text to analyze.
+     * @param locale the locale code of the text, used to choose the stop words. May be null.
+     * @return the terms of the text. The list will be empty if the text has no terms.
+     */
+    public static List<String> terms(String text, String locale) {
+        String folded = fold(text);
+        if (folded.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<String> stopWords = locale != null ? STOP_WORDS.get(locale) : null;
+        List<String> terms = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (token.isEmpty() || (stopWords != null && stopWords.contains(token))) {
+                continue;
+            }
+            terms.add(token);
+        }
+        return terms;
+    }
+
+}
@@ -1,17 +1,24 @@
 package es.uvigo.esei.tfg.security;
 
 import java.io.IOException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.annotation.Priority;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.Provider;
 
+import es.uvigo.esei.tfg.exceptions.DAOException;
+import es.uvigo.esei.tfg.services.user.TokenVersionCache;
 import es.uvigo.esei.tfg.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 
 @Secured
 @Provider
@@ -23,9 +30,16 @@ public class JwtAuthenticationFilter implements ContainerRequestFilter {
     private static final String AUTHENTICATION_SCHEME = "Bearer";
 
     private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache tokenCache;
+    private final TokenVersionCache tokenVersions;
 
-    public JwtAuthenticationFilter() {
-        this.jwtUtil = new JwtUtil();
+    @Context
+    private ResourceInfo resourceInfo;
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, VerifiedTokenCache tokenCache, TokenVersionCache tokenVersions) {
+        this.jwtUtil = jwtUtil;
+        this.tokenCache = tokenCache;
+        this.tokenVersions = tokenVersions;
     }
 
     @Override
@@ -47,13 +61,35 @@ public class JwtAuthenticationFilter implements ContainerRequestFilter {
         String token = authorizationHeader.substring(AUTHENTICATION_SCHEME.length()).trim();
 
         try {
-            // Validate the token
-            if (!jwtUtil.validateToken(token)) {
-                LOG.warning("Invalid JWT token or token expired");
-                abortWithUnauthorized(requestContext, "Invalid or expired JWT token");
+            // Validate the token and expose its claims to the resources, so it is verified only once
+            Claims claims = tokenCache.get(token);
+            if (claims == null) {
+                claims = jwtUtil.parseClaims(token);
+                tokenCache.put(token, claims);
+            }
+            final JwtPrincipal principal = new JwtPrincipal(claims);
+            if (!hasExpectedType(principal)) {
+                abortWithUnauthorized(requestContext, "Invalid JWT token type");
+                return;
+            }
+            if (isRevoked(principal)) {
+                abortWithUnauthorized(requestContext, "Revoked JWT token");
                 return;
             }
 
+            requestContext.setSecurityContext(new JwtSecurityContext(
+                principal,
+                requestContext.getSecurityContext().isSecure()
+            ));
+
+        } catch (JwtException e) {
+            LOG.warning("Invalid JWT token or token expired: " + e.getMessage());
+            abortWithUnauthorized(requestContext, "Invalid or expired JWT token");
+
+        } catch (DAOException e) {
+            LOG.log(Level.SEVERE, "Error checking the token version", e);
+            requestContext.abortWith(Response.status(Response.Status.INTERNAL_SERVER_ERROR).build());
+
         } catch (Exception e) {
             LOG.warning("Invalid JWT token: " + e.getMessage());
             abortWithUnauthorized(requestContext, "Token validation error: " + e.getMessage());
@@ -77,6 +113,49 @@ public class JwtAuthenticationFilter implements ContainerRequestFilter {
             .startsWith(AUTHENTICATION_SCHEME.toLowerCase() + " ");
     }
 
+    /**
+     * Checks if the token of the principal has the type expected by the endpoint: a refresh token
+     * for the endpoints marked with {@code @Secured(refreshToken = true)} and an access token for
+     * the rest. Tokens issued before the type claim was added have no type and are accepted until
+     * they expire.
+     * 
+     * @param principal the principal built from the token to check
+     * @return true if the token has the expected type or no type, false otherwise
+     */
+    private boolean hasExpectedType(JwtPrincipal principal) {
+        if (principal.getTokenType() == null) {
+            return true;
+        }
+
+        Secured secured = resourceInfo.getResourceMethod().getAnnotation(Secured.class);
+        if (secured == null) {
+            secured = resourceInfo.getResourceClass().getAnnotation(Secured.class);
+        }
+
+        final String expectedType = secured != null && secured.refreshToken()
+            ? JwtUtil.REFRESH_TOKEN_TYPE
+            : JwtUtil.ACCESS_TOKEN_TYPE;
+        return expectedType.equals(principal.getTokenType());
+    }
+
+    /**
+     * Checks if the token of the principal has been revoked, that is, if it was issued with
+     * an older token version than the current one of its user. Tokens issued before the user ID
+     * claim was added can not be checked and are accepted until they expire.
+     * 
+     * @param principal the principal built from the token to check
+     * @return true if the token has been revoked, false otherwise
+     * @throws DAOException if an error happens while loading the current token version
+     */
+    private boolean isRevoked(JwtPrincipal principal) throws DAOException {
+        if (principal.getUserId() == null) {
+            return false;
+        }
+
+        final int tokenVersion = principal.getTokenVersion() != null ? principal.getTokenVersion() : 0;
+        return tokenVersion != tokenVersions.getCurrentVersion(principal.getUserId());
+    }
+
     private void abortWithUnauthorized(ContainerRequestContext requestContext, String message) {
         LOG.warning("Unauthorized access attempt: " + message);
 
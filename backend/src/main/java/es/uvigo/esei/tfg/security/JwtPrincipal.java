@@ -0,0 +1,69 @@
+package es.uvigo.esei.tfg.security;
+
+import java.security.Principal;
+
+import es.uvigo.esei.tfg.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+
+/**
+ * Authenticated user of a request, built from the claims of its verified JWT token.
+ *
+ * Tokens carry the ID, the role and the token version of the user besides its username, and
+ * the type of the token. Tokens issued before those claims were added only carry the username,
+ * so {@link #getUserId()}, {@link #getRole()}, {@link #getTokenVersion()} and {@link #getTokenType()}
+ * may return null.
+ */
+public class JwtPrincipal implements Principal {
+    private final String username;
+    private final Long userId;
+    private final String role;
+    private final Integer tokenVersion;
+    private final String tokenType;
+
+    public JwtPrincipal(Claims claims) {
+        this(
+            claims.getSubject(),
+            claims.get(JwtUtil.USER_ID_CLAIM, Long.class),
+            claims.get(JwtUtil.ROLE_CLAIM, String.class),
+            claims.get(JwtUtil.TOKEN_VERSION_CLAIM, Integer.class),
+            claims.get(JwtUtil.TOKEN_TYPE_CLAIM, String.class)
+        );
+    }
+
+    public JwtPrincipal(String username, Long userId, String role) {
+        this(username, userId, role, null);
+    }
+
+    public JwtPrincipal(String username, Long userId, String role, Integer tokenVersion) {
+        this(username, userId, role, tokenVersion, null);
+    }
+
+    public JwtPrincipal(String username, Long userId, String role, Integer tokenVersion, String tokenType) {
+        this.username = username;
+        this.userId = userId;
+        this.role = role;
+        this.tokenVersion = tokenVersion;
+        this.tokenType = tokenType;
+    }
+
+    /**
+     * Returns the username of the authenticated user (the subject of the token).
+     */
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public Long getUserId() { return userId; }
+
+    public String getRole() { return role; }
+
+    public Integer getTokenVersion() { return tokenVersion; }
+
+    public String getTokenType() { return tokenType; }
+
+    @Override
+    public String toString() {
+        return "JwtPrincipal[" + username + "]";
+    }
+}
@@ -0,0 +1,46 @@
+package es.uvigo.esei.tfg.security;
+
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * Security context of a request authenticated by {@link JwtAuthenticationFilter}.
+ * Resources can get the authenticated user with {@code @Context SecurityContext}
+ * without parsing the token again.
+ */
+public class JwtSecurityContext implements SecurityContext {
+    private final static String AUTHENTICATION_SCHEME = "Bearer";
+
+    private final JwtPrincipal principal;
+    private final boolean secure;
+
+    /**
+     * Constructs a new instance of {@link JwtSecurityContext}.
+     * 
+     * @param principal the authenticated user.
+     * @param secure whether the request was made using a secure channel.
+     */
+    public JwtSecurityContext(JwtPrincipal principal, boolean secure) {
+        this.principal = principal;
+        this.secure = secure;
+    }
+
+    @Override
+    public JwtPrincipal getUserPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return role != null && role.equals(principal.getRole());
+    }
+
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    @Override
+    public String getAuthenticationScheme() {
+        return AUTHENTICATION_SCHEME;
+    }
+}
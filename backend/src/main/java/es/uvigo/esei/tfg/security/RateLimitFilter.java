@@ -0,0 +1,138 @@
+package es.uvigo.esei.tfg.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.annotation.Priority;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.uvigo.esei.tfg.dto.ErrorResponse;
+
+/**
+ * Limits the rate of the requests to the {@link RateLimited} endpoints, with a token bucket per
+ * client IP and a stricter one per username of the request body and client IP, so a single client
+ * can not flood the server nor keep guessing the password of an account. The username bucket is
+ * also keyed by IP so other clients can not lock the owner of the account out. Requests over the
+ * limit are answered with a 429 Too Many Requests before any database access or password hashing.
+ */
+@RateLimited
+@Provider
+@Priority(Priorities.AUTHENTICATION - 100)
+public class RateLimitFilter implements ContainerRequestFilter {
+
+    private static final Logger LOG = Logger.getLogger(RateLimitFilter.class.getName());
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String USERNAME_FIELD = "username";
+    // Bodies bigger than this are not inspected for a username
+    private static final int MAX_INSPECTED_BODY = 16 * 1024;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final TokenBucketRateLimiter ipLimiter;
+    private final TokenBucketRateLimiter usernameLimiter;
+
+    @Context
+    private HttpServletRequest servletRequest;
+
+    public RateLimitFilter() {
+        this(
+            // Bursts of 30 requests, then one per second for each client
+            new TokenBucketRateLimiter(30, 1, TimeUnit.SECONDS, 100_000),
+            // Bursts of 5 requests, then one every 12 seconds for each username from each client
+            new TokenBucketRateLimiter(5, 12, TimeUnit.SECONDS, 100_000)
+        );
+    }
+
+    public RateLimitFilter(TokenBucketRateLimiter ipLimiter, TokenBucketRateLimiter usernameLimiter) {
+        this.ipLimiter = ipLimiter;
+        this.usernameLimiter = usernameLimiter;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        final String ip = servletRequest.getRemoteAddr();
+
+        long waitNanos = ipLimiter.tryAcquire(ip);
+        if (waitNanos > 0) {
+            LOG.warning("Too many requests from IP: " + ip);
+            abortWithTooManyRequests(requestContext, waitNanos);
+            return;
+        }
+
+        final String username = readUsername(requestContext);
+        if (username != null) {
+            waitNanos = usernameLimiter.tryAcquire(username + '@' + ip);
+            if (waitNanos > 0) {
+                // The username is not logged, as it could be a mistyped password
+                LOG.warning("Too many requests for the same username from IP: " + ip);
+                abortWithTooManyRequests(requestContext, waitNanos);
+            }
+        }
+    }
+
+    /**
+     * Extracts the username from a JSON body, leaving the body untouched for the resource.
+     *
+     * @param requestContext the context of the request.
+     * @return the lower-cased username, or null if the body has no username.
+     * @throws IOException if an error happens while reading the body.
+     */
+    private String readUsername(ContainerRequestContext requestContext) throws IOException {
+        if (!requestContext.hasEntity() || !MediaType.APPLICATION_JSON_TYPE.isCompatible(requestContext.getMediaType())) {
+            return null;
+        }
+
+        final InputStream body = requestContext.getEntityStream();
+        final ByteArrayOutputStream inspected = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+        while (inspected.size() <= MAX_INSPECTED_BODY && (read = body.read(buffer)) != -1) {
+            inspected.write(buffer, 0, read);
+        }
+
+        final byte[] bytes = inspected.toByteArray();
+        if (bytes.length > MAX_INSPECTED_BODY) {
+            requestContext.setEntityStream(new SequenceInputStream(new ByteArrayInputStream(bytes), body));
+            return null;
+        }
+        requestContext.setEntityStream(new ByteArrayInputStream(bytes));
+
+        try {
+            JsonNode username = MAPPER.readTree(bytes).get(USERNAME_FIELD);
+            return username != null && username.isTextual() ? username.asText().toLowerCase(Locale.ROOT) : null;
+        } catch (IOException | RuntimeException e) {
+            // Malformed bodies are rejected later by the resource
+            return null;
+        }
+    }
+
+    private void abortWithTooManyRequests(ContainerRequestContext requestContext, long waitNanos) {
+        final long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+
+        requestContext.abortWith(
+            Response.status(TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(new ErrorResponse("RATE_001", "Too many requests, please retry later"))
+                .build()
+        );
+    }
+
+}
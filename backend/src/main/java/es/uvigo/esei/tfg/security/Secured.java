@@ -6,7 +6,17 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import javax.ws.rs.NameBinding;
 
+/**
+ * Marks the endpoints that need an authenticated user, whose token is verified by
+ * {@link JwtAuthenticationFilter}.
+ */
 @NameBinding
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.TYPE, ElementType.METHOD})
-public @interface Secured {}
+public @interface Secured {
+
+    /**
+     * Whether the endpoint is authenticated with a refresh token instead of an access token.
+     */
+    boolean refreshToken() default false;
+}
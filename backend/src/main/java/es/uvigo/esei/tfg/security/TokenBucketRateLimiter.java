@@ -0,0 +1,140 @@
+package es.uvigo.esei.tfg.security;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter with a bucket per key (e.g. per client IP).
+ *
+ * Each bucket holds up to {@code capacity} tokens and gets a new token every
+ * {@code refillPeriod}, so a key can do short bursts of {@code capacity} requests and then
+ * one request per period. The buckets are split in stripes, each one guarded by its own lock,
+ * so checks of different keys rarely contend. Every stripe keeps its buckets in access order and
+ * drops the ones that have been idle long enough to be full again, as they are the same as a new
+ * bucket, and the least recently used ones when the maximum number of buckets is reached.
+ */
+public class TokenBucketRateLimiter {
+    private final static int STRIPES = 64;
+
+    private final double capacity;
+    private final long nanosPerToken;
+    // A bucket idle for this long is full again and can be forgotten
+    private final long idleNanos;
+    private final Stripe[] stripes;
+
+    /**
+     * Constructs a new instance of {@link TokenBucketRateLimiter}.
+     *
+     * @param capacity the maximum number of tokens of a bucket, that is, the allowed burst.
+     * @param refillPeriod the time needed to get a new token.
+     * @param unit the unit of the refill period.
+     * @param maxBuckets the maximum number of buckets kept in memory.
+     */
+    public TokenBucketRateLimiter(int capacity, long refillPeriod, TimeUnit unit, int maxBuckets) {
+        if (capacity <= 0 || refillPeriod <= 0 || maxBuckets <= 0) {
+            throw new IllegalArgumentException("Capacity, refill period and maximum buckets must be positive");
+        }
+
+        this.capacity = capacity;
+        this.nanosPerToken = unit.toNanos(refillPeriod);
+        this.idleNanos = this.nanosPerToken * capacity;
+        this.stripes = new Stripe[STRIPES];
+
+        final int bucketsPerStripe = Math.max(1, maxBuckets / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe(bucketsPerStripe);
+        }
+    }
+
+    /**
+     * Takes a token from the bucket of the given key.
+     *
+     * @param key the key whose bucket is used.
+     * @return 0 if a token was taken and the request is allowed, or the nanoseconds to wait
+     * until the next token is available otherwise.
+     */
+    public long tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(String key, long now) {
+        final Stripe stripe = stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+
+        synchronized (stripe) {
+            stripe.evictIdle(now);
+
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, now);
+                stripe.buckets.put(key, bucket);
+            } else {
+                bucket.refill(now);
+            }
+
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) * nanosPerToken);
+        }
+    }
+
+    /**
+     * Returns the number of buckets currently kept in memory.
+     *
+     * @return the number of buckets.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    private final class Bucket {
+        private double tokens;
+        private long lastAccess;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastAccess = now;
+        }
+
+        void refill(long now) {
+            tokens = Math.min(capacity, tokens + (double) (now - lastAccess) / nanosPerToken);
+            lastAccess = now;
+        }
+    }
+
+    private final class Stripe {
+        private final LinkedHashMap<String, Bucket> buckets;
+
+        Stripe(int maxBuckets) {
+            this.buckets = new LinkedHashMap<String, Bucket>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > maxBuckets;
+                }
+            };
+        }
+
+        /**
+         * Drops the least recently used buckets while they are idle. As buckets are kept
+         * in access order, it stops at the first one that is still in use.
+         */
+        void evictIdle(long now) {
+            final Iterator<Bucket> iterator = buckets.values().iterator();
+            while (iterator.hasNext() && now - iterator.next().lastAccess >= idleNanos) {
+                iterator.remove();
+            }
+        }
+    }
+
+}
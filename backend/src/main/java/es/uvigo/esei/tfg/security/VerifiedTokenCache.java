@@ -0,0 +1,188 @@
+package es.uvigo.esei.tfg.security;
+
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import es.uvigo.esei.tfg.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+
+/**
+ * Cache of the claims of the tokens that have already been verified, so a client that sends
+ * the same token on every request only pays the signature verification and the parsing once.
+ *
+ * Tokens are stored by a digest of their content, never in clear, and each entry is kept
+ * until the token expires. When the cache is full the expired entries are dropped and, if
+ * that is not enough, the ones that expire sooner. The cache is shared by the whole application
+ * (see {@link #getInstance()}) and its hits and misses are logged periodically.
+ */
+public class VerifiedTokenCache {
+    private final static Logger LOG = Logger.getLogger(VerifiedTokenCache.class.getName());
+
+    private final static VerifiedTokenCache INSTANCE = new VerifiedTokenCache(10_000);
+
+    private final static long REPORT_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    // Fraction of the entries removed at once when the cache is full, so the cost of an eviction is amortized
+    private final static double EVICTION_FRACTION = 0.1;
+
+    private final int maxSize;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong lastReport = new AtomicLong(System.currentTimeMillis());
+    // Only one thread evicts at a time, the rest keep inserting while it is done
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * Constructs a new instance of {@link VerifiedTokenCache}.
+     *
+     * @param maxSize the maximum number of tokens kept in the cache.
+     */
+    public VerifiedTokenCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cache shared by the whole application.
+     *
+     * @return the shared cache.
+     */
+    public static VerifiedTokenCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the claims of a token verified before, if it has not expired yet.
+     *
+     * @param token the token as sent by the client.
+     * @return the claims of the token, or null if the token is not in the cache or has expired.
+     */
+    public Claims get(String token) {
+        return get(token, System.currentTimeMillis());
+    }
+
+    Claims get(String token, long now) {
+        report(now);
+
+        final String key = digest(token);
+        final Entry entry = entries.get(key);
+
+        if (entry == null || entry.isExpired(now)) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.claims;
+    }
+
+    /**
+     * Stores the claims of a token whose signature has just been verified. Tokens without
+     * expiration are not stored, as they could be kept forever.
+     *
+     * @param token the token as sent by the client.
+     * @param claims the verified claims of the token.
+     */
+    public void put(String token, Claims claims) {
+        put(token, claims, System.currentTimeMillis());
+    }
+
+    void put(String token, Claims claims, long now) {
+        final Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return;
+        }
+
+        if (entries.size() >= maxSize && evicting.compareAndSet(false, true)) {
+            try {
+                evict(now);
+            } finally {
+                evicting.set(false);
+            }
+        }
+        entries.put(digest(token), new Entry(claims, expiration.getTime()));
+    }
+
+    /**
+     * Removes all the tokens from the cache.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public long getHits() { return hits.sum(); }
+
+    public long getMisses() { return misses.sum(); }
+
+    public int size() { return entries.size(); }
+
+    @Override
+    public String toString() {
+        return "VerifiedTokenCache[size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + "]";
+    }
+
+    private void report(long now) {
+        final long last = lastReport.get();
+        if (now - last >= REPORT_INTERVAL && lastReport.compareAndSet(last, now)) {
+            LOG.info(toString());
+        }
+    }
+
+    private void evict(long now) {
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+            }
+        }
+
+        int excess = entries.size() - maxSize + (int) Math.ceil(maxSize * EVICTION_FRACTION);
+        if (excess <= 0) {
+            return;
+        }
+
+        // Drop the tokens that would expire sooner, which are the least useful ones. Many tokens
+        // share the same expiration (it has a precision of seconds), so exactly the excess is removed
+        entries.entrySet().stream()
+            .sorted(Comparator.comparingLong(entry -> entry.getValue().expiresAt))
+            .limit(excess)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList())
+            .forEach(entries::remove);
+    }
+
+    private static String digest(String token) {
+        return Base64.getEncoder().encodeToString(JwtUtil.digest(token));
+    }
+
+    private static final class Entry {
+        private final Claims claims;
+        private final long expiresAt;
+
+        Entry(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package es.uvigo.esei.tfg.services.catalog;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A JSON document serialized once, ready to be sent as is, with the entity tag
+ * that identifies its content.
+ */
+public final class CachedJson {
+    private final byte[] body;
+    private final String entityTag;
+
+    private CachedJson(byte[] body) {
+        this.body = body;
+        this.entityTag = digest(body);
+    }
+
+    /**
+     * Serializes a value to JSON.
+     * 
+     * @param mapper the mapper used to serialize the value.
+     * @param value the value to serialize.
+     * @return the serialized value.
+     * @throws JsonProcessingException if the value can not be serialized.
+     */
+    public static CachedJson of(ObjectMapper mapper, Object value) throws JsonProcessingException {
+        return new CachedJson(mapper.writeValueAsBytes(value));
+    }
+
+    public byte[] getBody() { return body; }
+
+    public String getEntityTag() { return entityTag; }
+
+    // Derived from the content, so the tag stays the same across reloads and restarts if the content does
+    private static String digest(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform must support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
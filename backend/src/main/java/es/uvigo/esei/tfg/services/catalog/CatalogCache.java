@@ -0,0 +1,178 @@
+package es.uvigo.esei.tfg.services.catalog;
+
+import es.uvigo.esei.tfg.dao.catalog.CatalogDAO;
+import es.uvigo.esei.tfg.dao.catalog.IngredientCategoryDAO;
+import es.uvigo.esei.tfg.dao.catalog.IngredientDAO;
+import es.uvigo.esei.tfg.dao.catalog.MeasurementUnitDAO;
+import es.uvigo.esei.tfg.dto.catalog.IngredientCategoryResponse;
+import es.uvigo.esei.tfg.dto.catalog.IngredientResponse;
+import es.uvigo.esei.tfg.dto.catalog.MeasurementUnitResponse;
+import es.uvigo.esei.tfg.entities.catalog.Ingredient;
+import es.uvigo.esei.tfg.entities.catalog.IngredientCategory;
+import es.uvigo.esei.tfg.entities.catalog.MeasurementUnit;
+import es.uvigo.esei.tfg.entities.catalog.MeasurementUnit.UnitType;
+import es.uvigo.esei.tfg.exceptions.DAOException;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Read-through cache of the whole catalog (ingredient categories, measurement units and ingredients),
+ * kept as the JSON documents served by the catalog endpoints.
+ * 
+ * The cache holds an immutable snapshot that is loaded on first use and replaced as a whole 
+ * when it is read after a catalog DAO changes the catalog (see {@link #invalidate()}), so reads
+ * never reach the database in between.
+ * The cache is shared by the whole application (see {@link #getInstance()}).
+ */
+public class CatalogCache {
+    private final static Logger LOG = Logger.getLogger(CatalogCache.class.getName());
+
+    private final static CatalogCache INSTANCE = new CatalogCache();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private volatile Snapshot snapshot = null;
+    // Incremented on every invalidation, so a snapshot loaded while the catalog changed is not kept
+    private final AtomicLong version = new AtomicLong();
+
+    private CatalogCache() {}
+
+    /**
+     * Returns the cache shared by the whole application.
+     * 
+     * @return the shared cache.
+     */
+    public static CatalogCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the JSON list of the ingredient categories.
+     * 
+     * @return the JSON list of the ingredient categories, or null if there are no categories.
+     * @throws DAOException if the catalog is not loaded yet and a database access error occurs while loading it
+     */
+    public CachedJson getCategories()
+    throws DAOException {
+        return get().categories;
+    }
+
+    /**
+     * Returns the JSON list of the measurement units, optionally filtered by type.
+     * 
+     * @param type the type of the units, or null to get all the units.
+     * @return the JSON list of the measurement units.
+     * @throws DAOException if the catalog is not loaded yet and a database access error occurs while loading it
+     */
+    public CachedJson getUnits(UnitType type)
+    throws DAOException {
+        Snapshot current = get();
+        return type == null ? current.units : current.unitsByType.get(type);
+    }
+
+    /**
+     * Returns the JSON list of all the ingredients.
+     * 
+     * @return the JSON list of all the ingredients.
+     * @throws DAOException if the catalog is not loaded yet and a database access error occurs while loading it
+     */
+    public CachedJson getIngredients()
+    throws DAOException {
+        return get().ingredients;
+    }
+
+    /**
+     * Drops the current snapshot, so the next read loads a new one from the database. It is
+     * registered as a listener of the catalog changes (see {@link CatalogDAO#addChangeListener(Runnable)}).
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        snapshot = null;
+        LOG.fine("Catalog cache invalidated");
+    }
+
+    private Snapshot get()
+    throws DAOException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    long loadedVersion = version.get();
+                    current = load();
+                    snapshot = current;
+                    if (version.get() != loadedVersion) {
+                        snapshot = null;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load()
+    throws DAOException {
+        List<IngredientCategoryResponse> categories = new ArrayList<>();
+        for (IngredientCategory category : new IngredientCategoryDAO().list()) {
+            categories.add(new IngredientCategoryResponse(
+                category.getId(),
+                category.getName(),
+                category.getDescription()
+            ));
+        }
+
+        List<MeasurementUnitResponse> units = new ArrayList<>();
+        Map<UnitType, List<MeasurementUnitResponse>> unitsByType = new EnumMap<>(UnitType.class);
+        for (UnitType type : UnitType.values()) {
+            unitsByType.put(type, new ArrayList<>());
+        }
+        for (MeasurementUnit unit : new MeasurementUnitDAO().list()) {
+            MeasurementUnitResponse response = new MeasurementUnitResponse(
+                unit.getId(),
+                unit.getName(),
+                unit.getAbbreviation(),
+                unit.getType().name()
+            );
+            units.add(response);
+            unitsByType.get(unit.getType()).add(response);
+        }
+
+        List<IngredientResponse> ingredients = new ArrayList<>();
+        for (Ingredient ingredient : new IngredientDAO().list()) {
+            ingredients.add(new IngredientResponse(
+                ingredient.getId(),
+                ingredient.getName(),
+                ingredient.getCategory() != null ? ingredient.getCategory().getId() : null,
+                ingredient.getCategory() != null ? ingredient.getCategory().getName() : null
+            ));
+        }
+
+        try {
+            Snapshot loaded = new Snapshot();
+            loaded.categories = categories.isEmpty() ? null : CachedJson.of(mapper, categories);
+            loaded.units = CachedJson.of(mapper, units);
+            for (Map.Entry<UnitType, List<MeasurementUnitResponse>> entry : unitsByType.entrySet()) {
+                loaded.unitsByType.put(entry.getKey(), CachedJson.of(mapper, entry.getValue()));
+            }
+            loaded.ingredients = CachedJson.of(mapper, ingredients);
+            return loaded;
+        } catch (JsonProcessingException e) {
+            throw new DAOException(e);
+        }
+    }
+
+    private static final class Snapshot {
+        private CachedJson categories;
+        private CachedJson units;
+        private final Map<UnitType, CachedJson> unitsByType = new EnumMap<>(UnitType.class);
+        private CachedJson ingredients;
+    }
+
+}
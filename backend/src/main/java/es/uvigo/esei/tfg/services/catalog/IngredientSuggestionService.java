@@ -0,0 +1,99 @@
+package es.uvigo.esei.tfg.services.catalog;
+
+import es.uvigo.esei.tfg.dao.catalog.IngredientDAO;
+import es.uvigo.esei.tfg.dao.recipe.RecipeIngredientDAO;
+import es.uvigo.esei.tfg.dto.catalog.IngredientResponse;
+import es.uvigo.esei.tfg.entities.catalog.Ingredient;
+import es.uvigo.esei.tfg.exceptions.DAOException;
+import es.uvigo.esei.tfg.exceptions.ValidationException;
+import es.uvigo.esei.tfg.search.IngredientAutocompleteIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Suggests ingredients of the catalog while their name is being typed, 
+ * using the in-memory {@link IngredientAutocompleteIndex}.
+ */
+public class IngredientSuggestionService {
+    private final static Logger LOG = Logger.getLogger(IngredientSuggestionService.class.getName());
+
+    private final static int DEFAULT_LIMIT = 10;
+    private final static int MAX_LIMIT = 50;
+
+    private final IngredientDAO ingredientDAO;
+    private final RecipeIngredientDAO recipeIngredientDAO;
+    private final IngredientAutocompleteIndex index;
+
+    public IngredientSuggestionService() {
+        this(new IngredientDAO(), new RecipeIngredientDAO());
+    }
+
+    public IngredientSuggestionService(IngredientDAO ingredientDAO, RecipeIngredientDAO recipeIngredientDAO) {
+        this.ingredientDAO = ingredientDAO;
+        this.recipeIngredientDAO = recipeIngredientDAO;
+        this.index = IngredientAutocompleteIndex.getInstance();
+    }
+
+    /**
+     * Suggests the ingredients that best match a partially typed name. Ingredients whose name
+     * starts with the text come first, then the ones with a word starting with it, and then the 
+     * ones with a similar name. The most used ingredients come first within each group.
+     * 
+     * @param text the typed text
+     * @param limit the maximum number of suggestions, or null to use the default one
+     * @return the suggested ingredients, best suggestions first
+     * @throws ValidationException if the limit is not a positive integer
+     * @throws DAOException if the index has not been loaded yet and a database access error occurs while loading it
+     */
+    public List<IngredientResponse> suggest(String text, Integer limit)
+    throws ValidationException, DAOException {
+        if (limit != null && limit < 1) {
+            throw new ValidationException("Limit must be a positive integer");
+        }
+        if (!index.isLoaded()) {
+            rebuildIndex();
+        } else if (index.takeStale()) {
+            refreshIndex();
+        }
+
+        List<IngredientResponse> response = new ArrayList<>();
+        for (Ingredient ingredient : index.suggest(text, limit == null ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT))) {
+            response.add(new IngredientResponse(
+                ingredient.getId(),
+                ingredient.getName(),
+                ingredient.getCategory() != null ? ingredient.getCategory().getId() : null,
+                ingredient.getCategory() != null ? ingredient.getCategory().getName() : null
+            ));
+        }
+        return response;
+    }
+
+    /**
+     * Loads the whole catalog of ingredients, with the number of recipes that use each one, 
+     * into the {@link IngredientAutocompleteIndex}.
+     * 
+     * @throws DAOException if a database access error occurs while retrieving the ingredients
+     */
+    public void rebuildIndex()
+    throws DAOException {
+        index.load(ingredientDAO.list(), recipeIngredientDAO.countRecipesByIngredient());
+        LOG.info("Ingredient autocomplete index rebuilt");
+    }
+
+    /**
+     * Rebuilds the stale index. If it fails, the current content is still used 
+     * and the index is marked as stale again, so a later suggestion retries.
+     */
+    private void refreshIndex() {
+        try {
+            rebuildIndex();
+        } catch (DAOException e) {
+            index.markStale();
+            LOG.log(Level.WARNING, "Error refreshing the ingredient autocomplete index", e);
+        }
+    }
+
+}
@@ -1,7 +1,11 @@
 package es.uvigo.esei.tfg.services.recipe;
 
+import es.uvigo.esei.tfg.dao.DAO;
+import es.uvigo.esei.tfg.dao.RowHandler;
+import es.uvigo.esei.tfg.dao.UnitOfWork;
 import es.uvigo.esei.tfg.dao.catalog.IngredientDAO;
 import es.uvigo.esei.tfg.dao.catalog.MeasurementUnitDAO;
+import es.uvigo.esei.tfg.dao.recipe.RecipeCursor;
 import es.uvigo.esei.tfg.dao.recipe.RecipeDAO;
 import es.uvigo.esei.tfg.dao.recipe.RecipeIngredientDAO;
 import es.uvigo.esei.tfg.dao.recipe.RecipeStepDAO;
@@ -19,6 +23,8 @@ import es.uvigo.esei.tfg.dto.recipe.requests.UpdateRecipeTranslationRequest;
 import es.uvigo.esei.tfg.dto.recipe.requests.UpdateRecipeStepTranslationRequest;
 import es.uvigo.esei.tfg.dto.recipe.responses.RecipeDetailResponse;
 import es.uvigo.esei.tfg.dto.recipe.responses.RecipeIngredientResponse;
+import es.uvigo.esei.tfg.dto.recipe.responses.RecipeMatchResponse;
+import es.uvigo.esei.tfg.dto.recipe.responses.RecipePageResponse;
 import es.uvigo.esei.tfg.dto.recipe.responses.RecipeStepResponse;
 import es.uvigo.esei.tfg.dto.recipe.responses.RecipeSummaryResponse;
 import es.uvigo.esei.tfg.entities.catalog.Ingredient;
@@ -32,21 +38,36 @@ import es.uvigo.esei.tfg.entities.recipe.RecipeTranslation;
 import es.uvigo.esei.tfg.entities.user.User;
 import es.uvigo.esei.tfg.exceptions.DAOException;
 import es.uvigo.esei.tfg.exceptions.ValidationException;
+import es.uvigo.esei.tfg.search.IngredientAutocompleteIndex;
+import es.uvigo.esei.tfg.search.IngredientMatchIndex;
+import es.uvigo.esei.tfg.search.RecipeSearchIndex;
+import es.uvigo.esei.tfg.security.JwtPrincipal;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.sql.DataSource;
+
 
 public class RecipeManagmentService {
     private final static Logger LOG = Logger.getLogger(RecipeManagmentService.class.getName());
 
     private final static String DEFAULT_LOCALE = "en"; // default locale for recipe translations, change to emvironment variable if needed
+    private final static int DEFAULT_PAGE_SIZE = 20;
+    private final static int MAX_PAGE_SIZE = 100;
+    private final static int MAX_MISSING_INGREDIENTS = 2;
 
     private final RecipeDAO recipeDAO;
     private final RecipeTranslationDAO recipeTranslationDAO;
@@ -60,15 +81,32 @@ public class RecipeManagmentService {
     private final MeasurementUnitDAO measurementUnitDAO;
     private final UsersDAO usersDAO;
 
+    private final RecipeSearchIndex searchIndex;
+    private final IngredientMatchIndex matchIndex;
+    // Ranks the ingredient suggestions by the number of recipes that use them
+    private final IngredientAutocompleteIndex autocompleteIndex;
+
     public RecipeManagmentService() {
-        this.recipeDAO = new RecipeDAO();
-        this.recipeTranslationDAO = new RecipeTranslationDAO();
-        this.recipeIngredientDAO = new RecipeIngredientDAO();
-        this.recipeStepDAO = new RecipeStepDAO();
-        this.recipeStepTranslationDAO = new RecipeStepTranslationDAO();
-        this.ingredientDAO = new IngredientDAO();  
-        this.measurementUnitDAO = new MeasurementUnitDAO();
-        this.usersDAO = new UsersDAO();
+        this(DAO.lookupDataSource());
+    }
+
+    /**
+     * Constructs a new instance of {@link RecipeManagmentService} whose DAOs use the provided data source.
+     * 
+     * @param dataSource the data source used by the DAOs of the service.
+     */
+    public RecipeManagmentService(DataSource dataSource) {
+        this.recipeDAO = new RecipeDAO(dataSource);
+        this.recipeTranslationDAO = new RecipeTranslationDAO(dataSource);
+        this.recipeIngredientDAO = new RecipeIngredientDAO(dataSource);
+        this.recipeStepDAO = new RecipeStepDAO(dataSource);
+        this.recipeStepTranslationDAO = new RecipeStepTranslationDAO(dataSource);
+        this.ingredientDAO = new IngredientDAO(dataSource);  
+        this.measurementUnitDAO = new MeasurementUnitDAO(dataSource);
+        this.usersDAO = new UsersDAO(dataSource);
+        this.searchIndex = RecipeSearchIndex.getInstance();
+        this.matchIndex = IngredientMatchIndex.getInstance();
+        this.autocompleteIndex = IngredientAutocompleteIndex.getInstance();
     }
 
 
@@ -77,55 +115,54 @@ public class RecipeManagmentService {
     /**
      * Creates a new recipe with its initial translation, ingredients, and steps 
      * based on the provided {@link CreateRecipeRequest} 
-     * and associates it with the user identified by the given username.
+     * and associates it with the authenticated user.
      * 
      * @param request the request object containing the details of the recipe to be created
-     * @param username the username of the user creating the recipe
+     * @param principal the authenticated user creating the recipe
      * @return a {@link RecipeDetailResponse} containing the details of the created recipe, including its ID and associated data
      * @throws ValidationException if the request is invalid (e.g., missing required fields, invalid ingredient references)
      * @throws DAOException if a database access error occurs while creating the recipe or any of its associated entities
-     * @throws IllegalArgumentException if the user identified by the username does not exist
+     * @throws IllegalArgumentException if the authenticated user does not exist
      */
-    public RecipeDetailResponse createRecipe(CreateRecipeRequest request, String username) 
+    public RecipeDetailResponse createRecipe(CreateRecipeRequest request, JwtPrincipal principal) 
     throws ValidationException, DAOException, IllegalArgumentException {
         validateCreateRequest(request);
 
         // Check if the user and ingredients exist and resolve the ingredient references
-        User user = usersDAO.getByUsername(username);                                               
+        User user = authenticatedUser(principal);                                               
         List<RecipeIngredient> resolvedIngredients = resolveIngredients(request.getIngredients());  
 
-        Connection conn = null;
-        try {
-            conn = recipeDAO.getConnection(null);
-            conn.setAutoCommit(false);
-
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
             // Build and persist the recipe entity
             Recipe recipe = buildRecipeEntityFromRequest(request, user);
-            recipe = recipeDAO.create(recipe, conn);
+            recipe = recipeDAO.create(recipe);
 
             RecipeTranslation translation = new RecipeTranslation(recipe.getId(), request.getLocale(), request.getTitle(), request.getDescription());
-            recipeTranslationDAO.create(translation, conn);
+            recipeTranslationDAO.create(translation);
             recipe.addTranslation(translation);
 
             // Persist the recipe ingredients, associating them with the created recipe
-            List<RecipeIngredient> ingredients = recipeIngredientDAO.createAllForRecipe(resolvedIngredients, recipe.getId(), conn);
+            List<RecipeIngredient> ingredients = recipeIngredientDAO.createAllForRecipe(resolvedIngredients, recipe.getId());
 
             // Persist the recipe steps and their translations, associating them with the created recipe
-            List<RecipeStep> steps = createRecipeSteps(request.getSteps(), recipe.getId(), conn);
-            List<RecipeStepTranslation> stepTranslations = createRecipeStepTranslations(request.getSteps(), steps, request.getLocale(), conn);
+            List<RecipeStep> steps = createRecipeSteps(request.getSteps(), recipe.getId());
+            List<RecipeStepTranslation> stepTranslations = createRecipeStepTranslations(request.getSteps(), steps, request.getLocale());
             steps = insertStepTranslationsIntoSteps(steps, stepTranslations);
 
+            unitOfWork.commit();
 
-            conn.commit();
-            LOG.info("Recipe created successfully with id " + recipe.getId());
+            final Recipe created = recipe;
+            UnitOfWork.afterCommit(() -> {
+                LOG.info("Recipe created successfully with id " + created.getId());
+                autocompleteIndex.markStale();
+
+                if (created.isPublic()) {
+                    searchIndex.index(translation);
+                    matchIndex.put(created.getId(), ingredientIds(ingredients));
+                }
+            });
 
             return buildRecipeDetailResponse(recipe, translation, ingredients, steps);
-        
-        } catch (SQLException | DAOException e) {
-            rollback(conn, e);
-            throw new DAOException(e);
-        } finally {
-            closeConnection(conn);
         }
     }
 
@@ -135,15 +172,15 @@ public class RecipeManagmentService {
      * 
      * @param recipeId the ID of the recipe to which the translation will be added
      * @param request the request object containing the details of the translation to be added
-     * @param username the username of the user adding the translation, used to verify ownership of the recipe
+     * @param principal the authenticated user adding the translation, used to verify ownership of the recipe
      * @throws ValidationException if the request is invalid (e.g., missing required fields, invalid locale code)
      * @throws DAOException if a database access error occurs while adding the translation or if the recipe does not exist
-     * @throws IllegalArgumentException if the user identified by the username does not exist or if the user is not the owner of the recipe
+     * @throws IllegalArgumentException if the user is not the owner of the recipe
      */
-    public RecipeDetailResponse addRecipeTranslation(long recipeId, AddRecipeTranslationRequest request, String username) 
+    public RecipeDetailResponse addRecipeTranslation(long recipeId, AddRecipeTranslationRequest request, JwtPrincipal principal) 
     throws ValidationException, DAOException, IllegalArgumentException {
         validateAddTranslationRequest(request);
-        ensureRecipeOwnership(recipeId, usersDAO.getByUsername(username).getId());
+        ensureRecipeOwnership(recipeId, userId(principal));
 
         RecipeTranslation existingTranslation = recipeTranslationDAO.getByRecipeIdAndLocale(recipeId, request.getLocale());
         if (existingTranslation != null) {
@@ -154,11 +191,7 @@ public class RecipeManagmentService {
         List<RecipeStep> existingRecipeSteps = recipeStepDAO.getByRecipeId(recipeId);
         validateStepTranslationIds(request.getSteps(), existingRecipeSteps);
 
-        Connection conn = null;
-        try  {
-            conn = recipeTranslationDAO.getConnection(null);
-            conn.setAutoCommit(false);
-            
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
             // Recipe data translation
             RecipeTranslation translation = new RecipeTranslation(
                 recipeId,
@@ -167,32 +200,32 @@ public class RecipeManagmentService {
                 request.getDescription()
             );
             
-            recipeTranslationDAO.create(translation, conn);
+            recipeTranslationDAO.create(translation);
 
             // Steps translation
             List<RecipeStepTranslation> stepTranslations = new ArrayList<>();
             for (RecipeStepTranslationRequest stepTranslationReq : request.getSteps()) {
-                RecipeStepTranslation stepTranslation = new RecipeStepTranslation(stepTranslationReq.getStepId(), request.getLocale(), stepTranslationReq.getTitle(), stepTranslationReq.getDescription());
-                stepTranslations.add(recipeStepTranslationDAO.create(stepTranslation, conn));
+                stepTranslations.add(new RecipeStepTranslation(stepTranslationReq.getStepId(), request.getLocale(), stepTranslationReq.getTitle(), stepTranslationReq.getDescription()));
+            }
+            if (!stepTranslations.isEmpty()) {
+                recipeStepTranslationDAO.createAll(stepTranslations);
             }
 
-            conn.commit();
-            LOG.info("Recipe translation added successfully for recipe " + recipeId + " with locale " + request.getLocale());
+            RecipeDetailResponse response = getRecipebyId(recipeId, principal, request.getLocale());
 
-            return getRecipebyId(recipeId, username, request.getLocale());
+            unitOfWork.commit();
+            UnitOfWork.afterCommit(() -> {
+                LOG.info("Recipe translation added successfully for recipe " + recipeId + " with locale " + request.getLocale());
+                refreshSearchIndex(recipeId);
+            });
 
-        } catch (SQLException | DAOException e) {
-            rollback(conn, e);
-            throw new DAOException(e);
-        } finally {
-            closeConnection(conn);
+            return response;
         }
-        
     }
 
-    public RecipeDetailResponse addRecipeStep(long recipeId, AddRecipeStepRequest request, String username)
+    public RecipeDetailResponse addRecipeStep(long recipeId, AddRecipeStepRequest request, JwtPrincipal principal)
     throws ValidationException, DAOException, IllegalArgumentException {
-        ensureRecipeOwnership(recipeId, usersDAO.getByUsername(username).getId());
+        ensureRecipeOwnership(recipeId, userId(principal));
 
         // Verify that the locale exists for this recipe
         RecipeTranslation recipeTranslation = recipeTranslationDAO.getByRecipeIdAndLocale(recipeId, request.getLocale());
@@ -202,85 +235,260 @@ public class RecipeManagmentService {
             ". Please add a translation for this locale before adding steps.");
         }
 
-        Connection conn = null;
-        try {
-            conn = recipeStepDAO.getConnection(null);
-            conn.setAutoCommit(false);
-
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
             RecipeStep step = new RecipeStep();
             step.setStepNumber(request.getStepNumber());
             step.setImagePath(null);
             step.setRecipe(new Recipe(recipeId));
-            step = recipeStepDAO.create(step, conn);
+            step = recipeStepDAO.create(step);
 
             RecipeStepTranslation stepTranslation = new RecipeStepTranslation(step.getId(), request.getLocale(), request.getTitle(), request.getDescription());
-            recipeStepTranslationDAO.create(stepTranslation, conn);
+            recipeStepTranslationDAO.create(stepTranslation);
+
+            RecipeDetailResponse response = getRecipebyId(recipeId, principal, request.getLocale());
+
+            unitOfWork.commit();
+            UnitOfWork.afterCommit(() ->
+                LOG.info("Recipe step added successfully for recipe " + recipeId + " with locale " + request.getLocale())
+            );
 
-            conn.commit();
-            LOG.info("Recipe step added successfully for recipe " + recipeId + " with locale " + request.getLocale());
+            return response;
+        }
+    }
 
-            return getRecipebyId(recipeId, username, request.getLocale());
+    //============     READ     ============
 
-        } catch (SQLException | DAOException e) {
-            rollback(conn, e);
+    /**
+     * Retrieves the full details of a recipe (translation, ingredients and steps) for the given locale.
+     * All the data is loaded through a single connection by {@link #loadRecipeDetail(long, String, String, Connection)},
+     * from the read replica if there is one and the recipe is not being modified.
+     * 
+     * @param recipeId the ID of the recipe to retrieve
+     * @param principal the authenticated user requesting the recipe, used to check access to private recipes
+     * @param locale the preferred locale code (e.g., "en", "es"); falls back to the first available translation
+     * @return a {@link RecipeDetailResponse} with the details of the recipe
+     * @throws DAOException if a database access error occurs or if the recipe has no translations
+     * @throws IllegalArgumentException if the recipe does not exist or is private and not owned by the user
+     */
+    public RecipeDetailResponse getRecipebyId(long recipeId, JwtPrincipal principal, String locale)
+    throws DAOException, IllegalArgumentException {
+        Connection conn = null;
+        try {
+            conn = recipeDAO.getReadConnection(null);
+            return loadRecipeDetail(recipeId, principal.getName(), locale, conn);
+
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Error loading recipe " + recipeId, e);
             throw new DAOException(e);
         } finally {
             closeConnection(conn);
         }
     }
 
-    //============     READ     ============
+    /**
+     * Prepares a page of public recipes, newest first, to be streamed. The cursor and the limit
+     * are validated right away, so an invalid request is rejected before anything is written,
+     * and the recipes are only read from the database when the page is streamed.
+     * 
+     * When a locale is given, the recipes are read with their translation in a single query and
+     * handed over as the rows arrive from the database. Otherwise the page is loaded first so the
+     * best available translation of all its recipes can be resolved with one query.
+     * 
+     * @param locale the locale code of the translations; if null or blank, every recipe is returned with its best available translation,
+     * otherwise only the recipes translated to this locale are returned
+     * @param cursor the opaque cursor of the page, or null or blank to get the first page
+     * @param limit the maximum number of recipes of the page, or null to use the default page size
+     * @return the page of recipes, to be streamed
+     * @throws ValidationException if the cursor or the limit are not valid
+     */
+    public RecipePageStream streamPublicRecipes(String locale, String cursor, Integer limit)
+    throws ValidationException {
+        RecipeCursor after = parseCursor(cursor);
+        int pageSize = resolvePageSize(limit);
+        return handler -> forEachPublicRecipe(locale, after, pageSize, handler);
+    }
 
-    public RecipeDetailResponse getRecipebyId(long recipeId, String username, String locale)
-    throws DAOException, IllegalArgumentException {
-        Recipe recipe = recipeDAO.get(recipeId);
+    /**
+     * Streams a page of public recipes, newest first, to the provided handler.
+     * 
+     * @param locale the locale code of the translations, or null or blank to use the best available translation
+     * @param cursor the position of the last recipe of the previous page, or null to get the first page
+     * @param pageSize the maximum number of recipes of the page
+     * @param handler the handler that will receive the summary of each recipe of the page
+     * @return the encoded cursor of the next page, or null if this is the last page
+     * @throws DAOException if a database access error occurs while retrieving the recipes
+     * @throws IOException if the handler fails while processing a recipe
+     */
+    private String forEachPublicRecipe(String locale, RecipeCursor cursor, int pageSize, RowHandler<RecipeSummaryResponse> handler)
+    throws DAOException, IOException {
+        // One extra row is fetched to know whether there is a next page
+        if (locale == null || locale.trim().isEmpty()) {
+            List<Recipe> recipes = recipeDAO.getPublic(cursor, pageSize + 1);
+            String nextCursor = trimToPage(recipes, pageSize);
+            for (RecipeSummaryResponse summary : toSummaryResponseListWithFallback(recipes, null)) {
+                handler.handle(summary);
+            }
+            return nextCursor;
+        }
 
-        User user = usersDAO.getByUsername(username);
-        if (!recipe.isPublic() && recipe.getUser().getId() != user.getId()) {
-            throw new IllegalArgumentException("Recipe not found");
+        LocalizedPageHandler pageHandler = new LocalizedPageHandler(locale, pageSize, handler);
+        recipeDAO.getPublicByLocale(locale, cursor, pageSize + 1, pageHandler);
+        return pageHandler.getNextCursor();
+    }
+
+    /**
+     * Searches the public recipes whose title or description match the given text,
+     * using the in-memory {@link RecipeSearchIndex}. Results are ranked by relevance, 
+     * so they are returned as a single page without a next cursor.
+     * 
+     * @param text the text to search
+     * @param locale the locale code of the translations to search; if null or blank, all the translations are searched
+     * and every recipe is returned with its best available translation
+     * @param limit the maximum number of recipes to return (see {@link #resolvePageSize(Integer)})
+     * @return a {@link RecipePageResponse} with the best matching recipes, best matches first
+     * @throws ValidationException if the text has nothing to search or the limit is not valid
+     * @throws DAOException if a database access error occurs while retrieving the recipes
+     */
+    public RecipePageResponse searchPublicRecipes(String text, String locale, Integer limit)
+    throws ValidationException, DAOException {
+        if (text == null || text.trim().isEmpty()) {
+            throw new ValidationException("Search text cannot be empty");
         }
+        int pageSize = resolvePageSize(limit);
+        String searchLocale = locale == null || locale.trim().isEmpty() ? null : locale;
 
-        // Recipe data translation with fallback to default locale if the requested one is not available
-        RecipeTranslation translation = loadTranslationWithFallback(recipeId, locale);
-        
-        User recipeAuthor = usersDAO.get(recipe.getUser().getId());
-        recipe.setUser(recipeAuthor);
+        List<Long> recipeIds = searchIndex.search(text, searchLocale, pageSize);
+
+        // Keep the ranking of the index, skipping recipes made private or deleted in the meantime
+        Map<Long, Recipe> recipesById = new HashMap<>();
+        for (Recipe recipe : recipeDAO.getPublicByIds(recipeIds)) {
+            recipesById.put(recipe.getId(), recipe);
+        }
+        List<Recipe> recipes = new ArrayList<>(recipesById.size());
+        for (Long recipeId : recipeIds) {
+            Recipe recipe = recipesById.get(recipeId);
+            if (recipe != null) {
+                recipes.add(recipe);
+            }
+        }
+
+        return new RecipePageResponse(toSummaryResponseListWithFallback(recipes, locale), null);
+    }
 
-        List<RecipeIngredient> ingredients = recipeIngredientDAO.getByRecipeId(recipeId);
+    /**
+     * Finds the public recipes that can be cooked with the given ingredients, using the in-memory
+     * {@link IngredientMatchIndex}. Recipes with all their ingredients available come first, followed by
+     * the ones that miss one ingredient and then two. Within each group, the newest recipes come first.
+     * 
+     * @param ingredientIds the IDs of the available ingredients
+     * @param locale the locale code of the translations; if null or blank, every recipe is returned with its best available translation
+     * @param limit the maximum number of recipes to return (see {@link #resolvePageSize(Integer)})
+     * @return the matching recipes with their number of missing ingredients
+     * @throws ValidationException if no ingredients are provided, any of them is not valid or the limit is not valid
+     * @throws DAOException if a database access error occurs while retrieving the recipes
+     */
+    public List<RecipeMatchResponse> matchPublicRecipes(List<Long> ingredientIds, String locale, Integer limit)
+    throws ValidationException, DAOException {
+        if (ingredientIds == null || ingredientIds.isEmpty()) {
+            throw new ValidationException("At least one ingredient is required");
+        }
+        for (Long ingredientId : ingredientIds) {
+            if (ingredientId == null || ingredientId <= 0) {
+                throw new ValidationException("Invalid ingredient ID: " + ingredientId);
+            }
+        }
+        int pageSize = resolvePageSize(limit);
 
-        // Recipe steps with their translations
-        List<RecipeStep> steps = recipeStepDAO.getByRecipeId(recipeId);
-        List<RecipeStepTranslation> stepTranslations = recipeStepTranslationDAO.getByRecipeIdAndLocale(recipeId, translation.getLocale());
-        steps = insertStepTranslationsIntoSteps(steps, stepTranslations);
+        List<IngredientMatchIndex.Match> matches = matchIndex.match(new LinkedHashSet<>(ingredientIds), MAX_MISSING_INGREDIENTS, pageSize);
 
-        // Load the available locales for this recipe
-        List<String> availableLocales = recipeTranslationDAO.getAvailableLocales(recipeId);
-        List<RecipeTranslation> translations = new ArrayList<>();
-        for (String loc: availableLocales) {
-            translations.add(new RecipeTranslation(recipeId, loc, null, null));
+        List<Long> recipeIds = new ArrayList<>(matches.size());
+        for (IngredientMatchIndex.Match match : matches) {
+            recipeIds.add(match.getRecipeId());
         }
-        recipe.setTranslations(translations);
 
-        return buildRecipeDetailResponse(recipe, translation, ingredients, steps);
+        // Keep the ranking of the index, skipping recipes made private or deleted in the meantime
+        Map<Long, Recipe> recipesById = new HashMap<>();
+        for (Recipe recipe : recipeDAO.getPublicByIds(recipeIds)) {
+            recipesById.put(recipe.getId(), recipe);
+        }
+        List<Recipe> recipes = new ArrayList<>(recipesById.size());
+        List<Integer> missingIngredients = new ArrayList<>(recipesById.size());
+        for (IngredientMatchIndex.Match match : matches) {
+            Recipe recipe = recipesById.get(match.getRecipeId());
+            if (recipe != null) {
+                recipes.add(recipe);
+                missingIngredients.add(match.getMissingIngredients());
+            }
+        }
+
+        List<RecipeSummaryResponse> summaries = toSummaryResponseListWithFallback(recipes, locale);
+        List<RecipeMatchResponse> response = new ArrayList<>(summaries.size());
+        for (int i = 0; i < summaries.size(); i++) {
+            response.add(new RecipeMatchResponse(summaries.get(i), missingIngredients.get(i)));
+        }
+        return response;
     }
 
-    public List<RecipeSummaryResponse> getPublicRecipes(String locale)
+    /**
+     * Rebuilds the {@link IngredientMatchIndex} from the ingredients of all the public recipes.
+     * 
+     * @throws DAOException if a database access error occurs while retrieving the ingredients
+     */
+    public void rebuildMatchIndex()
     throws DAOException {
-        List<Recipe> recipes;
-        if (locale == null || locale.trim().isEmpty()) {
-            recipes = recipeDAO.getPublic();
-            return toSummaryResponseListWithFallback(recipes, null); 
+        IngredientMatchIndex rebuilt = new IngredientMatchIndex();
+        try {
+            recipeIngredientDAO.listPublic(ingredient -> 
+                rebuilt.add(ingredient.getRecipe().getId(), ingredient.getIngredient().getId())
+            );
+        } catch (IOException e) {
+            // Indexing happens in memory, so this should never happen
+            throw new DAOException(e);
         }
+        matchIndex.swap(rebuilt);
+        LOG.info("Ingredient match index rebuilt");
+    }
 
-        recipes = recipeDAO.getPublicByLocale(locale);
-        return toSummaryResponseList(recipes, locale);        
+    /**
+     * Rebuilds the {@link RecipeSearchIndex} from the translations of all the public recipes.
+     * The current content of the index is kept for searching until the new one is complete.
+     * 
+     * @throws DAOException if a database access error occurs while retrieving the translations
+     */
+    public void rebuildSearchIndex()
+    throws DAOException {
+        RecipeSearchIndex rebuilt = new RecipeSearchIndex();
+        try {
+            recipeTranslationDAO.listPublic(rebuilt::index);
+        } catch (IOException e) {
+            // Indexing happens in memory, so this should never happen
+            throw new DAOException(e);
+        }
+        searchIndex.swap(rebuilt);
+        LOG.info("Recipe search index rebuilt");
     }
 
-    public List<RecipeSummaryResponse> getUserRecipes(String username, String locale)
-    throws DAOException, IllegalArgumentException {
-        User user = usersDAO.getByUsername(username);
-        List<Recipe> recipes = recipeDAO.getByUserId(user.getId());
-        return toSummaryResponseListWithFallback(recipes, locale);
+    /**
+     * Retrieves a page of the recipes of the given user, newest first.
+     * 
+     * @param principal the authenticated user, owner of the recipes
+     * @param locale the preferred locale code of the translations
+     * @param cursor the opaque cursor returned with the previous page, or null to get the first page
+     * @param limit the maximum number of recipes of the page, or null to use the default page size
+     * @return a {@link RecipePageResponse} with the recipes of the page and the cursor of the next one
+     * @throws ValidationException if the cursor or the limit are invalid
+     * @throws DAOException if a database access error occurs while retrieving the recipes
+     * @throws IllegalArgumentException if the user does not exist
+     */
+    public RecipePageResponse getUserRecipes(JwtPrincipal principal, String locale, String cursor, Integer limit)
+    throws ValidationException, DAOException, IllegalArgumentException {
+        RecipeCursor after = parseCursor(cursor);
+        int pageSize = resolvePageSize(limit);
+
+        User user = authenticatedUser(principal);
+        List<Recipe> recipes = recipeDAO.getByUserId(user.getId(), after, pageSize + 1);
+        String nextCursor = trimToPage(recipes, pageSize);
+        return new RecipePageResponse(toSummaryResponseListWithFallback(recipes, locale), nextCursor);
     }
 
 
@@ -292,48 +500,49 @@ public class RecipeManagmentService {
      * 
      * @param recipeId the ID of the recipe to be updated
      * @param request the request object containing the new details for the recipe update
-     * @param username the username of the user performing the update, used to verify ownership of the recipe
+     * @param principal the authenticated user performing the update, used to verify ownership of the recipe
      * @return a {@link RecipeDetailResponse} containing the updated details of the recipe after the update operation is completed
      * @throws ValidationException if the request is invalid (e.g., missing required fields, invalid ingredient references)
      * @throws DAOException if a database access error occurs while updating the recipe or any of its associated entities, or if the recipe does not exist
-     * @throws IllegalArgumentException if the user identified by the username does not exist or if the user is not the owner of the recipe
+     * @throws IllegalArgumentException if the user is not the owner of the recipe
      */
-    public RecipeDetailResponse updateRecipe(long recipeId, CreateRecipeRequest request, String username)
+    public RecipeDetailResponse updateRecipe(long recipeId, CreateRecipeRequest request, JwtPrincipal principal)
     throws ValidationException, DAOException, IllegalArgumentException {
         validateCreateRequest(request);
 
         // Ensure the user is the owner of the recipe and get the user entity for later use
-        User user = usersDAO.getByUsername(username); 
+        User user = authenticatedUser(principal); 
         ensureRecipeOwnership(recipeId, user.getId());
 
         List<RecipeIngredient> resolvedIngredients = resolveIngredients(request.getIngredients());
 
-        Connection conn = null;
-        try {
-            conn = recipeDAO.getConnection(null);
-            conn.setAutoCommit(false);
-
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
             Recipe oldRecipe = recipeDAO.get(recipeId); // Ensure the recipe exists
             Recipe newRecipe = buildRecipeEntityFromRequest(request, user);
 
             newRecipe.setId(recipeId);
             newRecipe.setUser(user);
-            recipeDAO.update(newRecipe, conn);
+            recipeDAO.update(newRecipe);
 
             // Replace ingredients 
-            recipeIngredientDAO.deleteByRecipeId(recipeId, conn);
-            List<RecipeIngredient> ingredients = recipeIngredientDAO.createAllForRecipe(resolvedIngredients, recipeId, conn);
-
-            conn.commit();
-            LOG.info("Recipe updated succesfully with ID: " + recipeId);
-
-            return getRecipebyId(recipeId, username, request.getLocale());
+            recipeIngredientDAO.deleteByRecipeId(recipeId);
+            List<RecipeIngredient> ingredients = recipeIngredientDAO.createAllForRecipe(resolvedIngredients, recipeId);
+
+            RecipeDetailResponse response = getRecipebyId(recipeId, principal, request.getLocale());
+
+            unitOfWork.commit();
+            UnitOfWork.afterCommit(() -> {
+                LOG.info("Recipe updated succesfully with ID: " + recipeId);
+                refreshSearchIndex(recipeId);
+                autocompleteIndex.markStale();
+                if (newRecipe.isPublic()) {
+                    matchIndex.put(recipeId, ingredientIds(ingredients));
+                } else {
+                    matchIndex.remove(recipeId);
+                }
+            });
 
-        } catch (SQLException | DAOException e) {
-            rollback(conn, e);
-            throw new DAOException(e);
-        } finally {
-            closeConnection(conn);
+            return response;
         }
     }
 
@@ -344,18 +553,18 @@ public class RecipeManagmentService {
      * @param recipeId the ID of the recipe for which to update the translation
      * @param locale the locale code for the translation to update (e.g., "en", "es")
      * @param request the request object containing the new details for the translation update
-     * @param username the username of the user performing the update, used to verify ownership of the recipe
+     * @param principal the authenticated user performing the update, used to verify ownership of the recipe
      * @return a {@link RecipeDetailResponse} containing the updated details of the recipe after the translation update operation is completed
      * @throws ValidationException if the request is invalid (e.g., missing required fields)
      * @throws DAOException if a database access error occurs while updating the translation or if the recipe or translation does not exist
-     * @throws IllegalArgumentException if the user identified by the username does not exist or if the user is not the owner of the recipe
+     * @throws IllegalArgumentException if the user is not the owner of the recipe
      * @throws DAOException if no existing translation is found for the specified locale
      * @throws IllegalArgumentException if the specified locale in the request does not match the locale parameter
      */
-    public RecipeDetailResponse updateRecipeTranslation(long recipeId, String locale, UpdateRecipeTranslationRequest request, String username)
+    public RecipeDetailResponse updateRecipeTranslation(long recipeId, String locale, UpdateRecipeTranslationRequest request, JwtPrincipal principal)
     throws ValidationException, DAOException, IllegalArgumentException {
         validateUpdateTranslationRequest(request);
-        ensureRecipeOwnership(recipeId, usersDAO.getByUsername(username).getId());
+        ensureRecipeOwnership(recipeId, userId(principal));
 
         RecipeTranslation existingTranslation = recipeTranslationDAO.getByRecipeIdAndLocale(recipeId, locale);
         if (existingTranslation == null) {
@@ -366,10 +575,7 @@ public class RecipeManagmentService {
         List<RecipeStep> existingSteps = recipeStepDAO.getByRecipeId(recipeId);
         validateStepTranslationIds(request.getSteps(), existingSteps);
 
-        Connection conn = null;
-        try {
-            conn = recipeTranslationDAO.getConnection(null);
-
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
             // Update recipe translation data
             RecipeTranslation updatedTranslation = new RecipeTranslation(recipeId, locale, request.getTitle(), request.getDescription());
             recipeTranslationDAO.update(updatedTranslation);            
@@ -378,27 +584,26 @@ public class RecipeManagmentService {
             List<RecipeStepTranslation> updatedStepTranslations = new LinkedList<>();
             for (RecipeStepTranslationRequest stepTranslationReq : request.getSteps()) {
                 RecipeStepTranslation translation = new RecipeStepTranslation(stepTranslationReq.getStepId(), locale, stepTranslationReq.getTitle(), stepTranslationReq.getDescription());
-                recipeStepTranslationDAO.update(translation, conn);
+                recipeStepTranslationDAO.update(translation);
                 updatedStepTranslations.add(translation);
             }
 
-            conn.commit();
-            LOG.info("Recipe translation updated successfully for recipe " + recipeId + " with locale " + locale);
+            RecipeDetailResponse response = getRecipebyId(recipeId, principal, locale);
 
-            return getRecipebyId(recipeId, username, locale);
-        
-        } catch (SQLException | DAOException e) {
-            rollback(conn, e);
-            throw new DAOException(e);
-        } finally {
-            closeConnection(conn);
-        } 
+            unitOfWork.commit();
+            UnitOfWork.afterCommit(() -> {
+                LOG.info("Recipe translation updated successfully for recipe " + recipeId + " with locale " + locale);
+                refreshSearchIndex(recipeId);
+            });
+
+            return response;
+        }
     }
 
-    public RecipeDetailResponse updateRecipeStep(long recipeId, long stepId, UpdateRecipeStepRequest request, String username, String locale)
+    public RecipeDetailResponse updateRecipeStep(long recipeId, long stepId, UpdateRecipeStepRequest request, JwtPrincipal principal, String locale)
     throws ValidationException, DAOException, IllegalArgumentException {
         validateUpdateStepRequest(request);
-        ensureRecipeOwnership(recipeId, usersDAO.getByUsername(username).getId());
+        ensureRecipeOwnership(recipeId, userId(principal));
         ensureStepBelongsToRecipe(stepId, recipeId);
 
         RecipeStep step = recipeStepDAO.get(stepId);
@@ -408,15 +613,17 @@ public class RecipeManagmentService {
         }
 
         recipeStepDAO.update(step);
-        LOG.info("Recipe step updated successfully for step " + stepId + " of recipe " + recipeId);
+        UnitOfWork.afterCommit(() ->
+            LOG.info("Recipe step updated successfully for step " + stepId + " of recipe " + recipeId)
+        );
         
-        return getRecipebyId(recipeId, username, locale);
+        return getRecipebyId(recipeId, principal, locale);
     }
 
-    public RecipeDetailResponse updateRecipeStepTranslation(long recipeId, long stepId, String locale, UpdateRecipeStepTranslationRequest request, String username)
+    public RecipeDetailResponse updateRecipeStepTranslation(long recipeId, long stepId, String locale, UpdateRecipeStepTranslationRequest request, JwtPrincipal principal)
     throws ValidationException, DAOException, IllegalArgumentException {
         validateUpdateStepTranslationRequest(request);
-        ensureRecipeOwnership(recipeId, usersDAO.getByUsername(username).getId());
+        ensureRecipeOwnership(recipeId, userId(principal));
         ensureStepBelongsToRecipe(stepId, recipeId);
 
         RecipeStepTranslation translation = recipeStepTranslationDAO.getByStepIdAndLocale(stepId, locale);
@@ -427,47 +634,48 @@ public class RecipeManagmentService {
 
         RecipeStepTranslation updatedTranslation = new RecipeStepTranslation(stepId, locale, request.getTitle(), request.getDescription());
         recipeStepTranslationDAO.update(updatedTranslation);
-        LOG.info("Recipe step translation updated successfully for step " + stepId + " of recipe " + recipeId + " with locale " + locale);
+        UnitOfWork.afterCommit(() ->
+            LOG.info("Recipe step translation updated successfully for step " + stepId + " of recipe " + recipeId + " with locale " + locale)
+        );
 
-        return getRecipebyId(recipeId, username, locale);
+        return getRecipebyId(recipeId, principal, locale);
     }
 
-    public void updateVisibility(long recipeId, boolean isPublic, String username)
+    public void updateVisibility(long recipeId, boolean isPublic, JwtPrincipal principal)
     throws DAOException, IllegalArgumentException {
-        User user = usersDAO.getByUsername(username);
+        User user = authenticatedUser(principal);
         ensureRecipeOwnership(recipeId, user.getId());
         recipeDAO.updateVisibility(recipeId, isPublic);
-        LOG.info("Recipe " + recipeId + " visibility updated to: " + isPublic);
+        UnitOfWork.afterCommit(() -> {
+            LOG.info("Recipe " + recipeId + " visibility updated to: " + isPublic);
+            refreshSearchIndex(recipeId);
+            refreshMatchIndex(recipeId, isPublic);
+        });
     }
 
-    public void deleteRecipe(long recipeId, String username)
+    public void deleteRecipe(long recipeId, JwtPrincipal principal)
     throws DAOException, IllegalArgumentException {
-        User user = usersDAO.getByUsername(username);
+        User user = authenticatedUser(principal);
         ensureRecipeOwnership(recipeId, user.getId());
 
-        Connection conn = null;
-        try {
-            conn = recipeDAO.getConnection(null);
-            conn.setAutoCommit(false);
-
-            recipeIngredientDAO.deleteByRecipeId(recipeId, conn);
-            recipeStepDAO.deleteByRecipeId(recipeId, conn); // Cascade deletes step translations as well
-            recipeDAO.delete(recipeId, conn); // Cascade deletes recipe translations as well
-
-            conn.commit();
-            LOG.info("Recipe deleted successfully with id: " + recipeId);
-
-        } catch (SQLException | DAOException e) {
-            rollback(conn, e);
-            throw new DAOException(e);
-        } finally {
-            closeConnection(conn);
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            recipeIngredientDAO.deleteByRecipeId(recipeId);
+            recipeStepDAO.deleteByRecipeId(recipeId); // Cascade deletes step translations as well
+            recipeDAO.delete(recipeId); // Cascade deletes recipe translations as well
+
+            unitOfWork.commit();
+            UnitOfWork.afterCommit(() -> {
+                LOG.info("Recipe deleted successfully with id: " + recipeId);
+                searchIndex.remove(recipeId);
+                matchIndex.remove(recipeId);
+                autocompleteIndex.markStale();
+            });
         }
     }
 
-    public void deleteRecipeTranslation(long recipeId, String locale, String username) 
+    public void deleteRecipeTranslation(long recipeId, String locale, JwtPrincipal principal) 
     throws ValidationException, IllegalArgumentException, DAOException {
-        User user = usersDAO.getByUsername(username);
+        User user = authenticatedUser(principal);
         ensureRecipeOwnership(recipeId, user.getId());
 
         List<String> availableLocales = recipeTranslationDAO.getAvailableLocales(recipeId);
@@ -475,38 +683,34 @@ public class RecipeManagmentService {
             throw new ValidationException("Cannot delete the only available translation for this recipe.");
         }
 
-        Connection conn = null;
-        try {
-            conn = recipeTranslationDAO.getConnection(null);
-            conn.setAutoCommit(false);
-    
-            recipeTranslationDAO.deleteByRecipeIdAndLocale(recipeId, locale, conn);
-            recipeStepTranslationDAO.deleteByRecipeIdAndLocale(recipeId, locale, conn);
-
-            conn.commit();
-            LOG.info("Translation deleted successfully for recipe " + recipeId + " with locale " + locale);
-        } catch (SQLException | DAOException e) {
-            rollback(conn, e);
-            throw new DAOException(e);
-        } finally {
-            closeConnection(conn);
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            recipeTranslationDAO.deleteByRecipeIdAndLocale(recipeId, locale);
+            recipeStepTranslationDAO.deleteByRecipeIdAndLocale(recipeId, locale);
+
+            unitOfWork.commit();
+            UnitOfWork.afterCommit(() -> {
+                LOG.info("Translation deleted successfully for recipe " + recipeId + " with locale " + locale);
+                refreshSearchIndex(recipeId);
+            });
         }
     }
 
-    public RecipeDetailResponse deleteRecipeStep(long recipeId, long stepId, String username, String locale)
+    public RecipeDetailResponse deleteRecipeStep(long recipeId, long stepId, JwtPrincipal principal, String locale)
     throws DAOException, IllegalArgumentException {
-        ensureRecipeOwnership(recipeId, usersDAO.getByUsername(username).getId());
+        ensureRecipeOwnership(recipeId, userId(principal));
         ensureStepBelongsToRecipe(stepId, recipeId);
 
         recipeStepDAO.delete(stepId); // Cascade deletes step translations as well
-        LOG.info("Recipe step deleted successfully for step " + stepId + " of recipe " + recipeId);
+        UnitOfWork.afterCommit(() ->
+            LOG.info("Recipe step deleted successfully for step " + stepId + " of recipe " + recipeId)
+        );
 
-        return getRecipebyId(recipeId, username, locale);
+        return getRecipebyId(recipeId, principal, locale);
     }
 
     //========== AUXILIARY METHODS ==========
 
-    private List<RecipeStep> createRecipeSteps(List<RecipeStepRequest> stepRequests, long recipeId, Connection conn) 
+    private List<RecipeStep> createRecipeSteps(List<RecipeStepRequest> stepRequests, long recipeId) 
     throws DAOException {
         List<RecipeStep> steps = new LinkedList<>();
         for (RecipeStepRequest stepReq : stepRequests) {
@@ -515,63 +719,72 @@ public class RecipeManagmentService {
             step.setImagePath(null); // image path will be set later when the image is uploaded
             step.setRecipe(new Recipe(recipeId));
 
-            // Persist the step to get its generated ID for the translations
-            recipeStepDAO.create(step, conn);
-            step.setId(step.getId()); // Set the generated ID back to the step entity
             steps.add(step);
         }
-        return steps;
+
+        // Persist all the steps at once to get their generated IDs for the translations
+        return recipeStepDAO.createAll(steps);
     }
 
-    private List<RecipeStepTranslation> createRecipeStepTranslations(List<RecipeStepRequest> stepRequests, List<RecipeStep> steps, String locale, Connection conn)
+    private List<RecipeStepTranslation> createRecipeStepTranslations(List<RecipeStepRequest> stepRequests, List<RecipeStep> steps, String locale)
     throws DAOException {
         List<RecipeStepTranslation> stepTranslations = new LinkedList<>();
         for (int i = 0; i < stepRequests.size(); i++) {
             RecipeStepRequest stepReq = stepRequests.get(i);
             RecipeStep step = steps.get(i);
 
-            RecipeStepTranslation stepTranslation = new RecipeStepTranslation(step.getId(), locale, stepReq.getTitle(), stepReq.getDescription());
-            recipeStepTranslationDAO.create(stepTranslation, conn);
-            stepTranslations.add(stepTranslation);
-        }
-        return stepTranslations;
-    }
-
-    private List<RecipeStep> insertStepTranslationsIntoSteps(List<RecipeStep> steps, List<RecipeStepTranslation> stepTranslations) {
-        for (RecipeStep step : steps) {
-            List<RecipeStepTranslation> translationsForStep = new ArrayList<>();
-            for (RecipeStepTranslation translation : stepTranslations) {
-                if (translation.getStepId() == step.getId()) {
-                    translationsForStep.add(translation);
-                }
-            }
-            step.setTranslations(translationsForStep);
+            stepTranslations.add(new RecipeStepTranslation(step.getId(), locale, stepReq.getTitle(), stepReq.getDescription()));
         }
-        return steps;
+        return recipeStepTranslationDAO.createAll(stepTranslations);
     }
 
     /**
-     * Loads the translation for a given recipe and locale. If a translation for the requested locale is not found, it falls back to the default locale.
+     * Loads the full details of a recipe using the provided connection. The recipe, its author and
+     * all its translations are read in one query, the ingredients in a second one and the steps
+     * joined with their translation for the resolved locale in a third one.
      * 
-     * @param recipeId the ID of the recipe for which to load the translation.
-     * @param locale the locale code for the desired translation (e.g., "en", "es").
-     * @return the {@link RecipeTranslation} for the requested locale, or the default locale if not found.
-     * @throws DAOException if a database access error occurs while retrieving the translation, or if no translations are found for the recipe.
-     * @throws IllegalArgumentException if the recipe ID is invalid or if the locale code is null or empty.
+     * @param recipeId the ID of the recipe to load
+     * @param username the username of the user requesting the recipe
+     * @param locale the preferred locale code; falls back to the first available translation
+     * @param conn the connection used for every query
+     * @return a {@link RecipeDetailResponse} with the details of the recipe
+     * @throws DAOException if a database access error occurs or if the recipe has no translations
+     * @throws IllegalArgumentException if the recipe does not exist or is private and not owned by the user
      */
-    private RecipeTranslation loadTranslationWithFallback(long recipeId, String locale)
+    private RecipeDetailResponse loadRecipeDetail(long recipeId, String username, String locale, Connection conn)
     throws DAOException, IllegalArgumentException {
-        RecipeTranslation translation = recipeTranslationDAO.getByRecipeIdAndLocale(recipeId, locale);
+        Recipe recipe = recipeDAO.getWithTranslations(recipeId, conn);
+        if (recipe == null || (!recipe.isPublic() && !recipe.getUser().getUsername().equals(username))) {
+            throw new IllegalArgumentException("Recipe not found");
+        }
+
+        // Recipe data translation with fallback to the first available one if the requested one is not available
+        RecipeTranslation translation = recipe.getTranslationByLocaleOrFallback(locale);
         if (translation == null) {
-            // Fallback to default locale if translation for requested locale is not found
-            List<RecipeTranslation> allTranslations = recipeTranslationDAO.getByRecipeId(recipeId);
-            if (allTranslations.isEmpty()) {
-                throw new DAOException("No translations found for recipe with id " + recipeId);
-            } else {
-                return allTranslations.get(0);
+            throw new DAOException("No translations found for recipe with id " + recipeId);
+        }
+
+        List<RecipeIngredient> ingredients = recipeIngredientDAO.getByRecipeId(recipeId, conn);
+        List<RecipeStep> steps = recipeStepDAO.getByRecipeIdWithTranslation(recipeId, translation.getLocale(), conn);
+
+        return buildRecipeDetailResponse(recipe, translation, ingredients, steps);
+    }
+
+    private List<RecipeStep> insertStepTranslationsIntoSteps(List<RecipeStep> steps, List<RecipeStepTranslation> stepTranslations) {
+        Map<Long, List<RecipeStepTranslation>> translationsByStep = new HashMap<>();
+        for (RecipeStepTranslation translation : stepTranslations) {
+            List<RecipeStepTranslation> translationsForStep = translationsByStep.get(translation.getStepId());
+            if (translationsForStep == null) {
+                translationsForStep = new ArrayList<>();
+                translationsByStep.put(translation.getStepId(), translationsForStep);
             }
+            translationsForStep.add(translation);
         }
-        return translation;
+
+        for (RecipeStep step : steps) {
+            step.setTranslations(translationsByStep.get(step.getId()));
+        }
+        return steps;
     }
 
     /**
@@ -704,12 +917,34 @@ public class RecipeManagmentService {
         }
     }
 
-    private User ensureRecipeOwnership(long recipeId, long userId)
+    private void ensureRecipeOwnership(long recipeId, long userId)
     throws DAOException, IllegalArgumentException {
         if (!recipeDAO.isOwner(recipeId, userId)) {
             throw new IllegalArgumentException("Access denied: you  are not owner of the recipe");
         }
-        return usersDAO.get(userId);
+    }
+
+    /**
+     * Returns the ID of the authenticated user, taken from its token. Older tokens without
+     * the ID claim fall back to looking the user up by username.
+     */
+    private long userId(JwtPrincipal principal)
+    throws DAOException, IllegalArgumentException {
+        if (principal.getUserId() != null) {
+            return principal.getUserId();
+        }
+        return usersDAO.getByUsername(principal.getName()).getId();
+    }
+
+    /**
+     * Builds a reference to the authenticated user with its ID and username,
+     * enough to associate it with a recipe without reading the whole user.
+     */
+    private User authenticatedUser(JwtPrincipal principal)
+    throws DAOException, IllegalArgumentException {
+        User user = new User(userId(principal));
+        user.setUsername(principal.getName());
+        return user;
     }
 
     private void ensureStepBelongsToRecipe(long stepId, long recipeId)
@@ -722,28 +957,48 @@ public class RecipeManagmentService {
 
     private List<RecipeIngredient> resolveIngredients(List<RecipeIngredientRequest> ingredients) 
     throws ValidationException, DAOException {
-        List<RecipeIngredient> resolved = new LinkedList<>();
+        Set<Long> ingredientIds = new LinkedHashSet<>();
+        Set<Long> unitIds = new LinkedHashSet<>();
         for (RecipeIngredientRequest ing : ingredients) {
-            Ingredient ingredient;
-            try {
-                ingredient = ingredientDAO.get(ing.getIngredientId());
-            } catch (IllegalArgumentException e) {
-                LOG.log(Level.SEVERE, "Ingredient not found with id " + ing.getIngredientId(), e);
-                throw new ValidationException("Ingredient with id " + ing.getIngredientId() + " does not exist");
+            ingredientIds.add(ing.getIngredientId());
+            unitIds.add(ing.getUnitId());
+        }
+        ingredientIds.remove(null);
+        unitIds.remove(null);
+
+        // One query per table, whatever the number of lines
+        Map<Long, Ingredient> foundIngredients = ingredientDAO.getByIds(ingredientIds);
+        Map<Long, MeasurementUnit> foundUnits = measurementUnitDAO.getByIds(unitIds);
+
+        Set<Long> missingIngredients = new LinkedHashSet<>();
+        Set<Long> missingUnits = new LinkedHashSet<>();
+        for (RecipeIngredientRequest ing : ingredients) {
+            if (!foundIngredients.containsKey(ing.getIngredientId())) {
+                missingIngredients.add(ing.getIngredientId());
             }
-            
-            MeasurementUnit unit;
-            try {
-                unit = measurementUnitDAO.get(ing.getUnitId());
-            } catch (IllegalArgumentException e) {
-                LOG.log(Level.SEVERE, "Measurement unit not found with id " + ing.getUnitId(), e);
-                throw new ValidationException("Measurement unit with id " + ing.getUnitId() + " does not exist");
+            if (!foundUnits.containsKey(ing.getUnitId())) {
+                missingUnits.add(ing.getUnitId());
             }
-            
+        }
+
+        if (!missingIngredients.isEmpty() || !missingUnits.isEmpty()) {
+            List<String> errors = new ArrayList<>();
+            if (!missingIngredients.isEmpty()) {
+                errors.add("Ingredients with ids " + missingIngredients + " do not exist");
+            }
+            if (!missingUnits.isEmpty()) {
+                errors.add("Measurement units with ids " + missingUnits + " do not exist");
+            }
+            LOG.log(Level.FINE, "Unknown ingredients " + missingIngredients + " and measurement units " + missingUnits);
+            throw new ValidationException(String.join("; ", errors));
+        }
+
+        List<RecipeIngredient> resolved = new LinkedList<>();
+        for (RecipeIngredientRequest ing : ingredients) {
             RecipeIngredient resolvedIngredient = new RecipeIngredient();
-            resolvedIngredient.setIngredient(ingredient);
+            resolvedIngredient.setIngredient(foundIngredients.get(ing.getIngredientId()));
             resolvedIngredient.setQuantity(ing.getQuantity());
-            resolvedIngredient.setUnit(unit);
+            resolvedIngredient.setUnit(foundUnits.get(ing.getUnitId()));
             resolvedIngredient.setNotes(ing.getNotes());
             resolved.add(resolvedIngredient);
         }
@@ -854,14 +1109,78 @@ public class RecipeManagmentService {
         if (locale == null || locale.trim().isEmpty()) {
             locale = DEFAULT_LOCALE;
         }
+        List<Long> recipeIds = new ArrayList<>(recipes.size());
+        for (Recipe recipe : recipes) {
+            recipeIds.add(recipe.getId());
+        }
+
+        // Requested locale first, then the default one, then any available translation
+        Map<Long, RecipeTranslation> translations = recipeTranslationDAO.getPreferredByRecipeIds(recipeIds, Arrays.asList(locale, DEFAULT_LOCALE));
+
         List<RecipeSummaryResponse> summaries = new LinkedList<>();
         for (Recipe recipe: recipes) {
-            RecipeTranslation translation = loadTranslationWithFallback(recipe.getId(), locale);
+            RecipeTranslation translation = translations.get(recipe.getId());
+            if (translation == null) {
+                throw new DAOException("No translations found for recipe with id " + recipe.getId());
+            }
             summaries.add(toRecipeSummaryResponse(recipe, translation));
         }
         return summaries;
     }
 
+    /**
+     * Decodes a page cursor received from a client.
+     * 
+     * @param cursor the opaque cursor, or null or blank for the first page
+     * @return the decoded cursor, or null for the first page
+     * @throws ValidationException if the cursor is not valid
+     */
+    private RecipeCursor parseCursor(String cursor)
+    throws ValidationException {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return RecipeCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Resolves the size of a page from the limit requested by a client.
+     * 
+     * @param limit the requested limit, or null to use the default page size
+     * @return the page size, capped to the maximum page size
+     * @throws ValidationException if the limit is not a positive integer
+     */
+    private int resolvePageSize(Integer limit)
+    throws ValidationException {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new ValidationException("Limit must be a positive integer");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Removes the extra recipe fetched beyond the page size, if any, and returns 
+     * the cursor of the next page.
+     * 
+     * @param recipes the recipes retrieved with a limit of {@code pageSize + 1}
+     * @param pageSize the size of the page
+     * @return the encoded cursor of the next page, or null if this is the last page
+     */
+    private String trimToPage(List<Recipe> recipes, int pageSize) {
+        if (recipes.size() <= pageSize) {
+            return null;
+        }
+        recipes.remove(recipes.size() - 1);
+        return RecipeCursor.of(recipes.get(recipes.size() - 1)).encode();
+    }
+
     private RecipeSummaryResponse toRecipeSummaryResponse(Recipe recipe, RecipeTranslation translation) {
         return new RecipeSummaryResponse(
             recipe.getId(),
@@ -879,17 +1198,51 @@ public class RecipeManagmentService {
         );
     }
 
-    private void rollback(Connection conn, Exception e) {
-        if (conn != null) {
-            try {
-                conn.rollback();
-                LOG.warning("Transaction rolled back due to error: " + e.getMessage());
-            } catch (SQLException rollbackEx) {
-                LOG.log(Level.SEVERE, "Error rolling back transaction", rollbackEx);                
+    /**
+     * Updates the search index with the current translations and visibility of a recipe.
+     * It is called once the changes are committed, so a failure only leaves the index stale
+     * and does not fail the operation. The recipe is read in its own unit of work, so it is
+     * read from the primary database and not from a replica that may not have the changes yet.
+     */
+    private void refreshSearchIndex(long recipeId) {
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            Recipe recipe = recipeDAO.getWithTranslations(recipeId);
+            if (recipe != null && recipe.isPublic()) {
+                searchIndex.replace(recipeId, recipe.getTranslations());
+            } else {
+                searchIndex.remove(recipeId);
             }
+            unitOfWork.commit();
+        } catch (DAOException e) {
+            LOG.log(Level.WARNING, "Error refreshing search index for recipe " + recipeId, e);
+        }
+    }
+
+    /**
+     * Updates the ingredient match index with the current ingredients and visibility of a recipe.
+     * Like {@link #refreshSearchIndex(long)}, a failure only leaves the index stale.
+     */
+    private void refreshMatchIndex(long recipeId, boolean isPublic) {
+        if (!isPublic) {
+            matchIndex.remove(recipeId);
+            return;
+        }
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            matchIndex.put(recipeId, ingredientIds(recipeIngredientDAO.getByRecipeId(recipeId)));
+            unitOfWork.commit();
+        } catch (DAOException e) {
+            LOG.log(Level.WARNING, "Error refreshing ingredient match index for recipe " + recipeId, e);
         }
     }
 
+    private List<Long> ingredientIds(List<RecipeIngredient> ingredients) {
+        List<Long> ingredientIds = new ArrayList<>(ingredients.size());
+        for (RecipeIngredient ingredient : ingredients) {
+            ingredientIds.add(ingredient.getIngredient().getId());
+        }
+        return ingredientIds;
+    }
+
     private void closeConnection(Connection conn) {
         if (conn != null) {
             try {
@@ -900,4 +1253,56 @@ public class RecipeManagmentService {
         }
     }
 
+    /**
+     * A page of recipe summaries that is read from the database while it is streamed.
+     */
+    @FunctionalInterface
+    public interface RecipePageStream {
+        /**
+         * Reads the page and hands over the summary of each of its recipes.
+         * 
+         * @param handler the handler that will receive the summary of each recipe of the page
+         * @return the encoded cursor of the next page, or null if this is the last page
+         * @throws DAOException if a database access error occurs while retrieving the recipes
+         * @throws IOException if the handler fails while processing a recipe
+         */
+        String forEach(RowHandler<RecipeSummaryResponse> handler) throws DAOException, IOException;
+    }
+
+    /**
+     * Hands over the summaries of a page of recipes read with their translation for a locale,
+     * keeping track of the last one to build the cursor of the next page. The extra row fetched
+     * beyond the page size is not handed over.
+     */
+    private final class LocalizedPageHandler implements RowHandler<Recipe> {
+        private final String locale;
+        private final int pageSize;
+        private final RowHandler<RecipeSummaryResponse> delegate;
+
+        private int count = 0;
+        private Recipe last = null;
+        private boolean hasNext = false;
+
+        LocalizedPageHandler(String locale, int pageSize, RowHandler<RecipeSummaryResponse> delegate) {
+            this.locale = locale;
+            this.pageSize = pageSize;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void handle(Recipe recipe) throws IOException {
+            if (count == pageSize) {
+                hasNext = true;
+                return;
+            }
+            count++;
+            last = recipe;
+            delegate.handle(toRecipeSummaryResponse(recipe, recipe.getTranslationByLocale(locale)));
+        }
+
+        String getNextCursor() {
+            return hasNext ? RecipeCursor.of(last).encode() : null;
+        }
+    }
+
 }
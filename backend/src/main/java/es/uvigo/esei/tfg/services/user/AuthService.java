@@ -14,12 +14,12 @@ import es.uvigo.esei.tfg.dto.TokenResponse;
 import es.uvigo.esei.tfg.dto.UserResponse;
 import es.uvigo.esei.tfg.dto.auth.AuthResponse;
 import es.uvigo.esei.tfg.dto.auth.RegisterRequest;
-import es.uvigo.esei.tfg.entities.user.Token;
 import es.uvigo.esei.tfg.entities.user.User;
 import es.uvigo.esei.tfg.exceptions.AccountBlockedException;
 import es.uvigo.esei.tfg.exceptions.AuthenticationException;
 import es.uvigo.esei.tfg.exceptions.ValidationException;
 import es.uvigo.esei.tfg.exceptions.DAOException;
+import es.uvigo.esei.tfg.security.JwtPrincipal;
 import es.uvigo.esei.tfg.util.JwtUtil;
 
 public class AuthService {
@@ -33,12 +33,14 @@ public class AuthService {
     private final TokenManagmentService tokenManagmentService;
 
     private final UsersDAO usersDAO;
+    private final LastLoginRecorder lastLoginRecorder;
     
-    public AuthService() {
-        this.jwtUtil = new JwtUtil();
-        this.userPersonService = new UserPersonService();
-        this.tokenManagmentService = new TokenManagmentService();
-        this.usersDAO = new UsersDAO();
+    public AuthService(JwtUtil jwtUtil, UserPersonService userPersonService, TokenManagmentService tokenManagmentService, UsersDAO usersDAO, LastLoginRecorder lastLoginRecorder) {
+        this.jwtUtil = jwtUtil;
+        this.userPersonService = userPersonService;
+        this.tokenManagmentService = tokenManagmentService;
+        this.usersDAO = usersDAO;
+        this.lastLoginRecorder = lastLoginRecorder;
     }
 
     /**
@@ -121,65 +123,65 @@ public class AuthService {
     }
 
     /**
-     * Logs out the user by revoking their active tokens in the database.
-     * - (IT REVOKES ALL TOKENS FOR USER STORED
-     *  Needs adjustement to just revoke the refresh token associated 
+     * Logs out the user by revoking their active tokens, incrementing the token version of the user.
+     * - (IT REVOKES ALL TOKENS FOR USER, IN EVERY SESSION
+     *  Needs adjustement to just revoke the tokens associated 
      *  with the current session if we want to allow multiple sessions)
      * @throws DAOException
      */
-    public void logout(String authHeader) 
+    public void logout(JwtPrincipal principal) 
     throws IllegalArgumentException, DAOException {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            throw new IllegalArgumentException("Invalid Authorization header");
-        }
-            
-        String token = jwtUtil.extractTokenFromHeader(authHeader);
-        if (token == null) {
-            LOG.warning("Missing or invalid Authorization header for logout");
-            throw new IllegalArgumentException("Missing or invalid Authorization header");
-        }
-
-        String username = jwtUtil.getUsernameFromToken(token);
-        if (username == null) {
+        if (principal.getName() == null) {
             LOG.warning("Invalid token: unable to extract username for logout");
             throw new IllegalArgumentException("Invalid token: unable to extract username");
         }
 
-        final User user = usersDAO.getByUsername(username);
-        tokenManagmentService.revokeUserTokens(user.getId());
+        // Tokens issued before the user ID claim was added need a lookup
+        final long userId = principal.getUserId() != null
+            ? principal.getUserId()
+            : usersDAO.getByUsername(principal.getName()).getId();
+        tokenManagmentService.revokeUserTokens(userId);
     }
 
-    public TokenResponse refreshToken(String authHeader) 
+    /**
+     * Generates new tokens for the user of a refresh token. The signature, expiration and version
+     * of the token must have already been verified, and its claims are received as the principal.
+     * The token must be a refresh token and it must be stored and not revoked, so access tokens
+     * and already exchanged refresh tokens are rejected.
+     * 
+     * @param principal the authenticated user, built from the claims of the refresh token.
+     * @param authHeader the Authorization header containing the refresh token.
+     * @return a {@link TokenResponse} with the new tokens.
+     * @throws IllegalArgumentException if the header is invalid, the token is not a refresh token,
+     * or the token is not stored or has been revoked.
+     * @throws DAOException if an error occurs while accessing the data source.
+     */
+    public TokenResponse refreshToken(JwtPrincipal principal, String authHeader) 
     throws IllegalArgumentException, DAOException {
         // Extract the token from the Authorization header
-        String token = jwtUtil.extractTokenFromHeader(authHeader);
+        final String token = jwtUtil.extractTokenFromHeader(authHeader);
 
         if (token == null) {
             LOG.warning("Missing or invalid Authorization header for token refresh");
             throw new IllegalArgumentException("Missing or invalid Authorization header");
         }
-        
-        // Extract username from the token 
-        String username = jwtUtil.getUsernameFromToken(token);
 
-        if (username == null) {
+        if (principal.getName() == null) {
             LOG.warning("Invalid token: unable to extract username for token refresh");
             throw new IllegalArgumentException("Invalid token: unable to extract username");
         }
 
-        final User user = usersDAO.getByUsername(username);  
-
-        // Validate the token against the user details
-        if (!jwtUtil.isTokenValid(token, user)) {
-            LOG.warning("Invalid token provided for refresh for user: " + username);
-            throw new IllegalArgumentException("Invalid  token");
+        // The filter already checks the type, this guards other callers. Tokens issued before
+        // the type claim was added are only checked against the stored ones
+        if (principal.getTokenType() != null && !JwtUtil.REFRESH_TOKEN_TYPE.equals(principal.getTokenType())) {
+            LOG.warning("Attempt to refresh with a token that is not a refresh token: " + principal.getName());
+            throw new IllegalArgumentException("Invalid token: not a refresh token");
         }
 
-        // Verify token existence and revocation status in the database
-        Token storedToken = tokenManagmentService.getByToken(token);
+        final User user = usersDAO.getByUsername(principal.getName());  
 
-        // Generate and return new tokens, and revoke the old refresh token in the database
-        return tokenManagmentService.refreshTokens(user);
+        // Verify the stored token, and generate and return new tokens, revoking the previous ones
+        return tokenManagmentService.refreshTokens(user, token);
     }
 
     /**
@@ -252,8 +254,8 @@ public class AuthService {
             usersDAO.resetFailedLoginAttempts(user.getId());
         }
 
-        // Update last login timestamp
-        usersDAO.updateLastLogin(user.getId());
+        // Update last login timestamp, stored in the background with other logins
+        lastLoginRecorder.record(user.getId());
 
         return user;
     }
@@ -307,13 +309,10 @@ public class AuthService {
         // Invalid password
         if (!BCrypt.checkpw(password, user.getPasswordHash())) {
             
-            // Record failed login attempt
-            if (user.getFailedLoginAttempts() < MAX_FAILED_LOGIN_ATTEMPTS) {
-                usersDAO.recordFailedLoginAttempt(user.getId());
-            
-            // Lock account if max attempts reached
-            } else {
-                usersDAO.lockUserAccount(user.getId());
+            // Record failed login attempt, locking the account in the same update if max attempts reached
+            usersDAO.recordFailedLoginAttempt(user.getId(), MAX_FAILED_LOGIN_ATTEMPTS);
+
+            if (user.getFailedLoginAttempts() >= MAX_FAILED_LOGIN_ATTEMPTS) {
                 LOG.log(Level.WARNING, "User account locked due to multiple failed login attempts: " + user.getUsername());
                 
                 throw new AccountBlockedException(
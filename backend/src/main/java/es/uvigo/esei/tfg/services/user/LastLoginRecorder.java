@@ -0,0 +1,104 @@
+package es.uvigo.esei.tfg.services.user;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import es.uvigo.esei.tfg.dao.user.UsersDAO;
+import es.uvigo.esei.tfg.exceptions.DAOException;
+
+/**
+ * Write-behind buffer for the last login timestamps of the users.
+ *
+ * Logins only record the timestamp in memory, and the pending timestamps are stored
+ * periodically with a single batched update, so a burst of logins does not turn into a burst
+ * of writes on the users table. Several logins of the same user between two flushes are
+ * merged into one update with the latest timestamp. The periodic flushes run between
+ * {@link #start()} and {@link #shutdown()}.
+ */
+public class LastLoginRecorder {
+    private final static Logger LOG = Logger.getLogger(LastLoginRecorder.class.getName());
+
+    private final static long FLUSH_INTERVAL_SECONDS = 30;
+
+    private final UsersDAO usersDAO;
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a new instance of {@link LastLoginRecorder}.
+     *
+     * @param usersDAO the DAO used to store the timestamps.
+     */
+    public LastLoginRecorder(UsersDAO usersDAO) {
+        this.usersDAO = usersDAO;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "last-login-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts flushing the pending timestamps every {@value #FLUSH_INTERVAL_SECONDS} seconds.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records that a user has just logged in. The timestamp is stored on the next flush.
+     *
+     * @param userId the identifier of the user.
+     */
+    public void record(long userId) {
+        pending.merge(userId, LocalDateTime.now(), (previous, current) -> current.isAfter(previous) ? current : previous);
+    }
+
+    /**
+     * Stores all the pending timestamps. If they can not be stored, they are kept
+     * to be retried on the next flush.
+     *
+     * @throws DAOException if an error happens while storing the timestamps.
+     */
+    public void flush() throws DAOException {
+        final Map<Long, LocalDateTime> batch = new HashMap<>();
+        for (Long userId : pending.keySet()) {
+            LocalDateTime lastLogin = pending.remove(userId);
+            if (lastLogin != null) {
+                batch.put(userId, lastLogin);
+            }
+        }
+
+        try {
+            usersDAO.updateLastLogins(batch);
+        } catch (DAOException e) {
+            // Newer logins recorded meanwhile take precedence
+            batch.forEach((userId, lastLogin) -> pending.merge(userId, lastLogin, (current, failed) -> current));
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the periodic flushes and stores the pending timestamps.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        flushQuietly();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (DAOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Error storing the last login timestamps, they will be retried", e);
+        }
+    }
+
+}
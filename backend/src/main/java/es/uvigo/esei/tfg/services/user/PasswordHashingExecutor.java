@@ -0,0 +1,80 @@
+package es.uvigo.esei.tfg.services.user;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Dedicated pool for the requests that hash or check passwords with BCrypt, which take
+ * tens of milliseconds of CPU each. Keeping them apart from the request threads of the server
+ * stops a burst of logins from slowing down the rest of the API.
+ *
+ * The pool has one thread per core and a bounded queue. When the queue is full new tasks are
+ * rejected right away, so callers can answer that the service is busy instead of waiting.
+ * The pool is shared by the whole application (see {@link #getInstance()}).
+ */
+public class PasswordHashingExecutor {
+    private final static Logger LOG = Logger.getLogger(PasswordHashingExecutor.class.getName());
+
+    private final static int THREADS = Runtime.getRuntime().availableProcessors();
+    // Tasks that may wait for a thread, about a second of work with BCrypt's default cost
+    private final static int QUEUE_CAPACITY = THREADS * 16;
+
+    private final static PasswordHashingExecutor INSTANCE = new PasswordHashingExecutor(THREADS, QUEUE_CAPACITY);
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructs a new instance of {@link PasswordHashingExecutor}.
+     *
+     * @param threads the number of threads of the pool.
+     * @param queueCapacity the maximum number of tasks waiting for a thread.
+     */
+    public PasswordHashingExecutor(int threads, int queueCapacity) {
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        this.executor = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            factory,
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Returns the pool shared by the whole application.
+     *
+     * @return the shared pool.
+     */
+    public static PasswordHashingExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs a task in the pool.
+     *
+     * @param task the task to run.
+     * @throws RejectedExecutionException if the queue of the pool is full or the pool has been shut down.
+     */
+    public void execute(Runnable task) throws RejectedExecutionException {
+        executor.execute(task);
+    }
+
+    /**
+     * Stops the pool. The queued tasks are still run, but no new task is accepted.
+     */
+    public void shutdown() {
+        LOG.info("Shutting down the password hashing pool");
+        executor.shutdown();
+    }
+
+}
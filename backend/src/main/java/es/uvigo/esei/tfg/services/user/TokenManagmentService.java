@@ -1,5 +1,6 @@
 package es.uvigo.esei.tfg.services.user;
 
+import es.uvigo.esei.tfg.dao.UnitOfWork;
 import es.uvigo.esei.tfg.dao.user.TokenDAO;
 import es.uvigo.esei.tfg.dto.TokenResponse;
 import es.uvigo.esei.tfg.entities.user.Token;
@@ -8,8 +9,8 @@ import es.uvigo.esei.tfg.exceptions.DAOException;
 import es.uvigo.esei.tfg.util.JwtUtil;
 
 import java.sql.Connection;
-import java.sql.SQLException;
-import java.util.logging.Level;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.logging.Logger;
 
 
@@ -21,10 +22,12 @@ public class TokenManagmentService {
 
     private final JwtUtil jwtUtil;
     private final TokenDAO tokenDAO;
+    private final TokenVersionCache tokenVersions;
 
-    public TokenManagmentService() {
-        this.jwtUtil = new JwtUtil();
-        this.tokenDAO = new TokenDAO();
+    public TokenManagmentService(JwtUtil jwtUtil, TokenDAO tokenDAO, TokenVersionCache tokenVersions) {
+        this.jwtUtil = jwtUtil;
+        this.tokenDAO = tokenDAO;
+        this.tokenVersions = tokenVersions;
     }
 
     /**
@@ -36,39 +39,60 @@ public class TokenManagmentService {
      */
     public TokenResponse generateNewTokens(User user) 
     throws DAOException {
-        TokenResponse tokenResponse = generateTokenResponse(user.getUsername());
-        LOG.info("Generated new tokens: access " + tokenResponse.getAccessToken() + ", refresh " + tokenResponse.getRefreshToken());
+        TokenResponse tokenResponse = generateTokenResponse(user);
+        LOG.info("Generated new tokens for user ID: " + user.getId());
         saveUserToken(user.getId(), tokenResponse.getRefreshToken(), null);
         return tokenResponse;
     }
 
     /**
-     * Refreshes the user's tokens by generating new access and refresh tokens, 
-     * revoking the old refresh token in the database, and saving the new refresh token.
+     * Refreshes the user's tokens by revoking all the previous tokens of the user, 
+     * generating new access and refresh tokens, and saving the new refresh token.
+     * The refresh token must be one of the stored refresh tokens of the user, and it
+     * must not be revoked or expired. It is revoked with a conditional update in the same
+     * transaction, so when the same token is exchanged concurrently only one exchange succeeds.
      * 
      * @param user the user for which to refresh the tokens.
+     * @param refreshToken the refresh token exchanged for the new tokens.
      * @return a {@link TokenResponse} containing the new access and refresh tokens.
+     * @throws IllegalArgumentException if the refresh token is not stored for the user, or it is revoked or expired.
+     * @throws DAOException if an error occurs while accessing the data source or if the transaction fails.
      */
-    public TokenResponse refreshTokens(User user)
-    throws DAOException {
-        // Generate new tokens for the user
-        final TokenResponse newTokenResponse = generateTokenResponse(user.getUsername());
-        // Update the database to revoke the old refresh token and save the new one
-        updateUserTokens(user.getId(), newTokenResponse.getRefreshToken());
-        return newTokenResponse;
+    public TokenResponse refreshTokens(User user, String refreshToken)
+    throws IllegalArgumentException, DAOException {
+        if (refreshToken == null || refreshToken.trim().isEmpty()) {
+            throw new IllegalArgumentException("Token can't be null or empty");
+        }
+
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            if (!tokenDAO.revokeIfActive(JwtUtil.digest(refreshToken), user.getId())) {
+                LOG.warning("Refresh token is not stored for user ID " + user.getId() + ", or it is revoked or expired");
+                throw new IllegalArgumentException("Invalid or revoked refresh token");
+            }
+
+            // Revoke the previous tokens, so the new ones are issued with the new version
+            user.setTokenVersion(tokenVersions.revoke(user.getId()));
+            tokenDAO.revokeAllUserTokens(user.getId());
+
+            final TokenResponse newTokenResponse = generateTokenResponse(user);
+            saveUserToken(user.getId(), newTokenResponse.getRefreshToken(), null);
+
+            unitOfWork.commit();
+            return newTokenResponse;
+        }
     }
 
     /**
      * Generates a {@link TokenResponse} containing an access token 
-     * and a refresh token for the given username.
+     * and a refresh token for the given user.
      * 
-     * @param username the username for which to generate the tokens.
+     * @param user the user for which to generate the tokens.
      * @return a {@link TokenResponse} containing the generated access 
      * and refresh tokens along with their expiration times.
      */
-    private TokenResponse generateTokenResponse(String username) {
-        String accessToken = jwtUtil.generateToken(username, JWT_EXPIRATION_TIME);
-        String refreshToken = jwtUtil.generateToken(username, JWT_REFRESH_TOKEN_EXPIRATION_TIME);
+    private TokenResponse generateTokenResponse(User user) {
+        String accessToken = jwtUtil.generateToken(user, JWT_EXPIRATION_TIME);
+        String refreshToken = jwtUtil.generateToken(user, JwtUtil.REFRESH_TOKEN_TYPE, JWT_REFRESH_TOKEN_EXPIRATION_TIME);
 
         return new TokenResponse(
             accessToken, 
@@ -89,77 +113,28 @@ public class TokenManagmentService {
     private void saveUserToken(long userId, String refreshToken, Connection externalConnection) 
     throws DAOException {
         Token token = new Token();
-        token.setToken(refreshToken);
+        token.setTokenHash(JwtUtil.digest(refreshToken));
         token.setTokenType("refresh");
+        token.setExpiresAt(LocalDateTime.now().plus(JWT_REFRESH_TOKEN_EXPIRATION_TIME, ChronoUnit.MILLIS));
         token.setIdUser(userId);
 
         this.tokenDAO.create(token, externalConnection);
     }
 
     /**
-     * Updates the user's tokens in the database by revoking all existing tokens and saving the new refresh token.
+     * Revokes all the tokens issued to the user, in every session, by incrementing its token version
+     * and marking its stored refresh tokens as revoked in a single transaction.
      * 
-     * @param userId the ID of the user for which to update the tokens.
-     * @param newRefreshToken the new refresh token to be saved in the database.
-     * @throws DAOException if an error occurs while accessing the data source or if the transaction fails.
+     * @param userId the ID of the user whose tokens are revoked.
+     * @throws DAOException if an error occurs while accessing the data source.
      */
-    private void updateUserTokens(long userId, String newRefreshToken)
-    throws DAOException {
-        Connection conn = null;
-        try {
-            conn = tokenDAO.getConnection(null);
-            conn.setAutoCommit(false);
-
-            // Revoke all existing tokens for the user
-            tokenDAO.revokeAllUserTokens(userId, conn);
-            
-            // Save the new refresh token in the database
-            saveUserToken(userId, newRefreshToken, conn);
-
-            // Commit the transaction if everything is successful
-            conn.commit();
-            LOG.info("User tokens updated successfully for user ID: " + userId);
-        //Rollback the transaction in case of any error
-        } catch (SQLException | DAOException e) {
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                    LOG.warning("Transaction rolled back due to error: " + e.getMessage());
-                } catch (SQLException rollbackEx) {
-                    LOG.log(Level.SEVERE, "Error rolling back transaction", rollbackEx);
-                    throw new DAOException("Error rolling back transaction: " + rollbackEx.getMessage(), rollbackEx);
-                }
-            }
-            
-            LOG.log(Level.SEVERE, "Error updating user tokens", e);
-            throw new DAOException(e);
-
-        // Finally block to ensure the connection is closed
-        } finally {
-            if (conn != null) {
-                try {                    
-                    conn.close();
-                } catch (SQLException closeEx) {
-                    LOG.log(Level.SEVERE, "Error closing connection", closeEx);
-                }
-            }
-        }
-    }
-
     public void revokeUserTokens(long userId)
     throws DAOException {
-        tokenDAO.revokeAllUserTokens(userId);
-    }
-
-    public Token getByToken(String token) 
-    throws IllegalArgumentException, DAOException {
-        Token storedToken = tokenDAO.getByToken(token);
-
-        if (storedToken == null || storedToken.isRevoked()) {
-            LOG.warning("Refresh token is invalid or revoked for token: " + token);
-            throw new IllegalArgumentException("Invalid or revoked refresh token");
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            tokenVersions.revoke(userId);
+            tokenDAO.revokeAllUserTokens(userId);
+            unitOfWork.commit();
         }
-        return storedToken;
     }
 
 }
@@ -0,0 +1,134 @@
+package es.uvigo.esei.tfg.services.user;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import es.uvigo.esei.tfg.dao.user.TokenDAO;
+import es.uvigo.esei.tfg.exceptions.DAOException;
+
+/**
+ * Periodically deletes the tokens that are expired or revoked, so the tokens table only
+ * grows with the active sessions.
+ *
+ * Tokens are deleted in small chunks that walk the primary key, with a pause between them,
+ * so each delete only locks a few rows for a short time and the logins and refreshes running
+ * meanwhile are not blocked. The purges run between {@link #start()} and {@link #shutdown()},
+ * and the task keeps some metrics of the purges done.
+ */
+public class TokenPurgeTask {
+    private final static Logger LOG = Logger.getLogger(TokenPurgeTask.class.getName());
+
+    private final static long PURGE_INTERVAL_MINUTES = 60;
+    private final static int CHUNK_SIZE = 500;
+    private final static long PAUSE_BETWEEN_CHUNKS_MILLIS = 50;
+
+    private final TokenDAO tokenDAO;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder purgedTokens = new LongAdder();
+    private final LongAdder completedRuns = new LongAdder();
+    private final LongAdder failedRuns = new LongAdder();
+    private final AtomicLong lastRunPurgedTokens = new AtomicLong();
+    private final AtomicLong lastRunDurationMillis = new AtomicLong();
+    private final AtomicLong lastRunFinishedAt = new AtomicLong();
+
+    /**
+     * Constructs a new instance of {@link TokenPurgeTask}.
+     *
+     * @param tokenDAO the DAO used to find and delete the tokens.
+     */
+    public TokenPurgeTask(TokenDAO tokenDAO) {
+        this.tokenDAO = tokenDAO;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "token-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts purging the tokens every {@value #PURGE_INTERVAL_MINUTES} minutes, starting right away.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::purgeQuietly, 0, PURGE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Deletes all the tokens that are expired or revoked, chunk by chunk.
+     *
+     * @return the number of deleted tokens.
+     * @throws DAOException if an error happens while deleting the tokens. The chunks
+     * deleted before the error are not restored.
+     * @throws InterruptedException if the thread is interrupted during a pause between chunks.
+     */
+    public long purge() throws DAOException, InterruptedException {
+        final long start = System.currentTimeMillis();
+        long purged = 0;
+        long lastId = 0;
+
+        List<Long> ids = tokenDAO.getPurgeableIds(lastId, CHUNK_SIZE);
+        while (!ids.isEmpty()) {
+            purged += tokenDAO.deleteAll(ids);
+            lastId = ids.get(ids.size() - 1);
+
+            if (ids.size() < CHUNK_SIZE) {
+                break;
+            }
+            Thread.sleep(PAUSE_BETWEEN_CHUNKS_MILLIS);
+            ids = tokenDAO.getPurgeableIds(lastId, CHUNK_SIZE);
+        }
+
+        final long finishedAt = System.currentTimeMillis();
+        purgedTokens.add(purged);
+        completedRuns.increment();
+        lastRunPurgedTokens.set(purged);
+        lastRunDurationMillis.set(finishedAt - start);
+        lastRunFinishedAt.set(finishedAt);
+
+        LOG.info("Purged " + purged + " expired or revoked tokens in " + (finishedAt - start) + " ms");
+        return purged;
+    }
+
+    /**
+     * Stops the periodic purges. A purge in progress is interrupted between two chunks.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public long getPurgedTokens() { return purgedTokens.sum(); }
+
+    public long getCompletedRuns() { return completedRuns.sum(); }
+
+    public long getFailedRuns() { return failedRuns.sum(); }
+
+    public long getLastRunPurgedTokens() { return lastRunPurgedTokens.get(); }
+
+    public long getLastRunDurationMillis() { return lastRunDurationMillis.get(); }
+
+    /**
+     * Returns when the last successful purge finished, in milliseconds since the epoch,
+     * or 0 if no purge has finished yet.
+     *
+     * @return when the last successful purge finished.
+     */
+    public long getLastRunFinishedAt() { return lastRunFinishedAt.get(); }
+
+    private void purgeQuietly() {
+        try {
+            purge();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DAOException | RuntimeException e) {
+            failedRuns.increment();
+            LOG.log(Level.WARNING, "Error purging tokens, they will be purged on the next run", e);
+        }
+    }
+
+}
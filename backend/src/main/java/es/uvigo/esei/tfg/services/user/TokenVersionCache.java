@@ -0,0 +1,104 @@
+package es.uvigo.esei.tfg.services.user;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import es.uvigo.esei.tfg.dao.UnitOfWork;
+import es.uvigo.esei.tfg.dao.user.UsersDAO;
+import es.uvigo.esei.tfg.exceptions.DAOException;
+
+/**
+ * Cache of the current token version of the users.
+ *
+ * Every token carries the version of its user at the time it was issued, and only the tokens
+ * with the current version are accepted. Revoking all the tokens of a user is a single increment
+ * of the version, however many sessions the user has, and checking a token is an integer compare
+ * against this cache. Versions are reloaded after {@value #TTL_SECONDS} seconds, so revocations done
+ * by other instances of the application are seen within that time.
+ */
+public class TokenVersionCache {
+    private final static long TTL_SECONDS = 60;
+    private final static int MAX_SIZE = 100_000;
+
+    private final UsersDAO usersDAO;
+    private final Map<Long, Entry> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new instance of {@link TokenVersionCache}.
+     *
+     * @param usersDAO the DAO used to load and increment the versions.
+     */
+    public TokenVersionCache(UsersDAO usersDAO) {
+        this.usersDAO = usersDAO;
+    }
+
+    /**
+     * Returns the current token version of a user, loading it if it is not cached.
+     *
+     * @param userId the identifier of the user.
+     * @return the current token version of the user.
+     * @throws DAOException if an error happens while loading the version.
+     * @throws IllegalArgumentException if the user does not exist.
+     */
+    public int getCurrentVersion(long userId) throws DAOException, IllegalArgumentException {
+        final long now = System.nanoTime();
+        final Entry entry = versions.get(userId);
+        if (entry != null && !entry.isExpired(now)) {
+            return entry.version;
+        }
+
+        final int version = usersDAO.getTokenVersion(userId);
+        store(userId, version, now);
+        return version;
+    }
+
+    /**
+     * Revokes all the tokens issued to a user by incrementing its token version. If a unit of work
+     * is open, the new version is cached once it is committed, so it is never seen before it is
+     * stored nor kept if the unit of work is rolled back.
+     *
+     * @param userId the identifier of the user.
+     * @return the new token version of the user, to be used in the tokens issued from now on.
+     * @throws DAOException if an error happens while incrementing the version.
+     * @throws IllegalArgumentException if the user does not exist.
+     */
+    public int revoke(long userId) throws DAOException, IllegalArgumentException {
+        final int version = usersDAO.incrementTokenVersion(userId);
+        UnitOfWork.afterCommit(() -> store(userId, version, System.nanoTime()));
+        return version;
+    }
+
+    /**
+     * Removes all the cached versions.
+     */
+    public void clear() {
+        versions.clear();
+    }
+
+    private void store(long userId, int version, long now) {
+        if (versions.size() >= MAX_SIZE) {
+            versions.values().removeIf(entry -> entry.isExpired(now));
+            if (versions.size() >= MAX_SIZE) {
+                versions.clear();
+            }
+        }
+        // A concurrent revocation may have stored a newer version meanwhile, which must not be lost
+        versions.merge(userId, new Entry(version, now), (current, loaded) -> loaded.version >= current.version ? loaded : current);
+    }
+
+    private static final class Entry {
+        private final int version;
+        private final long loadedAt;
+
+        Entry(int version, long loadedAt) {
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - loadedAt >= TimeUnit.SECONDS.toNanos(TTL_SECONDS);
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package es.uvigo.esei.tfg.services.user;
 
+import es.uvigo.esei.tfg.dao.UnitOfWork;
 import es.uvigo.esei.tfg.dao.user.PeopleDAO;
 import es.uvigo.esei.tfg.dao.user.UsersDAO;
 import es.uvigo.esei.tfg.dto.UserProfileResponse;
@@ -8,10 +9,7 @@ import es.uvigo.esei.tfg.entities.user.Person;
 import es.uvigo.esei.tfg.entities.user.User;
 
 import es.uvigo.esei.tfg.exceptions.DAOException;
-import es.uvigo.esei.tfg.util.JwtUtil;
 
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -24,12 +22,14 @@ public class UserPersonService {
 
     private final UsersDAO usersDAO;
     private final PeopleDAO peopleDAO;
-    private final JwtUtil jwtUtil;
 
     public UserPersonService() {
-        this.usersDAO = new UsersDAO();
-        this.peopleDAO = new PeopleDAO();
-        this.jwtUtil = new JwtUtil();
+        this(new UsersDAO(), new PeopleDAO());
+    }
+
+    public UserPersonService(UsersDAO usersDAO, PeopleDAO peopleDAO) {
+        this.usersDAO = usersDAO;
+        this.peopleDAO = peopleDAO;
     }
 
     /**
@@ -43,50 +43,27 @@ public class UserPersonService {
      */
     public User createUser(RegisterRequest credentials) 
     throws DAOException {
-        Connection conn = null;
-        
-        try {            
-            conn = usersDAO.getConnection(null);
-            conn.setAutoCommit(false); 
+        // Hashed before the unit of work, so no connection is held while hashing
+        User user = credentialsToUser(credentials);
 
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
             // Create person
-            final Person person = peopleDAO.create(new Person(credentials.getName(), credentials.getSurname()), conn);
+            final Person person = peopleDAO.create(new Person(credentials.getName(), credentials.getSurname()));
 
             // Create user and associate with person
-            User user = credentialsToUser(credentials);
             user.setPerson(person);
-            user = usersDAO.create(user, conn);
-        
-            // Commit the transaction if everything is successful
-            conn.commit(); 
-            LOG.info("User registered successfully: " + user.getUsername());
+            user = usersDAO.create(user);
+
+            unitOfWork.commit();
+
+            final String username = user.getUsername();
+            UnitOfWork.afterCommit(() -> LOG.info("User registered successfully: " + username));
 
             return user;
 
-        // Rollback the transaction in case of any error
-        } catch (SQLException | DAOException e) {
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                    LOG.warning("Transaction rolled back due to error: " + e.getMessage());
-                } catch (SQLException rollbackEx) {
-                    LOG.log(Level.SEVERE, "Error rolling back transaction", rollbackEx);
-                    throw new DAOException("Error rolling back transaction: " + rollbackEx.getMessage(), rollbackEx);
-                }
-            }
-            
+        } catch (DAOException e) {
             LOG.log(Level.SEVERE, "Error creating user", e);
-            throw new DAOException(e);
-
-        // Finally block to ensure the connection is closed
-        } finally {
-            if (conn != null) {
-                try {                    
-                    conn.close();
-                } catch (SQLException closeEx) {
-                    LOG.log(Level.SEVERE, "Error closing connection", closeEx);
-                }
-            }
+            throw e;
         }
     }
 
@@ -118,18 +95,16 @@ public class UserPersonService {
         );
     }
 
-    public UserProfileResponse getProfile(String authHeader) 
+    /**
+     * Retrieves the profile of the authenticated user.
+     * 
+     * @param username the username of the authenticated user, taken from its already verified token.
+     * @return the profile of the user.
+     * @throws IllegalArgumentException if the user or its associated person do not exist.
+     * @throws DAOException if an error occurs while accessing the data source.
+     */
+    public UserProfileResponse getProfile(String username) 
     throws IllegalArgumentException, DAOException {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            throw new IllegalArgumentException("Invalid Authorization header");
-        }
-
-        String token = jwtUtil.extractTokenFromHeader(authHeader);
-        if (token == null) {
-            throw new IllegalArgumentException("Invalid or missing token in Authorization header");
-        }
-
-        String username = jwtUtil.getUsernameFromToken(token);
         if (username == null) {
             throw new IllegalArgumentException("Invalid token: unable to extract username");
         }
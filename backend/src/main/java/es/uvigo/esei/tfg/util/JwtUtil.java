@@ -2,10 +2,15 @@ package es.uvigo.esei.tfg.util;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.crypto.SecretKey;
@@ -20,6 +25,8 @@ public class JwtUtil {
     // Change this to a secure key in production 
     private static final String SECRET_KEY_STRING = "MySecretKeyForJWTTokenGenerationMustBeLongEnough256Bits!!"; 
     private final SecretKey SECRET_KEY;
+    // Parsers are immutable and thread-safe, so the same one verifies every token
+    private final JwtParser parser;
 
     // Token expiration (in milliseconds)
     private static final long EXPIRATION_TIME = 15 * 60 * 1000; // 15 minutes
@@ -30,10 +37,35 @@ public class JwtUtil {
     // Header string for the Authorization header
     private static final String HEADER_STRING = "Authorization";
 
+    // Claims with the identity of the user, so requests do not need to look it up by username
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    // Claim with the token version of the user when the token was issued, to revoke tokens
+    public static final String TOKEN_VERSION_CLAIM = "tver";
+    // Claim with the type of the token, so a refresh token can not be used as an access token and vice versa
+    public static final String TOKEN_TYPE_CLAIM = "typ";
+    public static final String ACCESS_TOKEN_TYPE = "access";
+    public static final String REFRESH_TOKEN_TYPE = "refresh";
+
+    // Length in bytes of the digest of a token
+    public static final int DIGEST_LENGTH = 32;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform must support SHA-256
+            throw new IllegalStateException(e);
+        }
+    });
+
     public JwtUtil() {
         // Initialize the secret key
         this.SECRET_KEY = Keys.hmacShaKeyFor(SECRET_KEY_STRING.getBytes());
         //this.SECRET_KEY = Jwts.SIG.HS256.key().build();
+        this.parser = Jwts.parser()
+                .verifyWith(SECRET_KEY)
+                .build();
     }
 
     /**
@@ -48,6 +80,7 @@ public class JwtUtil {
 
         String token = Jwts.builder()
                 .subject(username)
+                .id(UUID.randomUUID().toString())
                 .expiration(expirationDate)
                 .signWith(SECRET_KEY, Jwts.SIG.HS256)
                 .compact();
@@ -69,6 +102,7 @@ public class JwtUtil {
 
         String token = Jwts.builder()
                 .subject(username)
+                .id(UUID.randomUUID().toString())
                 .expiration(expirationDate)
                 .signWith(SECRET_KEY, Jwts.SIG.HS256)
                 .compact();
@@ -77,6 +111,47 @@ public class JwtUtil {
         return token;
     }
 
+    /**
+     * Generates a JWT access token for the given user with a custom expiration time.
+     * 
+     * @param user the user for which the token is generated.
+     * @param expirationTimeMillis the custom expiration time in milliseconds.
+     * @return the generated JWT token.
+     * @see #generateToken(User, String, long)
+     */
+    public String generateToken(User user, long expirationTimeMillis) {
+        return generateToken(user, ACCESS_TOKEN_TYPE, expirationTimeMillis);
+    }
+
+    /**
+     * Generates a JWT token of the given type for the given user with a custom expiration time. Besides
+     * the username, the token includes the ID, the role and the current token version of the user. Like
+     * every token, it also has a random ID, so two tokens issued in the same second are never equal.
+     * 
+     * @param user the user for which the token is generated.
+     * @param tokenType the type of the token, {@value #ACCESS_TOKEN_TYPE} or {@value #REFRESH_TOKEN_TYPE}.
+     * @param expirationTimeMillis the custom expiration time in milliseconds.
+     * @return the generated JWT token.
+     */
+    public String generateToken(User user, String tokenType, long expirationTimeMillis) {
+        Date now = new Date();
+        Date expirationDate = new Date(now.getTime() + expirationTimeMillis);
+
+        String token = Jwts.builder()
+                .subject(user.getUsername())
+                .id(UUID.randomUUID().toString())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLE_CLAIM, user.getRole())
+                .claim(TOKEN_VERSION_CLAIM, user.getTokenVersion())
+                .claim(TOKEN_TYPE_CLAIM, tokenType)
+                .expiration(expirationDate)
+                .signWith(SECRET_KEY, Jwts.SIG.HS256)
+                .compact();
+
+        LOG.log(Level.INFO, "Generated JWT token for user: " + user.getUsername());
+        return token;
+    }
+
     /**
      * Validates the provided JWT token.
      * 
@@ -85,10 +160,7 @@ public class JwtUtil {
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parser()
-                .verifyWith(SECRET_KEY)
-                .build()
-                .parseSignedClaims(token);
+            parser.parseSignedClaims(token);
 
             return true;
 
@@ -155,16 +227,26 @@ public class JwtUtil {
     }
 
     /**
-     * Parses the claims from the provided JWT token.
+     * Verifies the signature and expiration of the provided JWT token and parses its claims.
      * 
      * @param token the JWT token from which to parse the claims.
      * @return the claims extracted from the token.
+     * @throws JwtException if the token is invalid or expired.
      */
-    private Claims parseClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(SECRET_KEY)
-                .build()
+    public Claims parseClaims(String token) throws JwtException {
+        return parser
                 .parseSignedClaims(token)
                 .getPayload();
     }
+
+    /**
+     * Computes the SHA-256 digest of the provided token, so it can be stored or used
+     * as a key without keeping the token in clear.
+     * 
+     * @param token the token to digest.
+     * @return the {@value #DIGEST_LENGTH} bytes of the digest of the token.
+     */
+    public static byte[] digest(String token) {
+        return DIGEST.get().digest(token.getBytes(StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,177 @@
+-- Schema of the embedded in-memory HSQLDB database, used when the application runs
+-- without a JNDI data source (see EmbeddedDataSourceProvider). It mirrors the tables
+-- of db/mysql-with-inserts.sql and only includes the catalog as initial data.
+
+-- ========== Tables structure ==========
+
+CREATE TABLE people (
+    id_person BIGINT       GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    name      VARCHAR(50)  NOT NULL,
+    surname   VARCHAR(100) NOT NULL
+);
+
+CREATE TABLE users (
+    id_user               BIGINT       GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    username              VARCHAR(50)  NOT NULL UNIQUE,
+    password_hash         VARCHAR(255) NOT NULL,
+    email                 VARCHAR(100) NOT NULL,
+    role                  VARCHAR(20)  NOT NULL,
+    active                BOOLEAN      DEFAULT TRUE NOT NULL,
+    blocked               BOOLEAN      DEFAULT FALSE NOT NULL,
+    failed_login_attempts INT          DEFAULT 0 NOT NULL,
+    token_version         INT          DEFAULT 0 NOT NULL,
+    creation_date         TIMESTAMP    DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    last_login            TIMESTAMP,
+    person_id             BIGINT       NOT NULL,
+    FOREIGN KEY (person_id) REFERENCES people (id_person) ON DELETE CASCADE
+);
+CREATE INDEX idx_email ON users (email);
+
+CREATE TABLE tokens (
+    id_token   BIGINT      GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    token_hash BINARY(32)  NOT NULL,
+    token_type VARCHAR(20) NOT NULL,
+    expired    BOOLEAN     DEFAULT FALSE NOT NULL,
+    revoked    BOOLEAN     DEFAULT FALSE NOT NULL,
+    expires_at TIMESTAMP   NOT NULL,
+    user_id    BIGINT      NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES users (id_user) ON DELETE CASCADE
+);
+CREATE UNIQUE INDEX idx_token_hash ON tokens (token_hash);
+CREATE INDEX idx_user_revoked ON tokens (user_id, revoked);
+
+-- ========== Root Recipes ==========
+
+CREATE TABLE root_recipes (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY
+);
+
+-- ========== Recipes ==========
+
+CREATE TABLE recipes (
+    id_recipe        BIGINT       GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    preparation_time INT          DEFAULT 0 NOT NULL,
+    cooking_time     INT          DEFAULT 0 NOT NULL,
+    difficulty       VARCHAR(6)   CHECK (difficulty IN ('EASY', 'MEDIUM', 'HARD')),
+    servings         INT          DEFAULT 1 NOT NULL,
+    is_public        BOOLEAN      DEFAULT FALSE NOT NULL,
+    is_lunchbox      BOOLEAN      DEFAULT FALSE NOT NULL,
+    image_path       VARCHAR(255),
+    user_id          BIGINT       NOT NULL,
+    root_recipe_id   BIGINT,
+    created_at       TIMESTAMP    DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    updated_at       TIMESTAMP    DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    FOREIGN KEY (user_id)        REFERENCES users (id_user)   ON DELETE CASCADE,
+    FOREIGN KEY (root_recipe_id) REFERENCES root_recipes (id) ON DELETE SET NULL
+);
+CREATE INDEX idx_public_created ON recipes (is_public, created_at, id_recipe);
+CREATE INDEX idx_user_created ON recipes (user_id, created_at, id_recipe);
+
+CREATE TABLE recipe_translations (
+    recipe_id   BIGINT       NOT NULL,
+    locale      VARCHAR(5)   NOT NULL,
+    title       VARCHAR(100) NOT NULL,
+    description LONGVARCHAR,
+    PRIMARY KEY (recipe_id, locale),
+    FOREIGN KEY (recipe_id) REFERENCES recipes (id_recipe) ON DELETE CASCADE
+);
+
+-- ========== Recipe Steps ==========
+
+CREATE TABLE recipe_steps (
+    id_recipe_step BIGINT       GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    step_number    INT          NOT NULL,
+    image_path     VARCHAR(255),
+    recipe_id      BIGINT       NOT NULL,
+    FOREIGN KEY (recipe_id) REFERENCES recipes (id_recipe) ON DELETE CASCADE
+);
+
+CREATE TABLE recipe_step_translations (
+    step_id     BIGINT       NOT NULL,
+    locale      VARCHAR(5)   NOT NULL,
+    title       VARCHAR(100),
+    description LONGVARCHAR  NOT NULL,
+    PRIMARY KEY (step_id, locale),
+    FOREIGN KEY (step_id) REFERENCES recipe_steps (id_recipe_step) ON DELETE CASCADE
+);
+
+-- ========== Catalog ==========
+
+CREATE TABLE ingredient_categories (
+    id_ingredient_category BIGINT       GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    name                   VARCHAR(100) NOT NULL,
+    description            VARCHAR(255)
+);
+
+CREATE TABLE ingredients (
+    id_ingredient BIGINT       GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    name          VARCHAR(100) NOT NULL UNIQUE,
+    category_id   BIGINT,
+    FOREIGN KEY (category_id) REFERENCES ingredient_categories (id_ingredient_category) ON DELETE SET NULL
+);
+
+CREATE TABLE measurement_units (
+    id_measurement_unit BIGINT      GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    name                VARCHAR(50) NOT NULL UNIQUE,
+    abbreviation        VARCHAR(20) NOT NULL,
+    type                VARCHAR(6)  NOT NULL CHECK (type IN ('VOLUME', 'WEIGHT', 'UNIT', 'OTHER'))
+);
+
+CREATE TABLE recipe_ingredients (
+    id_recipe_ingredient BIGINT         GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    quantity             DECIMAL(10, 2) NOT NULL,
+    notes                VARCHAR(255),
+    recipe_id            BIGINT         NOT NULL,
+    ingredient_id        BIGINT         NOT NULL,
+    measurement_unit_id  BIGINT         NOT NULL,
+    FOREIGN KEY (recipe_id)           REFERENCES recipes (id_recipe)                     ON DELETE CASCADE,
+    FOREIGN KEY (ingredient_id)       REFERENCES ingredients (id_ingredient)             ON DELETE CASCADE,
+    FOREIGN KEY (measurement_unit_id) REFERENCES measurement_units (id_measurement_unit) ON DELETE CASCADE
+);
+
+-- ========== Catalog data ==========
+
+INSERT INTO ingredient_categories (name, description) VALUES
+('Vegetables',          'Fresh and cooked vegetables'),
+('Meat',                'Beef, pork, chicken and other meats'),
+('Fish & Seafood',      'Fresh and cured fish and seafood'),
+('Dairy',               'Milk, cheese, butter and other dairy products'),
+('Grains & Pasta',      'Rice, pasta, bread and other grains'),
+('Legumes',             'Lentils, chickpeas, beans and other legumes'),
+('Spices & Condiments', 'Salt, pepper, olive oil and other condiments'),
+('Eggs',                'Chicken and other eggs'),
+('Fruit',               'Fresh and dried fruit');
+
+INSERT INTO measurement_units (name, abbreviation, type) VALUES
+('Gram',        'g',     'WEIGHT'),
+('Kilogram',    'kg',    'WEIGHT'),
+('Milliliter',  'ml',    'VOLUME'),
+('Liter',       'l',     'VOLUME'),
+('Teaspoon',    'tsp',   'VOLUME'),
+('Tablespoon',  'tbsp',  'VOLUME'),
+('Unit',        'u',     'UNIT'),
+('Slice',       'slice', 'UNIT'),
+('Pinch',       'pinch', 'OTHER'),
+('Cup',         'cup',   'VOLUME');
+
+INSERT INTO ingredients (name, category_id) VALUES
+('spaghetti',       5),
+('egg',             8),
+('pancetta',        2),
+('parmesan cheese', 4),
+('black pepper',    7),
+('salt',            7),
+('olive oil',       7),
+('garlic',          1),
+('onion',           1),
+('tomato',          1),
+('chicken breast',  2),
+('rice',            5),
+('lemon',           9),
+('butter',          4),
+('flour',           5),
+('milk',            4),
+('potato',          1),
+('carrot',          1),
+('tuna',            3),
+('lettuce',         1);
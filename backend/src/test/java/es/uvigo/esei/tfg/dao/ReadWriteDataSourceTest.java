@@ -0,0 +1,169 @@
+package es.uvigo.esei.tfg.dao;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import es.uvigo.esei.tfg.exceptions.DAOException;
+
+public class ReadWriteDataSourceTest {
+	private static final long WRITER = 1L;
+	private static final long OTHER_WRITER = 2L;
+
+	private JDBCDataSource primary;
+	private JDBCDataSource replica;
+
+	@Before
+	public void setUp() throws SQLException {
+		this.primary = createDatabase("primary");
+		this.replica = createDatabase("replica");
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		while (UnitOfWork.isActive()) {
+			UnitOfWork.beginRequest(null).commit();
+		}
+
+		dropDatabase(this.primary);
+		dropDatabase(this.replica);
+	}
+
+	private static JDBCDataSource createDatabase(String name) throws SQLException {
+		final JDBCDataSource dataSource = new JDBCDataSource();
+		dataSource.setUrl("jdbc:hsqldb:mem:" + name);
+		dataSource.setUser("sa");
+		dataSource.setPassword("");
+
+		try (Connection conn = dataSource.getConnection(); Statement statement = conn.createStatement()) {
+			statement.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+			statement.execute("CREATE TABLE origin (name VARCHAR(16))");
+			statement.execute("INSERT INTO origin (name) VALUES ('" + name + "')");
+		}
+		return dataSource;
+	}
+
+	private static void dropDatabase(DataSource dataSource) throws SQLException {
+		try (Connection conn = dataSource.getConnection(); Statement statement = conn.createStatement()) {
+			statement.execute("DROP TABLE origin");
+		}
+	}
+
+	private DAO createDAO(long readYourWritesMillis) {
+		return new DAO(
+			new ReadWriteDataSource(this.primary, this.replica, readYourWritesMillis, TimeUnit.MILLISECONDS)
+		) {};
+	}
+
+	private static String read(DAO dao) throws SQLException {
+		try (
+			Connection conn = dao.getReadConnection(null);
+			PreparedStatement statement = conn.prepareStatement("SELECT name FROM origin");
+			ResultSet result = statement.executeQuery()
+		) {
+			result.next();
+			return result.getString(1);
+		}
+	}
+
+	private static void write(DAO dao) throws SQLException {
+		try (
+			Connection conn = dao.getConnection(null);
+			PreparedStatement statement = conn.prepareStatement("UPDATE origin SET name = name")
+		) {
+			statement.executeUpdate();
+		}
+	}
+
+	private static void writeInRequest(DAO dao, Object writer) throws SQLException, DAOException {
+		try (UnitOfWork unitOfWork = UnitOfWork.beginRequest(writer)) {
+			write(dao);
+			unitOfWork.commit();
+		}
+	}
+
+	private static String readInRequest(DAO dao, Object writer) throws SQLException, DAOException {
+		try (UnitOfWork unitOfWork = UnitOfWork.beginRequest(writer)) {
+			final String origin = read(dao);
+			unitOfWork.commit();
+			return origin;
+		}
+	}
+
+	@Test
+	public void testReadsFromReplica() throws SQLException, DAOException {
+		final DAO dao = createDAO(1000);
+
+		assertThat(read(dao), is(equalTo("replica")));
+		assertThat(readInRequest(dao, WRITER), is(equalTo("replica")));
+	}
+
+	@Test
+	public void testReadsFromPrimaryInServiceUnitOfWork() throws SQLException, DAOException {
+		final DAO dao = createDAO(1000);
+
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			assertThat(read(dao), is(equalTo("primary")));
+			unitOfWork.commit();
+		}
+	}
+
+	@Test
+	public void testReadsFromPrimaryAfterWrite() throws SQLException, DAOException {
+		final DAO dao = createDAO(0);
+
+		try (UnitOfWork unitOfWork = UnitOfWork.beginRequest(WRITER)) {
+			assertThat(read(dao), is(equalTo("replica")));
+			write(dao);
+			assertThat(read(dao), is(equalTo("primary")));
+			unitOfWork.commit();
+		}
+	}
+
+	@Test
+	public void testReadYourWritesWindowOnlyForWriter() throws SQLException, DAOException {
+		final DAO dao = createDAO(60_000);
+
+		writeInRequest(dao, WRITER);
+
+		assertThat(readInRequest(dao, WRITER), is(equalTo("primary")));
+		assertThat(readInRequest(dao, OTHER_WRITER), is(equalTo("replica")));
+		assertThat(readInRequest(dao, null), is(equalTo("replica")));
+	}
+
+	@Test
+	public void testReadYourWritesWindowNotOpenedOnRollback() throws SQLException, DAOException {
+		final DAO dao = createDAO(60_000);
+
+		try (UnitOfWork unitOfWork = UnitOfWork.beginRequest(WRITER)) {
+			write(dao);
+		}
+
+		assertThat(readInRequest(dao, WRITER), is(equalTo("replica")));
+	}
+
+	@Test
+	public void testReadYourWritesWindowExpires() throws SQLException, DAOException, InterruptedException {
+		final DAO dao = createDAO(50);
+
+		writeInRequest(dao, WRITER);
+		Thread.sleep(200);
+
+		assertThat(readInRequest(dao, WRITER), is(equalTo("replica")));
+	}
+
+}
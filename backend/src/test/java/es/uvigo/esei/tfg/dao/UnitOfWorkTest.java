@@ -0,0 +1,183 @@
+package es.uvigo.esei.tfg.dao;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import es.uvigo.esei.tfg.exceptions.DAOException;
+
+public class UnitOfWorkTest {
+	private JDBCDataSource dataSource;
+
+	@Before
+	public void setUp() throws SQLException {
+		this.dataSource = new JDBCDataSource();
+		this.dataSource.setUrl("jdbc:hsqldb:mem:unitofwork");
+		this.dataSource.setUser("sa");
+		this.dataSource.setPassword("");
+
+		try (Connection conn = this.dataSource.getConnection(); Statement statement = conn.createStatement()) {
+			statement.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+			statement.execute("CREATE TABLE items (id INT PRIMARY KEY)");
+		}
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		// Never leave a unit of work bound to the thread of the next test
+		while (UnitOfWork.isActive()) {
+			UnitOfWork.beginRequest(null).commit();
+		}
+
+		try (Connection conn = this.dataSource.getConnection(); Statement statement = conn.createStatement()) {
+			statement.execute("DROP TABLE items");
+		}
+	}
+
+	private void insert(int id) throws SQLException {
+		try (Statement statement = UnitOfWork.getConnection(this.dataSource).createStatement()) {
+			statement.executeUpdate("INSERT INTO items (id) VALUES (" + id + ")");
+		}
+	}
+
+	private int countItems() throws SQLException {
+		try (
+			Connection conn = this.dataSource.getConnection();
+			Statement statement = conn.createStatement();
+			ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM items")
+		) {
+			result.next();
+			return result.getInt(1);
+		}
+	}
+
+	@Test
+	public void testCommit() throws SQLException, DAOException {
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			insert(1);
+			insert(2);
+			unitOfWork.commit();
+		}
+
+		assertThat(countItems(), is(2));
+		assertThat(UnitOfWork.isActive(), is(false));
+	}
+
+	@Test
+	public void testRollbackWhenNotCommitted() throws SQLException, DAOException {
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			insert(1);
+		}
+
+		assertThat(countItems(), is(0));
+	}
+
+	@Test
+	public void testNoConnectionWithoutUnitOfWork() throws SQLException {
+		assertThat(UnitOfWork.getConnection(this.dataSource) == null, is(true));
+	}
+
+	@Test
+	public void testInnerUnitOfWorkJoinsOuter() throws SQLException, DAOException {
+		try (UnitOfWork outer = UnitOfWork.begin()) {
+			final Connection outerConnection = UnitOfWork.getConnection(this.dataSource);
+			insert(1);
+
+			try (UnitOfWork inner = UnitOfWork.begin()) {
+				assertThat(UnitOfWork.getConnection(this.dataSource), is(sameInstance(outerConnection)));
+				insert(2);
+				inner.commit();
+			}
+
+			// The inner unit of work does not commit the changes of the outer one
+			assertThat(countItems(), is(0));
+			outer.commit();
+		}
+
+		assertThat(countItems(), is(2));
+	}
+
+	@Test
+	public void testInnerUnitOfWorkNotCommittedRollsBackAll() throws SQLException, DAOException {
+		try (UnitOfWork outer = UnitOfWork.begin()) {
+			insert(1);
+
+			try (UnitOfWork inner = UnitOfWork.begin()) {
+				insert(2);
+			}
+
+			outer.commit();
+		}
+
+		assertThat(countItems(), is(0));
+	}
+
+	@Test
+	public void testRollbackOfBoundConnectionRollsBackAll() throws SQLException, DAOException {
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			insert(1);
+			UnitOfWork.getConnection(this.dataSource).rollback();
+			insert(2);
+			unitOfWork.commit();
+		}
+
+		assertThat(countItems(), is(0));
+	}
+
+	@Test
+	public void testAfterCommitRunsOnlyOnCommit() throws DAOException {
+		final AtomicInteger runs = new AtomicInteger();
+
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			UnitOfWork.afterCommit(runs::incrementAndGet);
+			assertThat(runs.get(), is(0));
+			unitOfWork.commit();
+		}
+		assertThat(runs.get(), is(1));
+
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			UnitOfWork.afterCommit(runs::incrementAndGet);
+		}
+		assertThat(runs.get(), is(1));
+	}
+
+	@Test
+	public void testAfterCommitRunsRightAwayWithoutUnitOfWork() {
+		final AtomicInteger runs = new AtomicInteger();
+
+		UnitOfWork.afterCommit(runs::incrementAndGet);
+
+		assertThat(runs.get(), is(1));
+	}
+
+	@Test
+	public void testBeginRequestRollsBackLeftoverUnitOfWork() throws SQLException, DAOException {
+		final AtomicInteger runs = new AtomicInteger();
+
+		// A previous task that never closed its unit of work
+		UnitOfWork.begin().commit();
+		insert(1);
+		UnitOfWork.afterCommit(runs::incrementAndGet);
+
+		try (UnitOfWork unitOfWork = UnitOfWork.beginRequest(null)) {
+			insert(2);
+			unitOfWork.commit();
+		}
+
+		assertThat(countItems(), is(1));
+		assertThat(runs.get(), is(0));
+		assertThat(UnitOfWork.isActive(), is(false));
+	}
+
+}
@@ -0,0 +1,94 @@
+package es.uvigo.esei.tfg.security;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TokenBucketRateLimiterTest {
+    private final static long SECOND = TimeUnit.SECONDS.toNanos(1);
+    // Same number of stripes of the limiter, used to find keys that share a stripe
+    private final static int STRIPES = 64;
+
+    private static String keyInSameStripe(String key) {
+        final int stripe = (key.hashCode() & 0x7fffffff) % STRIPES;
+        for (int i = 0; ; i++) {
+            final String candidate = key + i;
+            if ((candidate.hashCode() & 0x7fffffff) % STRIPES == stripe) {
+                return candidate;
+            }
+        }
+    }
+
+    @Test
+    public void testAllowBurstUpToCapacity() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 1, TimeUnit.SECONDS, 1000);
+
+        assertThat(limiter.tryAcquire("key", 0), is(0L));
+        assertThat(limiter.tryAcquire("key", 0), is(0L));
+        assertThat(limiter.tryAcquire("key", 0), is(0L));
+        assertThat(limiter.tryAcquire("key", 0), is(SECOND));
+    }
+
+    @Test
+    public void testKeysHaveIndependentBuckets() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, TimeUnit.SECONDS, 1000);
+
+        assertThat(limiter.tryAcquire("first", 0), is(0L));
+        assertThat(limiter.tryAcquire("second", 0), is(0L));
+        assertThat(limiter.tryAcquire("first", 0), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void testRefill() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 1, TimeUnit.SECONDS, 1000);
+        limiter.tryAcquire("key", 0);
+        limiter.tryAcquire("key", 0);
+
+        assertThat(limiter.tryAcquire("key", SECOND / 4), is(SECOND * 3 / 4));
+        assertThat(limiter.tryAcquire("key", SECOND), is(0L));
+        assertThat(limiter.tryAcquire("key", SECOND), is(SECOND));
+    }
+
+    @Test
+    public void testRefillUpToCapacity() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 1, TimeUnit.SECONDS, 1000);
+        limiter.tryAcquire("key", 0);
+
+        final long later = SECOND * 100;
+        assertThat(limiter.tryAcquire("key", later), is(0L));
+        assertThat(limiter.tryAcquire("key", later), is(0L));
+        assertThat(limiter.tryAcquire("key", later), is(SECOND));
+    }
+
+    @Test
+    public void testEvictIdleBuckets() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 1, TimeUnit.SECONDS, 1000);
+        final String other = keyInSameStripe("key");
+        limiter.tryAcquire("key", 0);
+
+        limiter.tryAcquire(other, SECOND);
+        assertThat(limiter.size(), is(2));
+
+        limiter.tryAcquire(other, SECOND * 2);
+        assertThat(limiter.size(), is(1));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsedBuckets() {
+        // One bucket per stripe
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, TimeUnit.SECONDS, STRIPES);
+        final String other = keyInSameStripe("key");
+        limiter.tryAcquire("key", 0);
+
+        limiter.tryAcquire(other, 0);
+
+        assertThat(limiter.size(), is(1));
+        // The evicted bucket starts full again
+        assertThat(limiter.tryAcquire("key", 0), is(0L));
+    }
+
+}
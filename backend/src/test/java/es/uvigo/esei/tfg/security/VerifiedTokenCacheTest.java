@@ -0,0 +1,112 @@
+package es.uvigo.esei.tfg.security;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+public class VerifiedTokenCacheTest {
+    private final static long NOW = 1_000_000L;
+
+    private static Claims claimsExpiringAt(long expiresAt) {
+        return Jwts.claims()
+            .subject("user")
+            .expiration(new Date(expiresAt))
+            .build();
+    }
+
+    @Test
+    public void testGetCachedToken() {
+        final VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        final Claims claims = claimsExpiringAt(NOW + 1000);
+
+        cache.put("token", claims, NOW);
+
+        assertThat(cache.get("token", NOW), is(claims));
+        assertThat(cache.getHits(), is(1L));
+        assertThat(cache.getMisses(), is(0L));
+    }
+
+    @Test
+    public void testGetUnknownToken() {
+        final VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+        assertThat(cache.get("token", NOW), is(nullValue()));
+        assertThat(cache.getMisses(), is(1L));
+    }
+
+    @Test
+    public void testGetExpiredToken() {
+        final VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put("token", claimsExpiringAt(NOW + 1000), NOW);
+
+        assertThat(cache.get("token", NOW + 999), is(notNullValue()));
+        assertThat(cache.get("token", NOW + 1000), is(nullValue()));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void testTokenWithoutExpirationIsNotCached() {
+        final VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+        cache.put("token", Jwts.claims().subject("user").build(), NOW);
+
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void testEvictOnlyTheExcessOfTokensWithTheSameExpiration() {
+        final VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put("token" + i, claimsExpiringAt(NOW + 1000), NOW);
+        }
+
+        cache.put("new", claimsExpiringAt(NOW + 1000), NOW);
+
+        assertThat(cache.size(), is(10));
+        assertThat(cache.get("new", NOW), is(notNullValue()));
+    }
+
+    @Test
+    public void testEvictExpiredTokensFirst() {
+        final VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put("expired", claimsExpiringAt(NOW + 1000), NOW);
+        for (int i = 1; i < 10; i++) {
+            cache.put("token" + i, claimsExpiringAt(NOW + 1000 * (i + 1)), NOW);
+        }
+
+        cache.put("new", claimsExpiringAt(NOW + 20_000), NOW + 1000);
+
+        assertThat(cache.size(), is(10));
+        assertThat(cache.get("expired", NOW + 1000), is(nullValue()));
+        for (int i = 1; i < 10; i++) {
+            assertThat(cache.get("token" + i, NOW + 1000), is(notNullValue()));
+        }
+        assertThat(cache.get("new", NOW + 1000), is(notNullValue()));
+    }
+
+    @Test
+    public void testEvictTokensThatExpireSooner() {
+        final VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put("token" + i, claimsExpiringAt(NOW + 1000 * (i + 1)), NOW);
+        }
+
+        cache.put("new", claimsExpiringAt(NOW + 20_000), NOW);
+
+        assertThat(cache.size(), is(10));
+        assertThat(cache.get("token0", NOW), is(nullValue()));
+        for (int i = 1; i < 10; i++) {
+            assertThat(cache.get("token" + i, NOW), is(notNullValue()));
+        }
+        assertThat(cache.get("new", NOW), is(notNullValue()));
+    }
+
+}
@@ -0,0 +1,20 @@
+package es.uvigo.esei.tfg.suites;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+import es.uvigo.esei.tfg.dao.ReadWriteDataSourceTest;
+import es.uvigo.esei.tfg.dao.UnitOfWorkTest;
+import es.uvigo.esei.tfg.security.TokenBucketRateLimiterTest;
+import es.uvigo.esei.tfg.security.VerifiedTokenCacheTest;
+
+@SuiteClasses({
+	ReadWriteDataSourceTest.class,
+	UnitOfWorkTest.class,
+	TokenBucketRateLimiterTest.class,
+	VerifiedTokenCacheTest.class
+})
+@RunWith(Suite.class)
+public class UnitTestSuite {
+}
@@ -3,29 +3,52 @@ import RecipeService from "../../services/recipes/RecipeService";
 
 export default function useRecipes() {
     const[recipes, setRecipes] = useState([]);
+    const[nextCursor, setNextCursor] = useState(null);
     const[loading, setLoading] = useState(false);
+    const[loadingMore, setLoadingMore] = useState(false);
     const[error, setError] = useState(null);
 
+    // The listing is paged: each page has its items and the cursor of the next one (null on the last page)
+    const fetchPage = useCallback(async (cursor) => {
+        const result = await RecipeService.listRecipes(null, cursor);
+
+        if (result.success) {
+            setRecipes(prev => cursor ? [...prev, ...result.data.items] : result.data.items);
+            setNextCursor(result.data.nextCursor);
+            return result.data.items;
+        } else {
+            throw new Error(result.error?.message || 'Failed to load recipes');
+        }
+    }, []);
+
     const fetchRecipes = useCallback(async () => {
         setLoading(true);
         setError(null);
 
         try {
-            const result = await RecipeService.listRecipes()
-            
-            if (result.success) {
-                setRecipes(result.data);
-                return result.data;
-            } else {
-                throw new Error(result.error?.message || 'Failed to load recipes');
-            }
+            return await fetchPage(null);
         } catch (error) {
             setError(error.message);
             throw error;
         } finally {
             setLoading(false);
         }
-    }, []);
+    }, [fetchPage]);
+
+    const loadMore = useCallback(async () => {
+        if (!nextCursor) return [];
+        setLoadingMore(true);
+        setError(null);
+
+        try {
+            return await fetchPage(nextCursor);
+        } catch (error) {
+            setError(error.message);
+            throw error;
+        } finally {
+            setLoadingMore(false);
+        }
+    }, [fetchPage, nextCursor]);
 
     useEffect(() => {
         fetchRecipes();
@@ -34,7 +57,10 @@ export default function useRecipes() {
     return {
         recipes,
         loading,
+        loadingMore,
+        hasMore: nextCursor !== null,
         error,
-        fetchRecipes
+        fetchRecipes,
+        loadMore
     };
-}
\ No newline at end of file
+}
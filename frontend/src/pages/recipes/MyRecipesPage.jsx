@@ -10,6 +10,9 @@ export default function MyRecipesPage() {
     const {
         recipes,
         loading,
+        loadingMore,
+        hasMore,
+        loadMore,
         error,
         deleteRecipe,
         toggleRecipeVisibility
@@ -70,6 +73,14 @@ export default function MyRecipesPage() {
             />
         }
 
+        { !loading && hasMore && (
+            <div className="d-flex justify-content-center mt-3">
+                <button className="btn aa-primary aa-lg" onClick={loadMore} disabled={loadingMore}>
+                    {loadingMore ? t("recipeList.loadingYourRecipes") : t("recipeList.loadMore")}
+                </button>
+            </div>
+        )}
+
     </div>
     );
 
@@ -9,6 +9,9 @@ export default function RecipesListPage() {
     const { 
         recipes: publicRecipes, 
         loading: publicLoading, 
+        loadingMore,
+        hasMore,
+        loadMore,
         error: recipesError 
     } = useRecipes();
 
@@ -44,6 +47,14 @@ export default function RecipesListPage() {
             />
         }
 
+        { !loading && !isSearching && hasMore && (
+            <div className="d-flex justify-content-center mt-3">
+                <button className="btn aa-primary aa-lg" onClick={loadMore} disabled={loadingMore}>
+                    {loadingMore ? t("recipeList.loadingRecipes") : t("recipeList.loadMore")}
+                </button>
+            </div>
+        )}
+
     </div>
     );
 
@@ -30,10 +30,11 @@ class RecipeService {
         }
     }
 
-    async listRecipes(locale = null) {
+    async listRecipes(locale = null, cursor = null) {
         try {
             const params = {};
             if (locale) params.locale = locale;
+            if (cursor) params.cursor = cursor;
 
             const response = await $.ajax({
                 url: url(ENDPOINTS.RECIPES.BASE),
@@ -54,10 +55,11 @@ class RecipeService {
         }
     }
 
-    async listMyRecipes(locale = null) {
+    async listMyRecipes(locale = null, cursor = null) {
         try {
             const params = {};
             if (locale) params.locale = locale;
+            if (cursor) params.cursor = cursor;
 
             const response = await $.ajax({
                 url: url(ENDPOINTS.RECIPES.MY_RECIPES),